@@ -0,0 +1,122 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.controller.UserController;
+import com.lwb.excel.export.entity.School;
+import com.lwb.excel.export.enums.ExportEngine;
+import com.lwb.excel.export.enums.FileType;
+import com.lwb.excel.export.vo.ClassVO;
+import com.lwb.excel.export.vo.UserVO;
+import org.apache.commons.lang3.SerializationUtils;
+
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 基准测试数据
+ */
+final class BenchmarkData {
+
+    /**
+     * 预先创建的用户数量，导出时循环使用，避免创建数据的开销计入导出
+     */
+    private static final int POOL_SIZE = 1024;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 创建合成的用户数据，每个用户属于一个班级，每个班级属于一个学校
+     * @param index 序号
+     * @return 用户
+     */
+    static UserVO user(long index) {
+        School school = new School().setId(index % 10).setName("学校" + index % 10);
+        ClassVO classVO = new ClassVO();
+        classVO.setId(index % 100);
+        classVO.setName("班级" + index % 100);
+        classVO.setSchool(school);
+        UserVO user = new UserVO();
+        user.setId(index);
+        user.setName("用户" + index);
+        user.setClassVO(classVO);
+        return user;
+    }
+
+    /**
+     * 返回指定行数的数据源
+     * @param rows 行数
+     * @return 数据源
+     */
+    static RowSource users(int rows) {
+        UserVO[] pool = new UserVO[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool[i] = user(i);
+        }
+        return consumer -> {
+            for (int i = 0; i < rows; i++) {
+                consumer.accept(pool[i % POOL_SIZE]);
+            }
+        };
+    }
+
+    /**
+     * 用户列表的导出配置，复制后修改，不影响注册表中的配置
+     * @param fileType 导出格式
+     * @param engine   xlsx的生成方式
+     * @return 导出配置
+     */
+    static ExcelConfig userListConfig(FileType fileType, ExportEngine engine) {
+        ExcelConfig config = SerializationUtils.clone(ExportRegistry.get(UserController.class, "user-list.yml"));
+        config.setFileType(fileType);
+        config.setEngine(engine);
+        return config;
+    }
+
+    /**
+     * 只统计字节数、不保存内容的存储
+     */
+    static final class CountingStorage implements ExportStorage {
+
+        private final Consumer<Long> onSaved;
+
+        CountingStorage(Consumer<Long> onSaved) {
+            this.onSaved = onSaved;
+        }
+
+        @Override
+        public void save(String fileName, Content content) throws Exception {
+            long[] bytes = new long[1];
+            content.write(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    bytes[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    bytes[0] += len;
+                }
+            });
+            this.onSaved.accept(bytes[0]);
+        }
+
+        @Override
+        public long length(String fileName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transferTo(String fileName, long position, long count, OutputStream out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(String fileName) {
+        }
+
+        @Override
+        public void deleteExpired(long expireTime, Predicate<String> retained) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个单元格的写入开销
+ * </p>
+ * 按值的类型写入SXSSF单元格，包括数字精度处理和样式池中日期样式的查找；
+ * 行窗口外的行写入临时文件，结果包含临时文件的写入开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CellWriterBenchmark {
+
+    private static final String PATTERN = "yyyy-MM-dd";
+
+    SXSSFWorkbook book;
+    SXSSFSheet sheet;
+    CellWriter writer;
+    int rowIndex;
+
+    final Date date = new Date();
+    final LocalDateTime dateTime = LocalDateTime.now();
+    final LocalDate localDate = LocalDate.now();
+    final BigDecimal decimal = new BigDecimal("12345.6789");
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        this.book = new SXSSFWorkbook();
+        this.sheet = this.book.createSheet();
+        this.writer = new CellWriter(new StylePool(this.book));
+        this.rowIndex = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        this.book.dispose();
+    }
+
+    private SXSSFRow nextRow() {
+        if (this.rowIndex == SXSSFWorkbook.DEFAULT_WINDOW_SIZE * 10000) {
+            tearDown();
+            setup();
+        }
+        return this.sheet.createRow(this.rowIndex++);
+    }
+
+    @Benchmark
+    public void string() {
+        this.writer.write(nextRow().createCell(0), "用户1", null, null);
+    }
+
+    @Benchmark
+    public void longValue() {
+        this.writer.write(nextRow().createCell(0), 123456789L, null, null);
+    }
+
+    @Benchmark
+    public void bigDecimal() {
+        this.writer.write(nextRow().createCell(0), this.decimal, null, null);
+    }
+
+    @Benchmark
+    public void date() {
+        this.writer.write(nextRow().createCell(0), this.date, null, null);
+    }
+
+    @Benchmark
+    public void localDateTime() {
+        this.writer.write(nextRow().createCell(0), this.dateTime, null, null);
+    }
+
+    @Benchmark
+    public void localDateWithPattern() {
+        this.writer.write(nextRow().createCell(0), this.localDate, PATTERN, null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.lwb.excel.export.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * csv、tsv导出的日期格式化开销
+ * </p>
+ * 对比每次新建SimpleDateFormat与{@link CsvWriter}按格式缓存格式化器、复用缓冲区的写法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateFormatBenchmark {
+
+    private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    final Date date = new Date();
+    final LocalDateTime dateTime = LocalDateTime.now();
+    CsvWriter writer;
+
+    @Setup
+    public void setup() {
+        this.writer = new CsvWriter(new Writer() {
+            @Override
+            public void write(char[] buffer, int off, int len) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, ',');
+    }
+
+    @Benchmark
+    public String newSimpleDateFormat() {
+        return new SimpleDateFormat(PATTERN).format(this.date);
+    }
+
+    @Benchmark
+    public void cachedDate() {
+        this.writer.write(this.date, PATTERN);
+        this.writer.endRow();
+    }
+
+    @Benchmark
+    public void cachedLocalDateTime() {
+        this.writer.write(this.dateTime, PATTERN);
+        this.writer.endRow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportEngine;
+import com.lwb.excel.export.enums.FileType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端导出
+ * </p>
+ * 按user-list.yml的配置导出合成的用户数据，输出只统计字节数不保存，结果包含：
+ * <ul>
+ *     <li>rows：导出的行数，除以耗时即为每秒导出的行数</li>
+ *     <li>bytes：导出的文件大小</li>
+ *     <li>gc.alloc.rate.norm（-prof gc）：每次导出分配的字节数，除以行数即为每行分配的字节数</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    @Param({"SXSSF", "DIRECT"})
+    ExportEngine engine;
+
+    @Param({"XLSX", "CSV"})
+    FileType fileType;
+
+    ExcelConfig config;
+    RowSource source;
+    volatile long bytes;
+
+    @Setup
+    public void setup() {
+        ExcelUtils.setStorage(new BenchmarkData.CountingStorage(bytes -> this.bytes = bytes));
+        this.config = BenchmarkData.userListConfig(this.fileType, this.engine);
+        this.source = BenchmarkData.users(this.rows);
+    }
+
+    @Benchmark
+    public String export(Counters counters) {
+        String fileName = ExcelUtils.excel(this.config, this.source);
+        counters.rows += this.rows;
+        counters.bytes = this.bytes;
+        return fileName;
+    }
+
+    /**
+     * 附加的统计项
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.rows = 0;
+            this.bytes = 0;
+        }
+    }
+}
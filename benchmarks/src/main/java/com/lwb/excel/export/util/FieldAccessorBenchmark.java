@@ -0,0 +1,75 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.vo.UserVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个单元格的取值开销
+ * </p>
+ * 对比直接字段、嵌套路径（classVO.school.name）和一整行字段的取值，以及每次按字段列表查找取值器的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldAccessorBenchmark {
+
+    private static final List<String> FIELDS = Arrays.asList("id", "name", "classVO.name", "classVO.school.name");
+
+    UserVO user;
+    FieldAccessor id;
+    FieldAccessor schoolName;
+    FieldAccessor[] row;
+
+    @Setup
+    public void setup() {
+        this.user = BenchmarkData.user(1);
+        this.id = FieldAccessor.of(UserVO.class, Collections.singletonList("id"))[0];
+        this.schoolName = FieldAccessor.of(UserVO.class, Collections.singletonList("classVO.school.name"))[0];
+        this.row = FieldAccessor.of(UserVO.class, FIELDS);
+    }
+
+    @Benchmark
+    public Object field() {
+        return this.id.get(this.user);
+    }
+
+    @Benchmark
+    public Object nestedPath() {
+        return this.schoolName.get(this.user);
+    }
+
+    @Benchmark
+    public void row(Blackhole blackhole) {
+        for (FieldAccessor accessor : this.row) {
+            blackhole.consume(accessor.get(this.user));
+        }
+    }
+
+    /**
+     * 导出时每行都按(类, 字段列表)查找缓存的取值器
+     */
+    @Benchmark
+    public void rowWithLookup(Blackhole blackhole) {
+        for (FieldAccessor accessor : FieldAccessor.of(this.user.getClass(), FIELDS)) {
+            blackhole.consume(accessor.get(this.user));
+        }
+    }
+}
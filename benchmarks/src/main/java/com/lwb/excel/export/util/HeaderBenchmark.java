@@ -0,0 +1,48 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportEngine;
+import com.lwb.excel.export.enums.FileType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 表头生成开销
+ * </p>
+ * 使用user-list.yml中带合并单元格的多行表头，导出0行数据，结果为创建工作簿、写入表头和合并区域、打包xlsx的时间
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeaderBenchmark {
+
+    @Param({"SXSSF", "DIRECT"})
+    ExportEngine engine;
+
+    ExcelConfig config;
+
+    @Setup
+    public void setup() {
+        ExcelUtils.setStorage(new BenchmarkData.CountingStorage(bytes -> { }));
+        this.config = BenchmarkData.userListConfig(FileType.XLSX, this.engine);
+    }
+
+    @Benchmark
+    public String header() {
+        return ExcelUtils.excel(this.config, RowSource.of(Collections.emptyList()));
+    }
+}
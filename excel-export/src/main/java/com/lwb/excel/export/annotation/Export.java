@@ -20,6 +20,12 @@ public @interface Export {
      */
     String value();
 
-
+    /**
+     * xlsx模板文件名称，相对于导出方法所在的类，不设置时使用配置文件中的模板
+     * </p>
+     * 模板中的内容原样保留，数据从标记行开始写入，参见{@link com.lwb.excel.export.util.ExcelConfig#getTemplate()}
+     * @return
+     */
+    String template() default "";
 
 }
@@ -0,0 +1,143 @@
+package com.lwb.excel.export.config;
+
+import com.lwb.excel.export.exception.UtilException;
+import com.lwb.excel.export.util.ExcelUtils;
+import com.lwb.excel.export.util.ExportCache;
+import com.lwb.excel.export.util.ExportExecutorFactory;
+import com.lwb.excel.export.util.ExportExecutors;
+import com.lwb.excel.export.util.ExportJobs;
+import com.lwb.excel.export.util.ExportMetrics;
+import com.lwb.excel.export.util.ExportRegistry;
+import com.lwb.excel.export.util.ExportScheduler;
+import com.lwb.excel.export.util.ExportStorage;
+import com.lwb.excel.export.util.ExportWorkbook;
+import com.lwb.excel.export.util.LocalExportStorage;
+import com.lwb.excel.export.util.S3ExportStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * excel导出配置
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Configuration
+@EnableConfigurationProperties(ExcelExportProperties.class)
+public class ExcelExportConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    ExcelExportProperties properties;
+
+    @Autowired
+    ExportStorage storage;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Bean
+    public static ExportConfigRegistrar exportConfigRegistrar() {
+        return new ExportConfigRegistrar();
+    }
+
+    /**
+     * 数据变更时使导出缓存失效
+     */
+    @Bean
+    public ExportCacheInterceptor exportCacheInterceptor() {
+        return new ExportCacheInterceptor();
+    }
+
+    /**
+     * 导出文件存储，可以声明自己的{@link ExportStorage}替换
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public static ExportStorage exportStorage(ExcelExportProperties properties) {
+        ExcelExportProperties.Storage storage = properties.getStorage();
+        switch (storage.getType()) {
+            case S3:
+                ExcelExportProperties.S3 s3 = storage.getS3();
+                return new S3ExportStorage(s3.getEndpoint(), s3.getRegion(), s3.getBucket(), s3.getAccessKey(),
+                    s3.getSecretKey(), s3.getPrefix(), StringUtils.defaultIfEmpty(s3.getNode(), hostName()),
+                    s3.getPartSize() * 1024 * 1024);
+            default:
+                return new LocalExportStorage(new File(storage.getDirectory()));
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new UtilException(String.format("获取主机名失败，请配置excel.export.storage.s3.node：%s", e.getMessage()));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        ExportRegistry.setReloadEnabled(this.properties.isReload());
+        ExportJobs.setTtl(TimeUnit.MINUTES.toMillis(this.properties.getTtl()));
+        ExcelUtils.setStorage(this.storage);
+        ExportCache.setMaxSize(this.properties.getCache().getMaxSize());
+        ExportMetrics.setRegistry(this.meterRegistry);
+
+        // 调度器的线程池由当前的线程池工厂创建，需要先设置
+        ExportExecutors.setFactory(ExportExecutorFactory.of(this.properties.getExecutor().getType()));
+        ExportExecutors.setRequestThreads(this.properties.getExecutor().getRequestThreads());
+
+        ExcelExportProperties.Scheduler scheduler = this.properties.getScheduler();
+        ExportScheduler.setDefault(new ExportScheduler(
+            scheduler.getConcurrency(),
+            scheduler.getQueueCapacity(),
+            TimeUnit.SECONDS.toMillis(scheduler.getQueueTimeout()),
+            scheduler.getDefaultTypeLimit(),
+            scheduler.getTypeLimits(),
+            scheduler.getMemoryBudget(),
+            scheduler.getDefaultJobMemory()
+        ));
+
+        ExcelExportProperties.Workbook workbook = this.properties.getWorkbook();
+        ExportWorkbook.setDefaults(workbook.getWindowSize(), workbook.isCompressTempFiles(), workbook.getTempQuota(),
+            workbook.getFlushInterval());
+        Optional.ofNullable(workbook.getTempDirectory())
+            .filter(StringUtils::isNotEmpty)
+            .ifPresent(ExportWorkbook::setTempDirectory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ExportScheduler.getDefault().shutdown();
+    }
+
+    /**
+     * 异步下载（StreamingResponseBody）在导出的请求线程池中执行
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new ConcurrentTaskExecutor(task -> ExportExecutors.request().execute(task)));
+        configurer.setDefaultTimeout(TimeUnit.MINUTES.toMillis(this.properties.getExecutor().getAsyncTimeout()));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ExportHandlerInterceptor());
+    }
+}
@@ -0,0 +1,191 @@
+package com.lwb.excel.export.config;
+
+import com.lwb.excel.export.enums.ExecutorType;
+import com.lwb.excel.export.enums.StorageType;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * excel导出全局配置
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "excel.export")
+public class ExcelExportProperties {
+
+    /**
+     * 导出配置yml文件修改后是否自动重新加载，用于开发环境
+     */
+    boolean reload = false;
+    /**
+     * 临时文件及异步导出任务的有效期，单位分钟
+     */
+    int ttl = 30;
+
+    /**
+     * 导出任务调度配置
+     */
+    Scheduler scheduler = new Scheduler();
+
+    /**
+     * SXSSF工作簿配置
+     */
+    Workbook workbook = new Workbook();
+
+    /**
+     * 导出文件存储配置
+     */
+    Storage storage = new Storage();
+
+    /**
+     * 导出结果缓存配置
+     */
+    Cache cache = new Cache();
+
+    /**
+     * 导出线程配置
+     */
+    Executor executor = new Executor();
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Scheduler {
+
+        /**
+         * 同时执行的导出任务数，默认为cpu核数
+         */
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        /**
+         * 最多排队的导出任务数，超过后返回429
+         */
+        int queueCapacity = 100;
+        /**
+         * 同步导出最长的排队时间，单位秒，超过后返回429，0表示不限制
+         */
+        int queueTimeout = 60;
+        /**
+         * 每种导出默认的并发数
+         */
+        int defaultTypeLimit = 2;
+        /**
+         * 每种导出单独设置的并发数，key为导出名称
+         */
+        Map<String, Integer> typeLimits = new HashMap<>();
+        /**
+         * 所有导出任务的内存预算，单位MB，默认为最大堆内存的1/4；任务开始执行时占用，不足时在队列中等待
+         */
+        int memoryBudget = (int) (Runtime.getRuntime().maxMemory() >> 22);
+        /**
+         * 每个导出任务默认占用的内存，单位MB
+         */
+        int defaultJobMemory = 64;
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Workbook {
+
+        /**
+         * 在内存中保留的行数，超过后写入临时文件，-1表示不限制
+         */
+        int windowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+        /**
+         * 临时文件是否压缩，压缩后占用磁盘更少，但写入更慢
+         */
+        boolean compressTempFiles = false;
+        /**
+         * 临时文件所在的文件夹，例如挂载的tmpfs，不设置时使用系统临时文件夹
+         */
+        String tempDirectory;
+        /**
+         * 每个导出的临时文件磁盘配额，单位MB，0表示不限制
+         */
+        int tempQuota = 0;
+        /**
+         * 每写入多少行数据将内存中的行写入临时文件，0表示只按行窗口写入
+         */
+        int flushInterval = 0;
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Storage {
+
+        /**
+         * 存储类型
+         */
+        StorageType type = StorageType.LOCAL;
+        /**
+         * 本地存储的文件夹
+         */
+        String directory = new File(System.getProperty("java.io.tmpdir"), "excel-export").getPath();
+        /**
+         * S3存储配置
+         */
+        S3 s3 = new S3();
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Executor {
+
+        /**
+         * 线程类型，默认使用平台线程；virtual和auto只让异步下载使用虚拟线程
+         */
+        ExecutorType type = ExecutorType.PLATFORM;
+        /**
+         * 异步下载的超时时间，单位分钟
+         */
+        int asyncTimeout = 30;
+        /**
+         * 异步下载的最大线程数，超过后在队列中等待；使用虚拟线程时不限制
+         */
+        int requestThreads = 200;
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Cache {
+
+        /**
+         * 缓存文件的总大小上限，单位MB，0表示不缓存
+         */
+        int maxSize = 512;
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class S3 {
+
+        /**
+         * 服务地址，例如：http://localhost:9000
+         */
+        String endpoint;
+        /**
+         * 区域
+         */
+        String region = "us-east-1";
+        String bucket;
+        String accessKey;
+        String secretKey;
+        /**
+         * 对象名前缀，不能为空，清理过期文件时只处理前缀下的对象
+         */
+        String prefix = "excel-export/";
+        /**
+         * 节点标识，共用bucket的节点各不相同，默认为主机名
+         */
+        String node;
+        /**
+         * 分片上传的分片大小，单位MB，不能小于5
+         */
+        int partSize = 8;
+    }
+}
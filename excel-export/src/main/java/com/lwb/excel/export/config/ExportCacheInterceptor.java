@@ -0,0 +1,60 @@
+package com.lwb.excel.export.config;
+
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.lwb.excel.export.util.ExportCache;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Properties;
+
+/**
+ * 导出缓存失效拦截器
+ * </p>
+ * 通过MyBatis-Plus的mapper或service执行insert、update、delete后，以实体对应的表名使{@link ExportCache}失效；
+ * 在事务中执行时，事务提交后才失效，避免提交前重新生成的缓存读到旧数据
+ */
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class ExportCacheInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        String namespace = StringUtils.substringBeforeLast(((MappedStatement) invocation.getArgs()[0]).getId(), ".");
+        TableInfoHelper.getTableInfos().stream()
+            .filter(tableInfo -> namespace.equals(tableInfo.getCurrentNamespace()))
+            .map(TableInfo::getTableName)
+            .forEach(ExportCacheInterceptor::invalidate);
+        return result;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    private static void invalidate(String tableName) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ExportCache.invalidate(tableName);
+                }
+            });
+        } else {
+            ExportCache.invalidate(tableName);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.lwb.excel.export.config;
+
+import com.lwb.excel.export.annotation.Export;
+import com.lwb.excel.export.util.ExportRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 启动时注册所有bean中被{@link Export}标记的方法
+ * </p>
+ * 配置文件缺失或不完整时启动失败，而不是在导出时才发现
+ */
+public class ExportConfigRegistrar implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        ExportRegistry.register(AopUtils.getTargetClass(bean));
+        return bean;
+    }
+}
@@ -0,0 +1,39 @@
+package com.lwb.excel.export.config;
+
+import com.lwb.excel.export.annotation.Export;
+import com.lwb.excel.export.util.ExportRegistry;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 导出请求拦截器
+ * </p>
+ * 将被{@link Export}标记的处理方法绑定到当前线程，导出时不需要再遍历方法栈查找配置
+ */
+public class ExportHandlerInterceptor extends HandlerInterceptorAdapter {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && ((HandlerMethod) handler).hasMethodAnnotation(Export.class)) {
+            ExportRegistry.bind(((HandlerMethod) handler).getMethod());
+        }
+        return true;
+    }
+
+    /**
+     * 异步请求在处理方法返回后不会调用afterCompletion，需要在此解除绑定，
+     * 导出配置已在处理方法中获取，异步线程中不再读取
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ExportRegistry.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ExportRegistry.unbind();
+    }
+}
@@ -0,0 +1,51 @@
+package com.lwb.excel.export.controller;
+
+import com.lwb.excel.export.enums.ExportStatus;
+import com.lwb.excel.export.util.ExcelUtils;
+import com.lwb.excel.export.util.ExportJob;
+import com.lwb.excel.export.util.ExportJobs;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 异步导出任务的进度查询和下载
+ */
+@RequestMapping("/export/jobs")
+@RestController
+public class ExportJobController {
+
+    /**
+     * 查询导出进度
+     * @param id 任务id
+     * @return 任务状态、已写入行数、已输出字节数
+     */
+    @GetMapping("/{id}")
+    public ExportJob status(@PathVariable String id) {
+        return getJob(id);
+    }
+
+    /**
+     * 下载生成的文件，支持Range断点续传
+     * @param id 任务id
+     */
+    @GetMapping("/{id}/file")
+    public void download(@PathVariable String id, HttpServletResponse response, HttpServletRequest request) {
+        ExportJob job = getJob(id);
+        if (job.getStatus() != ExportStatus.FINISHED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "导出任务尚未完成");
+        }
+        ExcelUtils.download(job.getFileName(), job.getDownloadName(), response, request);
+    }
+
+    private ExportJob getJob(String id) {
+        return ExportJobs.get(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "导出任务不存在或已过期"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.lwb.excel.export.controller;
+
+import com.lwb.excel.export.annotation.Export;
+import com.lwb.excel.export.mapper.ClassesMapper;
+import com.lwb.excel.export.mapper.SchoolMapper;
+import com.lwb.excel.export.mapper.UserMapper;
+import com.lwb.excel.export.util.ExcelUtils;
+import com.lwb.excel.export.util.ExportJob;
+import com.lwb.excel.export.util.ExportRegistry;
+import com.lwb.excel.export.util.ExportSheet;
+import com.lwb.excel.export.util.PartitionedSource;
+import com.lwb.excel.export.util.RowSource;
+import com.lwb.excel.export.vo.UserVO;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+
+/**
+ * @author liuweibo
+ * @date 2019/8/14
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@RequestMapping("/user")
+@RestController
+public class UserController {
+
+    /**
+     * 分片查询时每个分片的主键跨度
+     */
+    static final long PARTITION_SIZE = 10000;
+    /**
+     * 分片查询时同时查询的分片数
+     */
+    static final int PARTITION_PARALLELISM = 4;
+
+    @Autowired
+    UserMapper userMapper;
+    @Autowired
+    ClassesMapper classesMapper;
+    @Autowired
+    SchoolMapper schoolMapper;
+
+    @GetMapping("/export/list")
+    @Export("user-list.yml")
+    public void exportList(HttpServletResponse response, HttpServletRequest request) {
+        ExcelUtils.download(RowSource.ofHandler(this.userMapper::streamUserList), response, request);
+    }
+
+    /**
+     * 异步下载，生成和写入在导出的请求线程池中执行，tomcat线程立即释放
+     */
+    @GetMapping("/export/list/async")
+    @Export("user-list.yml")
+    public StreamingResponseBody exportListAsync(HttpServletResponse response, HttpServletRequest request) {
+        return ExcelUtils.stream(RowSource.ofHandler(this.userMapper::streamUserList), response, request);
+    }
+
+    /**
+     * 按主键范围分片并行查询，查询与写入excel同时进行
+     */
+    @GetMapping("/export/list/partitioned")
+    @Export("user-list.yml")
+    public void exportListPartitioned(HttpServletResponse response, HttpServletRequest request) {
+        ExcelUtils.download(
+            PartitionedSource.byKeyRange(
+                this.userMapper.getMinUserId(),
+                this.userMapper.getMaxUserId(),
+                PARTITION_SIZE,
+                this.userMapper::getUserListByIdRange,
+                PARTITION_PARALLELISM
+            ),
+            response,
+            request
+        );
+    }
+
+    /**
+     * 异步导出，返回任务id，通过/export/jobs/{id}查询进度并下载
+     */
+    @PostMapping("/export/list/jobs")
+    @Export("user-list.yml")
+    public ExportJob submitList() {
+        return ExcelUtils.submit(RowSource.ofHandler(this.userMapper::streamUserList));
+    }
+
+    /**
+     * 增量导出，每个消费方只获取上次导出之后新增的用户
+     */
+    @GetMapping("/export/list/incremental")
+    @Export("user-list.yml")
+    public void exportListIncremental(@RequestParam String consumer, HttpServletResponse response, HttpServletRequest request) {
+        ExcelUtils.downloadIncremental(
+            consumer,
+            since -> RowSource.<UserVO>ofHandler(handler -> this.userMapper.streamUserListAfter((Long) since, handler)),
+            response,
+            request
+        );
+    }
+
+    /**
+     * 用户、班级、学校分别导出后打包成一个zip下载，各导出并行生成
+     */
+    @GetMapping("/export/batch")
+    public void exportBatch(HttpServletResponse response, HttpServletRequest request) {
+        ExcelUtils.downloadZip(
+            "用户导出",
+            Arrays.asList(
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "user-list.yml"),
+                    RowSource.ofHandler(this.userMapper::streamUserList)
+                ),
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "classes-list.yml"),
+                    RowSource.of(this.classesMapper.selectList(null))
+                ),
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "school-list.yml"),
+                    RowSource.of(this.schoolMapper.selectList(null))
+                )
+            ),
+            response,
+            request
+        );
+    }
+
+    /**
+     * 用户、班级、学校分别导出到同一个excel的不同sheet，各sheet并行生成
+     */
+    @GetMapping("/export/overview")
+    public void exportOverview(HttpServletResponse response, HttpServletRequest request) {
+        ExcelUtils.download(
+            "用户概览",
+            Arrays.asList(
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "user-list.yml"),
+                    RowSource.ofHandler(this.userMapper::streamUserList)
+                ),
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "classes-list.yml"),
+                    RowSource.of(this.classesMapper.selectList(null))
+                ),
+                ExportSheet.of(
+                    ExportRegistry.get(UserController.class, "school-list.yml"),
+                    RowSource.of(this.schoolMapper.selectList(null))
+                )
+            ),
+            response,
+            request
+        );
+    }
+}
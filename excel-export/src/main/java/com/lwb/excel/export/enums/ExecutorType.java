@@ -0,0 +1,20 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 导出线程类型
+ */
+public enum ExecutorType {
+
+    /**
+     * 平台线程
+     */
+    PLATFORM,
+    /**
+     * 异步下载使用虚拟线程，需要jdk21及以上，向慢速客户端写入时不占用平台线程；导出的生成仍使用平台线程
+     */
+    VIRTUAL,
+    /**
+     * jdk支持虚拟线程时同{@link #VIRTUAL}，否则同{@link #PLATFORM}
+     */
+    AUTO
+}
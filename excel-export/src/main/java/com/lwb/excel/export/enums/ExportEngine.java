@@ -0,0 +1,16 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * xlsx的生成方式
+ */
+public enum ExportEngine {
+
+    /**
+     * 使用POI的SXSSF生成，支持共享字符串表和多sheet并行生成
+     */
+    SXSSF,
+    /**
+     * 不经过POI的单元格对象，直接将sheet的xml写入压缩流，逐行写入时几乎不创建对象
+     */
+    DIRECT
+}
@@ -0,0 +1,13 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 导出任务优先级
+ * </p>
+ * 小数据量的导出使用高优先级，避免被大数据量的导出长时间阻塞
+ */
+public enum ExportPriority {
+
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,32 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 导出的各个阶段，用于统计每个阶段的耗时
+ */
+public enum ExportStage {
+
+    /**
+     * 在调度器中排队等待执行
+     */
+    QUEUE,
+    /**
+     * 从数据源读取数据，即数据源推送相邻两行之间的时间
+     */
+    FETCH,
+    /**
+     * 取字段值并写入单元格，包括SXSSF行窗口写入临时文件
+     */
+    RENDER,
+    /**
+     * xlsx打包写入输出流，SXSSF为工作簿写入输出流，DIRECT为写入sheet结尾和其他文件
+     */
+    FLUSH,
+    /**
+     * 生成并输出整个文件，包括以上除排队外的所有阶段
+     */
+    GENERATE,
+    /**
+     * 将已生成的文件写入响应流
+     */
+    TRANSFER
+}
@@ -0,0 +1,24 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 异步导出任务状态
+ */
+public enum ExportStatus {
+
+    /**
+     * 排队中
+     */
+    QUEUED,
+    /**
+     * 生成中
+     */
+    RUNNING,
+    /**
+     * 已完成，可以下载
+     */
+    FINISHED,
+    /**
+     * 生成失败
+     */
+    FAILED
+}
@@ -0,0 +1,71 @@
+package com.lwb.excel.export.enums;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 文件后缀
+ * @author liuweibo
+ * @date 2019/8/15
+ */
+public enum FileType {
+
+    XLS("xls", "application/vnd.ms-excel", null),
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", null),
+    CSV("csv", "text/csv;charset=UTF-8", ','),
+    TSV("tsv", "text/tab-separated-values;charset=UTF-8", '\t'),
+    /**
+     * 多个导出打包下载
+     */
+    ZIP("zip", "application/zip", null);
+
+    private String suffix;
+    private String contentType;
+    /**
+     * 文本格式的字段分隔符，excel格式为null
+     */
+    private Character delimiter;
+
+    FileType(String suffix, String contentType, Character delimiter) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+        this.delimiter = delimiter;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Character getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * 是否是按分隔符分隔的文本格式
+     */
+    public boolean isDelimited() {
+        return delimiter != null;
+    }
+
+    /**
+     * 是否可以作为单个导出的格式
+     */
+    public boolean isExportable() {
+        return this == XLSX || isDelimited();
+    }
+
+    /**
+     * 根据后缀获取文件类型，忽略大小写
+     * @param suffix 后缀
+     * @return 文件类型
+     */
+    public static Optional<FileType> of(String suffix) {
+        return Arrays.stream(values())
+            .filter(type -> type.suffix.equalsIgnoreCase(suffix))
+            .findFirst();
+    }
+}
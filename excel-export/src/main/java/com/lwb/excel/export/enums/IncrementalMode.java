@@ -0,0 +1,16 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 增量导出方式
+ */
+public enum IncrementalMode {
+
+    /**
+     * 只导出上次导出之后的新数据
+     */
+    DELTA,
+    /**
+     * 新数据追加到上次导出的文件末尾，返回完整的文件，只支持csv、tsv
+     */
+    APPEND
+}
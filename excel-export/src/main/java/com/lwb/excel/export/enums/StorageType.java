@@ -0,0 +1,16 @@
+package com.lwb.excel.export.enums;
+
+/**
+ * 导出文件存储类型
+ */
+public enum StorageType {
+
+    /**
+     * 本地磁盘
+     */
+    LOCAL,
+    /**
+     * S3兼容的对象存储，多个节点共用
+     */
+    S3
+}
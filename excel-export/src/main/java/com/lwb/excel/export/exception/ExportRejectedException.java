@@ -0,0 +1,15 @@
+package com.lwb.excel.export.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 导出任务被拒绝，排队已满或内存预算不足
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ExportRejectedException extends UtilException {
+
+    public ExportRejectedException(String message) {
+        super(message);
+    }
+}
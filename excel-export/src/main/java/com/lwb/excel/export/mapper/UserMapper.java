@@ -0,0 +1,45 @@
+package com.lwb.excel.export.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lwb.excel.export.entity.User;
+import com.lwb.excel.export.vo.UserVO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
+
+/**
+ *  Mapper 接口
+ * @author liuweibo
+ * @date 2019/08/15
+ */
+public interface UserMapper extends BaseMapper<User> {
+
+    List<UserVO> getUserList();
+
+    /**
+     * 流式查询用户列表，每返回一行回调一次handler
+     * @param handler 结果处理器
+     */
+    void streamUserList(ResultHandler<UserVO> handler);
+
+    /**
+     * 查询主键范围内的用户列表，按主键排序
+     * @param from 起始主键（包含）
+     * @param to   结束主键（不包含）
+     * @return
+     */
+    List<UserVO> getUserListByIdRange(@Param("from") Long from, @Param("to") Long to);
+
+    /**
+     * 流式查询主键大于since的用户，按主键排序，用于增量导出
+     * @param since   上次导出的最大主键，为null时查询全部
+     * @param handler 结果处理器
+     */
+    void streamUserListAfter(@Param("since") Long since, ResultHandler<UserVO> handler);
+
+    Long getMinUserId();
+
+    Long getMaxUserId();
+
+}
@@ -0,0 +1,168 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static com.lwb.excel.export.util.ExcelUtils.Constant.HH_MM_SS;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD_HH_MM_SS;
+
+/**
+ * 按值的类型写入单元格
+ * </p>
+ * 数字写成数值，布尔写成布尔值，日期写成带格式的日期，其他类型写成字符串。
+ * 日期、数字格式和对齐方式的样式从{@link StylePool}获取，同一个工作簿中相同样式只创建一次；
+ * 可以被同一工作簿中并行生成的多个sheet共用
+ */
+final class CellWriter {
+
+    /**
+     * excel数值的有效精度为15位，超过的整数写成字符串，避免精度丢失
+     */
+    static final long MAX_EXACT_NUMBER = 999_999_999_999_999L;
+    static final int MAX_PRECISION = 15;
+
+    /**
+     * excel日期序列号的起点，1900-03-01之后的日期可以直接按天数计算
+     */
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+    static final LocalDate EXCEL_MIN_DATE = LocalDate.of(1900, 3, 1);
+    private static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final StylePool styles;
+    private final boolean date1904;
+
+    CellWriter(StylePool styles) {
+        Workbook book = styles.getBook();
+        this.styles = styles;
+        this.date1904 = book instanceof SXSSFWorkbook && ((SXSSFWorkbook) book).getXSSFWorkbook().isDate1904();
+    }
+
+    /**
+     * 写入单元格的值
+     * @param cell    单元格
+     * @param value   值，为null时保留空白单元格
+     * @param pattern 日期或数字格式，为null时日期使用默认格式，数字使用常规格式
+     * @param align   水平对齐方式，为null时使用默认对齐方式
+     */
+    void write(Cell cell, Object value, String pattern, HorizontalAlignment align) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            writeNumber(cell, (Number) value);
+            setStyle(cell, pattern, align);
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+            setStyle(cell, null, align);
+        } else if (value instanceof Date) {
+            double date = DateUtil.getExcelDate((Date) value, this.date1904);
+            if (date < 0) {
+                // excel无法表示的日期写成字符串
+                cell.setCellValue(dateString((Date) value));
+                setStyle(cell, null, align);
+                return;
+            }
+            cell.setCellValue(date);
+            setStyle(cell, pattern == null ? YYYY_MM_DD_HH_MM_SS : pattern, align);
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            writeDate(cell, dateTime.toLocalDate(), dateTime.toLocalTime(), pattern == null ? YYYY_MM_DD_HH_MM_SS : pattern, align);
+        } else if (value instanceof LocalDate) {
+            writeDate(cell, (LocalDate) value, LocalTime.MIDNIGHT, pattern == null ? YYYY_MM_DD : pattern, align);
+        } else if (value instanceof LocalTime) {
+            cell.setCellValue(fractionOfDay((LocalTime) value));
+            setStyle(cell, pattern == null ? HH_MM_SS : pattern, align);
+        } else {
+            cell.setCellValue(String.valueOf(value));
+            setStyle(cell, null, align);
+        }
+    }
+
+    private void writeNumber(Cell cell, Number number) {
+        if (number instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) number;
+            if (decimal.precision() <= MAX_PRECISION) {
+                cell.setCellValue(decimal.doubleValue());
+            } else {
+                cell.setCellValue(decimal.toPlainString());
+            }
+        } else if (number instanceof BigInteger) {
+            BigInteger integer = (BigInteger) number;
+            if (integer.bitLength() < Long.SIZE && Math.abs(integer.longValue()) <= MAX_EXACT_NUMBER) {
+                cell.setCellValue(integer.doubleValue());
+            } else {
+                cell.setCellValue(integer.toString());
+            }
+        } else if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                cell.setCellValue(String.valueOf(number));
+            } else {
+                cell.setCellValue(d);
+            }
+        } else {
+            long l = number.longValue();
+            if (Math.abs(l) <= MAX_EXACT_NUMBER) {
+                cell.setCellValue(l);
+            } else {
+                cell.setCellValue(String.valueOf(l));
+            }
+        }
+    }
+
+    /**
+     * 写入日期，直接计算excel日期序列号，不经过时区转换
+     */
+    private void writeDate(Cell cell, LocalDate date, LocalTime time, String pattern, HorizontalAlignment align) {
+        if (date.isBefore(EXCEL_MIN_DATE)) {
+            cell.setCellValue(date.atTime(time).toString());
+            setStyle(cell, null, align);
+            return;
+        }
+        cell.setCellValue(excelDate(date, time));
+        setStyle(cell, pattern, align);
+    }
+
+    /**
+     * 计算excel日期序列号，只适用于{@link #EXCEL_MIN_DATE}之后的日期
+     */
+    static double excelDate(LocalDate date, LocalTime time) {
+        return ChronoUnit.DAYS.between(EXCEL_EPOCH, date) + fractionOfDay(time);
+    }
+
+    /**
+     * excel无法表示的日期（1900年之前）按系统时区写成字符串，格式与{@link LocalDateTime#toString()}相同
+     */
+    static String dateString(Date date) {
+        // java.sql.Date不支持toInstant
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toString();
+    }
+
+    static double fractionOfDay(LocalTime time) {
+        return time.toNanoOfDay() / 1_000_000_000d / SECONDS_PER_DAY;
+    }
+
+    /**
+     * 设置单元格样式，格式和对齐方式都为null时使用默认样式
+     */
+    private void setStyle(Cell cell, String pattern, HorizontalAlignment align) {
+        StyleSpec spec = StyleSpec.of(pattern, align);
+        if (spec != null) {
+            cell.setCellStyle(this.styles.get(spec));
+        }
+    }
+}
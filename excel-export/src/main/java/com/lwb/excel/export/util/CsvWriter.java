@@ -0,0 +1,238 @@
+package com.lwb.excel.export.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.lwb.excel.export.util.ExcelUtils.Constant.HH_MM_SS;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD_HH_MM_SS;
+
+/**
+ * 按分隔符写入文本文件，用于csv、tsv导出
+ * </p>
+ * 字段先写入可复用的字符缓冲区，满后再写入底层输出；
+ * 按RFC 4180转义：包含分隔符、双引号或换行的字段用双引号包裹，字段内的双引号写两次，行以CRLF结束。
+ * 整数和字符串直接写入缓冲区，不产生中间字符串；日期格式使用{@link ExportFormatters}中缓存的格式化器。
+ * 非线程安全，每次导出使用一个实例
+ */
+final class CsvWriter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final char QUOTE = '"';
+    private static final char CR = '\r';
+    private static final char LF = '\n';
+    /**
+     * long的最大位数，包括负号
+     */
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final Writer out;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    /**
+     * 当前行是否还没有写入字段
+     */
+    private boolean rowStart = true;
+
+    /**
+     * 数字格式 -> 格式化器，DecimalFormat不是线程安全的，每个实例单独持有
+     */
+    private final Map<String, DecimalFormat> numberFormats = new HashMap<>();
+    /**
+     * 格式化日期、数字时复用的缓冲区
+     */
+    private final StringBuffer numberText = new StringBuffer();
+    private final StringBuilder dateText = new StringBuilder();
+    private final FieldPosition fieldPosition = new FieldPosition(0);
+
+    CsvWriter(Writer out, char delimiter) {
+        this.out = out;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 按值的类型写入一个字段
+     * @param value   值，null写成空字段
+     * @param pattern 日期或数字格式，为null时日期使用默认格式，数字不格式化
+     */
+    void write(Object value, String pattern) {
+        startField();
+        if (value == null) {
+            return;
+        }
+        if (pattern != null && value instanceof Number) {
+            DecimalFormat format = this.numberFormats.computeIfAbsent(pattern, ExportFormatters::numberFormat);
+            this.numberText.setLength(0);
+            format.format(value, this.numberText, this.fieldPosition);
+            writeEscaped(this.numberText);
+        } else if (value instanceof CharSequence) {
+            writeEscaped((CharSequence) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof BigDecimal) {
+            writeEscaped(((BigDecimal) value).toPlainString());
+        } else if (value instanceof BigInteger) {
+            writeEscaped(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            // 避免写成科学计数法
+            writeEscaped(Double.isFinite(number) ? BigDecimal.valueOf(number).toPlainString() : value.toString());
+        } else if (value instanceof Date) {
+            this.dateText.setLength(0);
+            ExportFormatters.dateFormat(pattern == null ? YYYY_MM_DD_HH_MM_SS : pattern).format((Date) value, this.dateText);
+            writeEscaped(this.dateText);
+        } else if (value instanceof TemporalAccessor) {
+            DateTimeFormatter formatter = ExportFormatters.dateTimeFormatter(pattern == null ? defaultPattern(value) : pattern);
+            this.dateText.setLength(0);
+            formatter.formatTo((TemporalAccessor) value, this.dateText);
+            writeEscaped(this.dateText);
+        } else {
+            writeEscaped(value.toString());
+        }
+    }
+
+    /**
+     * 结束当前行
+     */
+    void endRow() {
+        ensure(2);
+        this.buffer[this.position++] = CR;
+        this.buffer[this.position++] = LF;
+        this.rowStart = true;
+    }
+
+    /**
+     * 将缓冲区写入底层输出并刷新
+     */
+    void flush() {
+        flushBuffer();
+        try {
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void startField() {
+        if (this.rowStart) {
+            this.rowStart = false;
+        } else {
+            ensure(1);
+            this.buffer[this.position++] = this.delimiter;
+        }
+    }
+
+    /**
+     * 写入字段，需要时加双引号转义
+     */
+    private void writeEscaped(CharSequence text) {
+        int length = text.length();
+        boolean quote = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == this.delimiter || c == QUOTE || c == CR || c == LF) {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            writeRaw(text, length);
+            return;
+        }
+        ensure(1);
+        this.buffer[this.position++] = QUOTE;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            ensure(2);
+            if (c == QUOTE) {
+                this.buffer[this.position++] = QUOTE;
+            }
+            this.buffer[this.position++] = c;
+        }
+        ensure(1);
+        this.buffer[this.position++] = QUOTE;
+    }
+
+    private void writeRaw(CharSequence text, int length) {
+        int offset = 0;
+        while (offset < length) {
+            if (this.position == this.buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(length - offset, this.buffer.length - this.position);
+            if (text instanceof String) {
+                ((String) text).getChars(offset, offset + count, this.buffer, this.position);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    this.buffer[this.position + i] = text.charAt(offset + i);
+                }
+            }
+            this.position += count;
+            offset += count;
+        }
+    }
+
+    /**
+     * 将整数的每一位直接写入缓冲区
+     */
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(Long.toString(value), MAX_LONG_LENGTH);
+            return;
+        }
+        ensure(MAX_LONG_LENGTH);
+        if (value < 0) {
+            this.buffer[this.position++] = '-';
+            value = -value;
+        }
+        int start = this.position;
+        do {
+            this.buffer[this.position++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // 反转数字
+        for (int i = start, j = this.position - 1; i < j; i++, j--) {
+            char c = this.buffer[i];
+            this.buffer[i] = this.buffer[j];
+            this.buffer[j] = c;
+        }
+    }
+
+    private void ensure(int length) {
+        if (this.position + length > this.buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        try {
+            this.out.write(this.buffer, 0, this.position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.position = 0;
+    }
+
+    private static String defaultPattern(Object value) {
+        if (value instanceof LocalDate) {
+            return YYYY_MM_DD;
+        }
+        if (value instanceof LocalTime) {
+            return HH_MM_SS;
+        }
+        return YYYY_MM_DD_HH_MM_SS;
+    }
+}
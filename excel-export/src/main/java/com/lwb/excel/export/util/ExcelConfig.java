@@ -0,0 +1,338 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportEngine;
+import com.lwb.excel.export.enums.ExportPriority;
+import com.lwb.excel.export.enums.FileType;
+import com.lwb.excel.export.enums.IncrementalMode;
+import com.lwb.excel.export.exception.UtilException;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @author liuweibo
+ * @date 2019/8/14
+ */
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ExcelConfig implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * xlsx的最大列宽，单位为字符数
+     */
+    private static final int MAX_COLUMN_WIDTH = 255;
+    /**
+     * 导出名称，用于区分不同的导出，不设置时使用文件名
+     */
+    String name;
+    /**
+     * 导出文件名
+     */
+    String fileName;
+    /**
+     * sheet名称，不设置时使用默认名称
+     * </p>
+     * 超过每个sheet的最大行数后创建的sheet依次命名为：名称(2)、名称(3)...
+     */
+    String sheetName;
+    /**
+     * 冻结规则
+     * </p>
+     * 例如：0,2,1,2表示冻结两行，首行可见序号为2
+     * 第一个数：冻结几列
+     * 第二个数：冻结几行
+     * 第三个数：首列可见序号，从1开始
+     * 第三个数：首行可见序号，从1开始
+     */
+    String freezePaneIndex;
+    /**
+     * 表头信息
+     * </p>
+     * 支持多行表头
+     */
+    List<List<Header>> headers;
+    /**
+     * 字段名称
+     */
+    List<String> fields;
+    /**
+     * 导出格式，支持xlsx、csv、tsv，不设置时为xlsx
+     * </p>
+     * 直接下载时可以通过请求参数format覆盖
+     */
+    FileType fileType;
+    /**
+     * xlsx的生成方式，不设置时为SXSSF
+     */
+    ExportEngine engine;
+    /**
+     * 字符串是否写入共享字符串表
+     * </p>
+     * 默认写成内联字符串，不在内存中维护共享字符串表；
+     * 重复值很多的导出可以开启，以减小文件大小
+     */
+    Boolean sharedStrings;
+    /**
+     * 每个sheet的最大行数（包括表头），超过后自动创建新的sheet继续写入
+     * </p>
+     * 不设置时使用xlsx的最大行数1048576
+     */
+    Integer maxRowsPerSheet;
+    /**
+     * SXSSF在内存中保留的行数，超过后写入临时文件，-1表示不限制，不设置时使用全局默认值
+     */
+    Integer windowSize;
+    /**
+     * 每写入多少行数据将内存中的行写入临时文件，0表示只按行窗口写入，不设置时使用全局默认值
+     * </p>
+     * 行窗口不限制（-1）时用于控制内存占用
+     */
+    Integer flushInterval;
+    /**
+     * SXSSF的临时文件是否压缩，不设置时使用全局默认值
+     */
+    Boolean compressTempFiles;
+    /**
+     * SXSSF临时文件的磁盘配额，单位MB，超过后终止导出，0表示不限制，不设置时使用全局默认值
+     */
+    Integer tempQuota;
+    /**
+     * 导出任务优先级，小数据量的导出设置为HIGH，大数据量的导出设置为LOW
+     */
+    ExportPriority priority;
+    /**
+     * 导出任务占用的内存预算，单位MB，不设置时使用全局默认值
+     */
+    Integer memoryBudget;
+    /**
+     * 导出结果的缓存有效期，单位分钟，不设置或为0时不缓存
+     * </p>
+     * 相同配置、相同请求参数的下载直接返回缓存的文件，导出数据与当前登录用户相关时不要开启
+     */
+    Integer cacheTtl;
+    /**
+     * 导出数据所在的表，这些表有写操作时缓存失效
+     */
+    List<String> cacheTags;
+    /**
+     * 增量导出的水位字段，例如id、更新时间，字段值必须可比较且随数据新增或修改递增
+     * </p>
+     * 按消费方记录上次导出的最大值，下次只查询大于该值的数据
+     */
+    String watermark;
+    /**
+     * 增量导出的水位回退量，查询时从上次的水位回退该值，用于补上提交较晚、水位较小的数据，例如自增主键或更新时间
+     * </p>
+     * 数值水位按数值回退，时间水位按秒回退；回退范围内已导出的数据会再次导出，消费方需要按主键去重，只支持DELTA方式
+     */
+    Long watermarkOverlap;
+    /**
+     * 增量导出方式，不设置时为DELTA
+     */
+    IncrementalMode incrementalMode;
+    /**
+     * 字段格式，key为字段名称
+     * </p>
+     * 优先于字段上JsonFormat注解的格式
+     */
+    Map<String, FieldFormat> formats;
+    /**
+     * 编译后的布局，校验配置时编译，表头、字段、格式或冻结规则被替换后重新编译
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    transient volatile ExcelLayout layout;
+    /**
+     * xlsx模板文件，相对于配置文件所在的类，以/开头时为classpath中的路径
+     * </p>
+     * 模板中的内容原样保留，数据从标记行开始写入，设置模板时固定使用DIRECT生成，engine、sharedStrings以及SXSSF的设置不生效；
+     * csv、tsv、多sheet导出以及超过每个sheet的最大行数后创建的sheet仍使用headers
+     */
+    String template;
+    /**
+     * 模板中数据开始行的标记，标记所在单元格的内容与之完全相同，不设置时为${data}
+     */
+    String templateMarker;
+    /**
+     * 已加载的模板
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    transient volatile ExcelTemplate excelTemplate;
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static class Header implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        /**
+         * 表头名称
+         */
+        String name;
+        /**
+         * 单元格合并规则
+         * </p>
+         * 例如：1,2,3,4表示合并单元格第一行和第二行的第三列和第四列
+         */
+        String mergeIndex;
+    }
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static class FieldFormat implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        /**
+         * 格式，日期字段为日期格式，例如：yyyy/MM/dd；数字字段为数字格式，例如：#,##0.00
+         * </p>
+         * xlsx写成单元格的格式，值仍为日期或数字；csv、tsv按格式写成文本
+         */
+        String pattern;
+        /**
+         * 值对应的名称，枚举按name()匹配，其他类型按toString()匹配，例如：{ENABLED: 启用, DISABLED: 禁用}
+         */
+        Map<String, String> labels;
+        /**
+         * 字段值转换器，{@link ValueConverter}实现类的全限定名，在labels之前转换
+         */
+        String converter;
+        /**
+         * 水平对齐方式，例如：RIGHT，只用于xlsx
+         */
+        HorizontalAlignment align;
+        /**
+         * 列宽，单位为字符数，只用于xlsx，不设置时使用默认列宽
+         */
+        Integer width;
+    }
+
+    public int getMaxRowsPerSheet() {
+        return Optional.ofNullable(this.maxRowsPerSheet)
+            .map(rows -> Math.min(rows, SpreadsheetVersion.EXCEL2007.getMaxRows()))
+            .orElse(SpreadsheetVersion.EXCEL2007.getMaxRows());
+    }
+
+    public ExportEngine getEngine() {
+        return Optional.ofNullable(this.engine).orElse(ExportEngine.SXSSF);
+    }
+
+    public FileType getFileType() {
+        return Optional.ofNullable(this.fileType).orElse(FileType.XLSX);
+    }
+
+    public IncrementalMode getIncrementalMode() {
+        return Optional.ofNullable(this.incrementalMode).orElse(IncrementalMode.DELTA);
+    }
+
+    public String getName() {
+        return StringUtils.defaultIfEmpty(this.name, this.fileName);
+    }
+
+    /**
+     * 编译后的布局，没有编译或配置已被替换时重新编译
+     * </p>
+     * 并发编译时可能编译多次，结果相同，任意一个都可以使用
+     * @return 导出布局
+     */
+    ExcelLayout getLayout() {
+        ExcelLayout compiled = this.layout;
+        if (compiled == null || !compiled.isCompiledFrom(this)) {
+            compiled = ExcelLayout.compile(this);
+            this.layout = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * 已加载的模板
+     * @return 没有配置模板时返回null
+     */
+    ExcelTemplate getExcelTemplate() {
+        return this.excelTemplate;
+    }
+
+    /**
+     * 加载模板，没有配置模板时不加载
+     * @param base 配置文件所在的类，模板路径相对于该类；为null时模板路径为classpath中的路径
+     */
+    void loadTemplate(Class<?> base) {
+        if (StringUtils.isEmpty(this.template)) {
+            this.excelTemplate = null;
+            return;
+        }
+        URL url = base != null
+            ? base.getResource(this.template)
+            : Thread.currentThread().getContextClassLoader().getResource(StringUtils.removeStart(this.template, "/"));
+        this.excelTemplate = ExcelTemplate.load(
+            Optional.ofNullable(url).orElseThrow(() -> new UtilException(String.format("没有找到导出模板%s", this.template))),
+            StringUtils.defaultIfEmpty(this.templateMarker, ExcelTemplate.DEFAULT_MARKER)
+        );
+    }
+
+    /**
+     * 校验配置的完整性
+     */
+    public void validate() {
+        Optional.ofNullable(this)
+            .filter(config -> CollectionUtils.isNotEmpty(this.getHeaders()))
+            .filter(config -> CollectionUtils.isNotEmpty(this.getFields()))
+            .filter(config -> StringUtils.isNotEmpty(this.fileName))
+            .orElseThrow(() -> new UtilException("导出excel配置信息不完整"));
+        if (!this.getFileType().isExportable()) {
+            throw new UtilException("不支持的导出格式：" + this.getFileType().getSuffix());
+        }
+        if (this.getMaxRowsPerSheet() <= this.headers.size()) {
+            throw new UtilException("每个sheet的最大行数必须大于表头行数");
+        }
+        if (this.formats != null) {
+            this.formats.keySet().stream()
+                .filter(field -> !this.fields.contains(field))
+                .findAny()
+                .ifPresent(field -> {
+                    throw new UtilException(String.format("字段格式中的%s不是导出字段", field));
+                });
+            this.formats.forEach((field, format) -> Optional.ofNullable(format.getWidth())
+                .filter(width -> width <= 0 || width > MAX_COLUMN_WIDTH)
+                .ifPresent(width -> {
+                    throw new UtilException(String.format("字段%s的列宽必须在1到%d之间", field, MAX_COLUMN_WIDTH));
+                }));
+            this.formats.forEach((field, format) -> Optional.ofNullable(format.getPattern())
+                .filter(StringUtils::isNotEmpty)
+                .ifPresent(pattern -> {
+                    try {
+                        ExportFormatters.compile(pattern);
+                    } catch (IllegalArgumentException e) {
+                        throw new UtilException(String.format("字段%s的格式%s无效：%s", field, pattern, e.getMessage()));
+                    }
+                }));
+        }
+        // 编译布局，合并规则、冻结规则、转换器配置错误时在加载配置时报错
+        getLayout();
+        if (StringUtils.isNotEmpty(this.template) && this.excelTemplate == null) {
+            loadTemplate(null);
+        }
+        if (this.excelTemplate != null && this.getMaxRowsPerSheet() <= this.excelTemplate.getDataRow()) {
+            throw new UtilException("每个sheet的最大行数必须大于模板中数据开始的行号");
+        }
+    }
+
+}
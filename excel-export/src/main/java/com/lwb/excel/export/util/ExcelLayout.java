@@ -0,0 +1,277 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.lwb.excel.export.util.ExcelUtils.Constant.COMMA;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.HEADER_SEPARATOR;
+
+/**
+ * 编译后的导出布局
+ * </p>
+ * 导出配置中的表头、合并规则、冻结规则、字段格式和列宽在加载配置时解析并校验一次，
+ * 每次导出直接按布局绘制，不再重复拆分字符串；布局不可变，多个导出线程共用。
+ * 参见{@link ExcelConfig#getLayout()}
+ */
+final class ExcelLayout {
+
+    /**
+     * 编译时的配置项，配置项被替换后重新编译
+     */
+    private final List<List<ExcelConfig.Header>> sourceHeaders;
+    private final List<String> sourceFields;
+    private final Map<String, ExcelConfig.FieldFormat> sourceFormats;
+    private final String sourceFreezePane;
+
+    private final List<String> fields;
+    /**
+     * 表头名称，行 -> 列，没有表头的单元格为null
+     */
+    private final String[][] headers;
+    private final CellRangeAddress[] mergedRegions;
+    private final int[] freezePane;
+    private final List<String> flattenedHeaders;
+    private final FieldFormats formats;
+    /**
+     * 数据类型 -> 每一列的取值器
+     */
+    private final ConcurrentMap<Class<?>, FieldAccessor[]> accessors = new ConcurrentHashMap<>();
+
+    private ExcelLayout(ExcelConfig config, String[][] headers, CellRangeAddress[] mergedRegions, int[] freezePane) {
+        this.sourceHeaders = config.getHeaders();
+        this.sourceFields = config.getFields();
+        this.sourceFormats = config.getFormats();
+        this.sourceFreezePane = config.getFreezePaneIndex();
+        this.fields = Collections.unmodifiableList(new ArrayList<>(config.getFields()));
+        this.headers = headers;
+        this.mergedRegions = mergedRegions;
+        this.freezePane = freezePane;
+        this.flattenedHeaders = Collections.unmodifiableList(flatten(headers, mergedRegions));
+        this.formats = FieldFormats.of(config);
+    }
+
+    /**
+     * 编译导出配置
+     * </p>
+     * 合并规则格式错误、合并单元格超出表头或相互重叠、表头列数与字段数不一致、冻结规则格式错误时抛出异常
+     * @param config 导出配置，表头和字段不能为空
+     * @return 导出布局
+     */
+    static ExcelLayout compile(ExcelConfig config) {
+        List<List<ExcelConfig.Header>> headers = config.getHeaders();
+        int columns = config.getFields().size();
+
+        List<CellRangeAddress> regions = new ArrayList<>();
+        int headerColumns = 0;
+        for (List<ExcelConfig.Header> row : headers) {
+            headerColumns = Math.max(headerColumns, row.size());
+            for (ExcelConfig.Header header : row) {
+                if (StringUtils.isEmpty(header.getMergeIndex())) {
+                    continue;
+                }
+                CellRangeAddress region = mergedRegion(header);
+                if (region.getLastRow() >= headers.size()) {
+                    throw new UtilException(String.format("表头%s的合并单元格超出表头行", header.getName()));
+                }
+                regions.stream()
+                    .filter(region::intersects)
+                    .findAny()
+                    .ifPresent(other -> {
+                        throw new UtilException(String.format("表头合并单元格%s与%s重叠",
+                            region.formatAsString(), other.formatAsString()));
+                    });
+                regions.add(region);
+                headerColumns = Math.max(headerColumns, region.getLastColumn() + 1);
+            }
+        }
+        if (headerColumns != columns) {
+            throw new UtilException(String.format("表头列数%d与字段数%d不一致", headerColumns, columns));
+        }
+
+        String[][] names = new String[headers.size()][columns];
+        for (int i = 0; i < headers.size(); i++) {
+            List<ExcelConfig.Header> row = headers.get(i);
+            for (int j = 0; j < row.size(); j++) {
+                names[i][j] = row.get(j).getName();
+            }
+        }
+        return new ExcelLayout(config, names, regions.toArray(new CellRangeAddress[0]), freezePane(config));
+    }
+
+    /**
+     * 布局是否由配置当前的表头、字段、格式和冻结规则编译
+     * </p>
+     * 只比较是否为同一个对象，修改配置时替换整个列表，不要修改列表中的元素
+     */
+    boolean isCompiledFrom(ExcelConfig config) {
+        return this.sourceHeaders == config.getHeaders()
+            && this.sourceFields == config.getFields()
+            && this.sourceFormats == config.getFormats()
+            && Objects.equals(this.sourceFreezePane, config.getFreezePaneIndex());
+    }
+
+    /**
+     * 表头行数
+     */
+    int getHeaderRows() {
+        return this.headers.length;
+    }
+
+    /**
+     * 列数，与字段数相同
+     */
+    int getColumns() {
+        return this.fields.size();
+    }
+
+    /**
+     * 表头名称
+     * @param row    表头行号，从0开始
+     * @param column 列号，从0开始
+     * @return 没有表头或被合并的单元格返回null
+     */
+    String getHeader(int row, int column) {
+        return this.headers[row][column];
+    }
+
+    /**
+     * 表头合并的单元格，已校验不重叠且不超出表头
+     * @return 每次返回新的对象，调用方可以修改
+     */
+    List<CellRangeAddress> getMergedRegions() {
+        List<CellRangeAddress> regions = new ArrayList<>(this.mergedRegions.length);
+        for (CellRangeAddress region : this.mergedRegions) {
+            regions.add(region.copy());
+        }
+        return regions;
+    }
+
+    /**
+     * 冻结规则
+     * @return 冻结几列、冻结几行、首列可见序号、首行可见序号
+     */
+    int[] getFreezePane() {
+        return this.freezePane.clone();
+    }
+
+    /**
+     * 多行表头合并为一行后每个字段对应的表头，用于csv、tsv
+     */
+    List<String> getFlattenedHeaders() {
+        return this.flattenedHeaders;
+    }
+
+    /**
+     * 字段格式
+     */
+    FieldFormats getFormats() {
+        return this.formats;
+    }
+
+    /**
+     * 数据类型每一列的取值器，按类型编译一次
+     * @param clazz 数据类型
+     * @return 与字段一一对应
+     */
+    FieldAccessor[] accessors(Class<?> clazz) {
+        FieldAccessor[] bound = this.accessors.get(clazz);
+        return bound != null ? bound : this.accessors.computeIfAbsent(clazz, c -> FieldAccessor.of(c, this.fields));
+    }
+
+    /**
+     * 解析合并规则
+     * @param header 表头
+     * @return 合并的单元格
+     */
+    private static CellRangeAddress mergedRegion(ExcelConfig.Header header) {
+        int[] index = parse(header.getMergeIndex());
+        if (index == null || index.length != 4 || index[0] > index[1] || index[2] > index[3]) {
+            throw new UtilException(String.format("表头%s的合并规则%s格式错误", header.getName(), header.getMergeIndex()));
+        }
+        CellRangeAddress region = new CellRangeAddress(index[0], index[1], index[2], index[3]);
+        if (region.getNumberOfCells() < 2) {
+            throw new UtilException(String.format("表头%s的合并单元格至少包含两个单元格", header.getName()));
+        }
+        return region;
+    }
+
+    /**
+     * 解析冻结规则
+     * @param config 导出配置
+     * @return 冻结几列、冻结几行、首列可见序号、首行可见序号，没有配置时默认冻结表头行
+     */
+    private static int[] freezePane(ExcelConfig config) {
+        String freezePaneIndex = config.getFreezePaneIndex();
+        if (StringUtils.isEmpty(freezePaneIndex)) {
+            // 默认冻结表头行数
+            return new int[]{0, config.getHeaders().size(), 0, config.getHeaders().size()};
+        }
+        int[] pane = parse(freezePaneIndex);
+        if (pane == null || pane.length != 4) {
+            throw new UtilException(String.format("冻结规则%s格式错误", freezePaneIndex));
+        }
+        return pane;
+    }
+
+    /**
+     * 解析逗号分隔的非负整数
+     * @return 格式错误时返回null
+     */
+    private static int[] parse(String value) {
+        try {
+            int[] numbers = Arrays.stream(value.split(COMMA)).map(String::trim).mapToInt(Integer::parseInt).toArray();
+            return Arrays.stream(numbers).allMatch(number -> number >= 0) ? numbers : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 将多行表头合并为一行
+     * </p>
+     * 合并单元格中的每一列都使用合并单元格的名称，同一列从上到下的名称用“-”连接，
+     * 例如“学生信息”合并了下一行的“姓名”和“班级”，合并后为“学生信息-姓名”、“学生信息-班级”
+     * @return 每个字段对应的表头
+     */
+    private static List<String> flatten(String[][] headers, CellRangeAddress[] mergedRegions) {
+        int columns = headers.length == 0 ? 0 : headers[0].length;
+        String[][] names = new String[headers.length][];
+        for (int i = 0; i < headers.length; i++) {
+            names[i] = headers[i].clone();
+        }
+        // 合并单元格的名称填充到合并的每一个单元格
+        for (CellRangeAddress region : mergedRegions) {
+            String name = names[region.getFirstRow()][region.getFirstColumn()];
+            for (int i = region.getFirstRow(); i <= region.getLastRow(); i++) {
+                for (int j = region.getFirstColumn(); j <= region.getLastColumn(); j++) {
+                    names[i][j] = name;
+                }
+            }
+        }
+
+        List<String> flattened = new ArrayList<>(columns);
+        for (int j = 0; j < columns; j++) {
+            StringJoiner joiner = new StringJoiner(HEADER_SEPARATOR);
+            String previous = null;
+            for (String[] row : names) {
+                if (StringUtils.isNotEmpty(row[j]) && !row[j].equals(previous)) {
+                    joiner.add(row[j]);
+                }
+                previous = row[j];
+            }
+            flattened.add(joiner.toString());
+        }
+        return flattened;
+    }
+}
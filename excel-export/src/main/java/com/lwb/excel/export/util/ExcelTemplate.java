@@ -0,0 +1,404 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * xlsx导出模板
+ * </p>
+ * 模板中带样式的表头、logo、公式等由业务人员在excel中编辑，数据从标记行开始写入。
+ * 加载时用POI打开一次模板：查找标记行，记录标记行各列的样式，删除标记行及之后的行，创建表头样式后重新保存，
+ * 再把保存后的xlsx拆成各个部分。之后每次导出由{@link XlsxWriter}原样复制不变的部分，
+ * 只在数据sheet、工作簿、样式表等部分的固定位置插入数据行、新的sheet和用到的样式，不再解析模板。
+ * 标记行的单元格样式作为数据列的默认样式，日期、数字格式和对齐方式的样式优先
+ */
+final class ExcelTemplate {
+
+    /**
+     * 默认的数据开始标记
+     */
+    static final String DEFAULT_MARKER = "${data}";
+
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    private static final String WORKBOOK = "xl/workbook.xml";
+    private static final String WORKBOOK_RELATIONSHIPS = "xl/_rels/workbook.xml.rels";
+    private static final Pattern SHEET_PART = Pattern.compile("xl/worksheets/sheet(\\d+)\\.xml");
+    private static final Pattern RELATIONSHIP_ID = Pattern.compile("Id=\"rId(\\d+)\"");
+    private static final Pattern SHEET_DATA = Pattern.compile("<sheetData\\s*(/?)>");
+    private static final Pattern NUMBER_FORMATS = Pattern.compile("<numFmts count=\"\\d+\"(?:/>|>(.*?)</numFmts>)", Pattern.DOTALL);
+    private static final Pattern CELL_STYLES = Pattern.compile("<cellXfs count=\"\\d+\">(.*?)</cellXfs>", Pattern.DOTALL);
+
+    /**
+     * 原样复制的部分：名称 -> 内容
+     */
+    private final Map<String, byte[]> parts;
+    /**
+     * 标记行所在的sheet，在标记行处拆分
+     */
+    private final Part dataSheet;
+    /**
+     * 工作簿，在sheet列表末尾拆分
+     */
+    private final Part workbook;
+    /**
+     * 工作簿的关系，在末尾拆分
+     */
+    private final Part workbookRelationships;
+    /**
+     * 样式表，在数字格式数量、数字格式列表末尾、样式数量、样式列表末尾拆分
+     */
+    private final Part styles;
+    /**
+     * 各部分的类型，在末尾拆分
+     */
+    private final Part contentTypes;
+    /**
+     * 标记行的行号，第一条数据写入该行
+     */
+    private final int dataRow;
+    /**
+     * 标记行每一列的样式序号，没有单元格的列为0
+     */
+    private final int[] columnStyles;
+    private final List<String> sheetNames;
+    private final boolean date1904;
+    private final int headerStyle;
+    private final int styleCount;
+    private final int numberFormatCount;
+    private final int firstCustomFormat;
+    private final int firstSheetId;
+    private final int firstSheetNumber;
+    private final int firstRelationshipId;
+
+    private ExcelTemplate(XSSFWorkbook book, XSSFSheet sheet, int dataRow, int[] columnStyles, int headerStyle,
+                          Map<String, byte[]> parts) {
+        this.firstSheetNumber = parts.keySet().stream()
+            .map(SHEET_PART::matcher)
+            .filter(Matcher::matches)
+            .mapToInt(matcher -> Integer.parseInt(matcher.group(1)) + 1)
+            .max()
+            .orElse(1);
+        String dataSheetName = partName(sheet.getPackagePart().getPartName().getName());
+        this.dataSheet = splitSheet(dataSheetName, text(parts.remove(dataSheetName)));
+        this.workbook = split(WORKBOOK, text(parts.remove(WORKBOOK)), "</sheets>");
+        String relationships = text(parts.remove(WORKBOOK_RELATIONSHIPS));
+        this.workbookRelationships = split(WORKBOOK_RELATIONSHIPS, relationships, "</Relationships>");
+        String stylesName = partName(book.getStylesSource().getPackagePart().getPartName().getName());
+        this.styles = splitStyles(stylesName, text(parts.remove(stylesName)));
+        this.contentTypes = split(CONTENT_TYPES, text(parts.remove(CONTENT_TYPES)), "</Types>");
+        this.dataRow = dataRow;
+        this.columnStyles = columnStyles;
+        List<String> sheetNames = new ArrayList<>(book.getNumberOfSheets());
+        for (int i = 0; i < book.getNumberOfSheets(); i++) {
+            sheetNames.add(book.getSheetName(i));
+        }
+        this.sheetNames = Collections.unmodifiableList(sheetNames);
+        this.date1904 = book.isDate1904();
+        this.headerStyle = headerStyle;
+        this.styleCount = book.getNumCellStyles();
+        this.numberFormatCount = book.getStylesSource().getNumberFormats().size();
+        this.firstCustomFormat = Math.max(XlsxWriter.FIRST_CUSTOM_FORMAT,
+            book.getStylesSource().getNumberFormats().keySet().stream().mapToInt(id -> id + 1).max().orElse(0));
+        this.firstSheetId = book.getCTWorkbook().getSheets().getSheetList().stream()
+            .mapToLong(CTSheet::getSheetId).mapToInt(id -> (int) id + 1).max().orElse(1);
+        Matcher ids = RELATIONSHIP_ID.matcher(relationships);
+        int maxId = 0;
+        while (ids.find()) {
+            maxId = Math.max(maxId, Integer.parseInt(ids.group(1)));
+        }
+        this.firstRelationshipId = maxId + 1;
+        this.parts = Collections.unmodifiableMap(parts);
+    }
+
+    /**
+     * 加载模板并查找标记行
+     * @param url    模板文件
+     * @param marker 数据开始标记，标记所在的单元格内容与之完全相同
+     * @return 模板
+     */
+    static ExcelTemplate load(URL url, String marker) {
+        byte[] bytes;
+        try (InputStream in = url.openStream()) {
+            bytes = IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UtilException(String.format("无法读取导出模板%s：%s", url, e.getMessage()));
+        }
+        try (XSSFWorkbook book = new XSSFWorkbook(new ByteArrayInputStream(bytes))) {
+            for (int i = 0; i < book.getNumberOfSheets(); i++) {
+                XSSFSheet sheet = book.getSheetAt(i);
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == CellType.STRING && marker.equals(cell.getStringCellValue())) {
+                            return trim(url, book, sheet, row);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UtilException(String.format("无法解析导出模板%s：%s", url, e.getMessage()));
+        }
+        throw new UtilException(String.format("导出模板%s中没有找到数据开始标记%s", url, marker));
+    }
+
+    /**
+     * 删除标记行及之后的行，创建超过最大行数后新建sheet的表头样式，保存后拆成各个部分
+     */
+    private static ExcelTemplate trim(URL url, XSSFWorkbook book, XSSFSheet sheet, Row markerRow) throws IOException {
+        if (!WORKBOOK.equals(partName(book.getPackagePart().getPartName().getName()))) {
+            throw new UtilException(String.format("不支持的导出模板%s：工作簿不在%s", url, WORKBOOK));
+        }
+        int[] columnStyles = columnStyles(markerRow);
+        int dataRow = markerRow.getRowNum();
+        for (int i = sheet.getLastRowNum(); i >= dataRow; i--) {
+            Row row = sheet.getRow(i);
+            if (row != null) {
+                sheet.removeRow(row);
+            }
+        }
+        int headerStyle = new StylePool(book).get(StyleSpec.HEADER).getIndex();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        book.write(out);
+        return new ExcelTemplate(book, sheet, dataRow, columnStyles, headerStyle, unzip(out.toByteArray()));
+    }
+
+    /**
+     * 原样复制的部分，按模板中的顺序排列
+     * @return 名称 -> 内容，不能修改
+     */
+    Map<String, byte[]> getParts() {
+        return this.parts;
+    }
+
+    /**
+     * 标记行所在的sheet，分为数据行之前和之后两段
+     */
+    Part getDataSheet() {
+        return this.dataSheet;
+    }
+
+    /**
+     * 工作簿，分为新sheet之前和之后两段
+     */
+    Part getWorkbook() {
+        return this.workbook;
+    }
+
+    /**
+     * 工作簿的关系，分为新sheet的关系之前和之后两段
+     */
+    Part getWorkbookRelationships() {
+        return this.workbookRelationships;
+    }
+
+    /**
+     * 样式表，依次插入数字格式数量、新的数字格式、样式数量、新的样式，共五段
+     */
+    Part getStyles() {
+        return this.styles;
+    }
+
+    /**
+     * 各部分的类型，分为新sheet的类型之前和之后两段
+     */
+    Part getContentTypes() {
+        return this.contentTypes;
+    }
+
+    /**
+     * 第一条数据的行号
+     */
+    int getDataRow() {
+        return this.dataRow;
+    }
+
+    /**
+     * 数据列的默认样式
+     * @return 每一列的样式序号，标记行中没有单元格的列为0，不能修改
+     */
+    int[] getColumnStyles() {
+        return this.columnStyles;
+    }
+
+    /**
+     * 模板中所有sheet的名称
+     */
+    List<String> getSheetNames() {
+        return this.sheetNames;
+    }
+
+    boolean isDate1904() {
+        return this.date1904;
+    }
+
+    /**
+     * 表头样式的序号，与{@link StylePool}创建的{@link StyleSpec#HEADER}一致
+     */
+    int getHeaderStyle() {
+        return this.headerStyle;
+    }
+
+    /**
+     * 模板中的样式数量，新的样式从该序号开始
+     */
+    int getStyleCount() {
+        return this.styleCount;
+    }
+
+    /**
+     * 模板中的数字格式数量
+     */
+    int getNumberFormatCount() {
+        return this.numberFormatCount;
+    }
+
+    /**
+     * 新的数字格式的起始编号
+     */
+    int getFirstCustomFormat() {
+        return this.firstCustomFormat;
+    }
+
+    /**
+     * 新的sheet的起始编号
+     */
+    int getFirstSheetId() {
+        return this.firstSheetId;
+    }
+
+    /**
+     * 新的sheet文件名的起始序号，例如：xl/worksheets/sheet3.xml
+     */
+    int getFirstSheetNumber() {
+        return this.firstSheetNumber;
+    }
+
+    /**
+     * 新的sheet在工作簿关系中的起始编号
+     */
+    int getFirstRelationshipId() {
+        return this.firstRelationshipId;
+    }
+
+    private static int[] columnStyles(Row row) {
+        int[] styles = new int[Math.max(row.getLastCellNum(), 0)];
+        for (Cell cell : row) {
+            styles[cell.getColumnIndex()] = cell.getCellStyle().getIndex();
+        }
+        return styles;
+    }
+
+    /**
+     * 压缩包中的名称，不以/开头
+     */
+    private static String partName(String name) {
+        return StringUtils.removeStart(name, "/");
+    }
+
+    private static Map<String, byte[]> unzip(byte[] bytes) throws IOException {
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                parts.put(entry.getName(), IOUtils.toByteArray(in));
+            }
+        }
+        return parts;
+    }
+
+    private static String text(byte[] bytes) {
+        if (bytes == null) {
+            throw new UtilException("导出模板缺少必要的部分");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 在最后一个结束标签前拆分
+     */
+    private static Part split(String name, String xml, String end) {
+        int index = xml.lastIndexOf(end);
+        if (index < 0) {
+            throw new UtilException(String.format("无法解析导出模板的%s", name));
+        }
+        return new Part(name, xml.substring(0, index), xml.substring(index));
+    }
+
+    /**
+     * 在已有的行之后拆分，没有行时展开空的sheetData
+     */
+    private static Part splitSheet(String name, String xml) {
+        Matcher matcher = SHEET_DATA.matcher(xml);
+        if (!matcher.find()) {
+            throw new UtilException(String.format("无法解析导出模板的%s", name));
+        }
+        if (!matcher.group(1).isEmpty()) {
+            return new Part(name, xml.substring(0, matcher.start()) + "<sheetData>", "</sheetData>" + xml.substring(matcher.end()));
+        }
+        return split(name, xml, "</sheetData>");
+    }
+
+    private static Part splitStyles(String name, String xml) {
+        Matcher formats = NUMBER_FORMATS.matcher(xml);
+        Matcher styles = CELL_STYLES.matcher(xml);
+        if (!formats.find() || !styles.find() || formats.end() > styles.start()) {
+            throw new UtilException(String.format("无法解析导出模板的%s", name));
+        }
+        String existingFormats = formats.group(1) == null ? ExcelUtils.Constant.EMPTY : formats.group(1);
+        return new Part(name,
+            xml.substring(0, formats.start()) + "<numFmts count=\"",
+            "\">" + existingFormats,
+            "</numFmts>" + xml.substring(formats.end(), styles.start()) + "<cellXfs count=\"",
+            "\">" + styles.group(1),
+            "</cellXfs>" + xml.substring(styles.end()));
+    }
+
+    /**
+     * 需要插入内容的部分，按插入位置拆分为多段，每次导出依次写入各段和插入的内容
+     */
+    static final class Part {
+
+        private final String name;
+        private final String[] segments;
+
+        private Part(String name, String... segments) {
+            this.name = name;
+            this.segments = segments;
+        }
+
+        /**
+         * 在压缩包中的名称
+         */
+        String getName() {
+            return this.name;
+        }
+
+        /**
+         * @param index 第几段，从0开始
+         */
+        String segment(int index) {
+            return this.segments[index];
+        }
+    }
+}
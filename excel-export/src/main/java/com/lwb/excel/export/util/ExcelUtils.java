@@ -0,0 +1,1158 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportEngine;
+import com.lwb.excel.export.enums.ExportStage;
+import com.lwb.excel.export.enums.FileType;
+import com.lwb.excel.export.enums.IncrementalMode;
+import com.lwb.excel.export.exception.ExportRejectedException;
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static com.lwb.excel.export.enums.FileType.XLSX;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.*;
+import static com.lwb.excel.export.util.ExcelUtils.Headers.USER_AGENT;
+import static com.lwb.excel.export.util.ExcelUtils.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+/**
+ * @author liuweibo
+ * @date 2019/8/14
+ */
+public class ExcelUtils {
+    /**
+     * 读写文件及响应流的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * POI列宽的单位为1/256个字符宽度
+     */
+    private static final int CHARACTER_WIDTH = 256;
+    /**
+     * {@link #save}生成的临时文件名：导出名称_uuid.后缀
+     */
+    private static final Pattern SAVED_FILE_NAME =
+        Pattern.compile("(.*)_[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.[^.]*");
+    private static Logger LOGGER = LoggerFactory.getLogger(ExcelUtils.class);
+
+    /**
+     * 格式化下载文件名函数
+     */
+    private static Function<String, String> FORMAT_FILE_NAME = (fileName) ->
+        String.format("attachment; filename=\"%s\"", fileName);
+
+    /**
+     * 判断是否是ie内核浏览器断言
+     */
+    private static Predicate<String> IS_IE = userAgent ->
+        // 是否是ie浏览器
+        userAgent.contains("MSIE")
+            // 是否是edge浏览器
+            || userAgent.contains("EDGE")
+            // 是否是ie内核浏览器
+            || userAgent.contains("TRIDENT");
+
+    /**
+     * 导出文件存储，默认为系统临时文件夹下的excel-export
+     */
+    private static volatile ExportStorage storage =
+        new LocalExportStorage(new File(System.getProperty("java.io.tmpdir"), "excel-export"));
+
+    /**
+     * 获取导出文件存储
+     * @return 导出文件存储
+     */
+    public static ExportStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * 设置导出文件存储，多个节点共用存储时可以使用{@link S3ExportStorage}
+     * @param storage 导出文件存储
+     */
+    public static void setStorage(ExportStorage storage) {
+        ExcelUtils.storage = storage;
+    }
+
+    /**
+     * 生成excel，用于后续导出
+     * </p>
+     * 生成的文件保存在临时文件夹中，适用于异步或离线导出，下载时使用{@link #download(String, HttpServletResponse, HttpServletRequest)}
+     * @param supplier 获取数据的方法
+     * @return 文件名
+     */
+    public static String excel(Supplier<List<?>> supplier) {
+        return excel(RowSource.of(supplier.get()));
+    }
+
+    /**
+     * 生成excel，用于后续导出
+     * </p>
+     * 数据逐行写入，内存占用只与SXSSF的行窗口有关，与数据总量无关
+     * @param source 数据源
+     * @return 文件名
+     */
+    public static String excel(RowSource source) {
+        return excel(ExportRegistry.current(), source);
+    }
+
+    /**
+     * 按指定配置生成excel，用于后续导出
+     * </p>
+     * 导出格式由{@link ExcelConfig#getFileType()}决定
+     * @param config 导出配置，可以通过{@link ExportRegistry}获取
+     * @param source 数据源
+     * @return 文件名
+     */
+    public static String excel(ExcelConfig config, RowSource source) {
+        // 配置完整性校验
+        config.validate();
+        ExportProgress progress = new ExportProgress(config.getName());
+        FileType fileType = config.getFileType();
+        return ExportScheduler.getDefault().call(config, () ->
+            save(config.getFileName(), fileType, progress, content(config, source, fileType, progress)));
+    }
+
+    /**
+     * 生成包含多个sheet的excel，用于后续导出
+     * </p>
+     * 每个sheet使用各自的配置和数据源，并行生成到同一个工作簿中
+     * @param fileName 导出文件名
+     * @param sheets   sheet列表，按顺序排列
+     * @return 文件名
+     */
+    public static String excel(String fileName, List<ExportSheet> sheets) {
+        List<ExcelConfig> configs = validate(sheets);
+        ExportProgress progress = new ExportProgress(fileName);
+        return ExportScheduler.getDefault().call(fileName, configs, () ->
+            save(fileName, XLSX, progress, out -> write(generateExcel(sheets, progress), out, progress)));
+    }
+
+    /**
+     * 提交异步导出任务
+     * </p>
+     * 立即返回任务，通过{@link ExportJobs#get(String)}查询进度，完成后使用
+     * {@link #download(String, String, HttpServletResponse, HttpServletRequest)}下载生成的文件
+     * @param source 数据源
+     * @return 导出任务
+     */
+    public static ExportJob submit(RowSource source) {
+        return submit(ExportRegistry.current(), source);
+    }
+
+    /**
+     * 按指定配置提交异步导出任务
+     * @param config 导出配置，可以通过{@link ExportRegistry}获取
+     * @param source 数据源
+     * @return 导出任务
+     */
+    public static ExportJob submit(ExcelConfig config, RowSource source) {
+        // 配置完整性校验
+        config.validate();
+        FileType fileType = config.getFileType();
+        return ExportJobs.submit(config, progress ->
+            save(config.getFileName(), fileType, progress, content(config, source, fileType, progress)));
+    }
+
+    /**
+     * 直接将excel写入响应流
+     * </p>
+     * 不经过临时文件，不设置Content-Length，由容器以chunked方式传输
+     * @param supplier 需要写入excel的数据
+     */
+    public static void download(Supplier<List<?>> supplier, HttpServletResponse response, HttpServletRequest request) {
+        download(RowSource.of(supplier.get()), response, request);
+    }
+
+    /**
+     * 直接将excel写入响应流
+     * </p>
+     * 数据逐行写入，内存占用只与SXSSF的行窗口有关，与数据总量无关
+     * @param source 数据源
+     */
+    public static void download(RowSource source, HttpServletResponse response, HttpServletRequest request) {
+        download(ExportRegistry.current(), source, response, request);
+    }
+
+    /**
+     * 按指定配置直接将excel写入响应流
+     * </p>
+     * 导出格式优先使用请求参数format（xlsx、csv、tsv），否则使用{@link ExcelConfig#getFileType()}；
+     * 设置了{@link ExcelConfig#getCacheTtl()}时，相同配置和请求参数的导出直接下载{@link ExportCache}中缓存的文件
+     * @param config 导出配置，可以通过{@link ExportRegistry}获取
+     * @param source 数据源
+     */
+    public static void download(ExcelConfig config, RowSource source, HttpServletResponse response, HttpServletRequest request) {
+        // 配置完整性校验
+        config.validate();
+        FileType fileType = getFileType(config, request);
+
+        if (ExportCache.isEnabled(config)) {
+            String fileName = cached(config, source, fileType, request);
+            download(config.getName(), fileName, String.format("%s.%s", config.getFileName(), fileType.getSuffix()),
+                response, request, null);
+            return;
+        }
+
+        // 由导出调度器控制并发，排队已满时拒绝
+        ExportProgress progress = new ExportProgress(config.getName());
+        ExportScheduler.getDefault().call(config, () -> {
+            write(config.getFileName(), fileType, progress, content(config, source, fileType, progress), response, request);
+            return null;
+        });
+    }
+
+    /**
+     * 异步将excel写入响应流
+     * </p>
+     * 控制器直接返回该方法的结果，导出配置在请求线程中获取并校验，生成和写入在{@link ExportExecutors#request()}中执行，不占用tomcat线程
+     * @param source 数据源
+     * @return 响应内容
+     */
+    public static StreamingResponseBody stream(RowSource source, HttpServletResponse response, HttpServletRequest request) {
+        return stream(ExportRegistry.current(), source, response, request);
+    }
+
+    /**
+     * 按指定配置异步将excel写入响应流，参见{@link #download(ExcelConfig, RowSource, HttpServletResponse, HttpServletRequest)}
+     * </p>
+     * 文件在导出调度器中生成到{@link ExportStorage}，生成完成后释放调度器的并发，再在调度器之外写入响应流，
+     * 向慢速客户端传输时不占用导出的并发和内存额度；未使用缓存时文件在写入后删除
+     * @param config 导出配置，可以通过{@link ExportRegistry}获取
+     * @param source 数据源
+     * @return 响应内容
+     */
+    public static StreamingResponseBody stream(ExcelConfig config, RowSource source, HttpServletResponse response, HttpServletRequest request) {
+        // 配置错误在请求线程中抛出，由全局异常处理返回
+        config.validate();
+        FileType fileType = getFileType(config, request);
+        String downloadName = String.format("%s.%s", config.getFileName(), fileType.getSuffix());
+        return out -> {
+            if (ExportCache.isEnabled(config)) {
+                download(config.getName(), cached(config, source, fileType, request), downloadName, response, request, out);
+                return;
+            }
+            ExportProgress progress = new ExportProgress(config.getName());
+            String fileName = ExportScheduler.getDefault().call(config, () ->
+                save(config.getFileName(), fileType, progress, content(config, source, fileType, progress)));
+            try {
+                download(config.getName(), fileName, downloadName, response, request, out);
+            } finally {
+                delete(fileName);
+            }
+        };
+    }
+
+    /**
+     * 从{@link ExportCache}获取导出文件，没有缓存时在导出调度器中生成
+     * @param config   导出配置
+     * @param source   数据源
+     * @param fileType 导出格式
+     * @return 临时文件名
+     */
+    private static String cached(ExcelConfig config, RowSource source, FileType fileType, HttpServletRequest request) {
+        return ExportCache.get(ExportCache.key(config, fileType, request.getParameterMap()), config, () -> {
+            ExportProgress progress = new ExportProgress(config.getName());
+            String name = ExportScheduler.getDefault().call(config, () ->
+                save(config.getFileName(), fileType, progress, content(config, source, fileType, progress)));
+            return new AbstractMap.SimpleImmutableEntry<>(name, progress.getBytes());
+        });
+    }
+
+    /**
+     * 增量导出，只导出消费方上次导出之后的数据
+     * @param consumer 消费方，例如下游系统的标识，每个消费方单独记录水位
+     * @param source   按水位获取数据源的方法，水位为null时返回全部数据，否则只返回水位字段大于该值的数据
+     * @see #downloadIncremental(ExcelConfig, String, Function, HttpServletResponse, HttpServletRequest)
+     */
+    public static void downloadIncremental(String consumer, Function<Object, RowSource> source,
+                                           HttpServletResponse response, HttpServletRequest request) {
+        downloadIncremental(ExportRegistry.current(), consumer, source, response, request);
+    }
+
+    /**
+     * 按指定配置增量导出
+     * </p>
+     * 配置中需要设置水位字段{@link ExcelConfig#getWatermark()}，查询量和文件大小只与新数据有关。
+     * {@link IncrementalMode#DELTA}只包含新数据，完整写入响应后才更新水位，下载失败时下次仍从原水位导出；
+     * {@link IncrementalMode#APPEND}将新数据追加到上次生成的完整文件后另存，返回完整文件，只支持csv、tsv，
+     * 完整文件已被清理或格式不同时重新全量导出。
+     * 同一消费方同时只能有一个增量导出，其他请求返回429；水位只保存在当前节点，参见{@link ExportWatermarks}。
+     * 水位字段为自增主键或更新时间时，提交较晚、水位较小的数据会被跳过，DELTA方式可以通过
+     * {@link ExcelConfig#getWatermarkOverlap()}回退水位重新查询
+     * @param config   导出配置，可以通过{@link ExportRegistry}获取
+     * @param consumer 消费方，每个消费方单独记录水位
+     * @param source   按水位获取数据源的方法，水位为null时返回全部数据，否则只返回水位字段大于该值的数据
+     */
+    public static void downloadIncremental(ExcelConfig config, String consumer, Function<Object, RowSource> source,
+                                           HttpServletResponse response, HttpServletRequest request) {
+        // 配置完整性校验
+        config.validate();
+        if (StringUtils.isEmpty(config.getWatermark())) {
+            throw new UtilException("增量导出未配置水位字段");
+        }
+        if (StringUtils.isEmpty(consumer)) {
+            throw new UtilException("增量导出的消费方不能为空");
+        }
+        FileType fileType = getFileType(config, request);
+        String name = config.getName();
+        long overlap = Optional.ofNullable(config.getWatermarkOverlap()).orElse(0L);
+        if (overlap > 0 && config.getIncrementalMode() != IncrementalMode.DELTA) {
+            throw new UtilException("追加方式的增量导出不支持水位回退");
+        }
+        // 读取水位到更新水位期间同一消费方只允许一个增量导出，避免两次导出读到相同的水位
+        Lock lock = ExportWatermarks.tryLock(name, consumer)
+            .orElseThrow(() -> new ExportRejectedException("该消费方的增量导出正在进行，请稍后重试"));
+        String fileName;
+        try {
+            ExportProgress progress = new ExportProgress(name);
+            if (config.getIncrementalMode() == IncrementalMode.DELTA) {
+                Object since = ExportWatermarks.get(name, consumer).orElse(null);
+                // 水位不会因为回退而变小
+                AtomicReference<Object> watermark = new AtomicReference<>(since);
+                RowSource rows = trackWatermark(config, source.apply(ExportWatermarks.rewind(since, overlap)), watermark);
+                ExportScheduler.getDefault().call(config, () -> {
+                    write(config.getFileName(), fileType, progress, content(config, rows, fileType, progress), response, request);
+                    return null;
+                });
+                ExportWatermarks.update(name, consumer, watermark.get(), null);
+                return;
+            }
+
+            if (!fileType.isDelimited()) {
+                throw new UtilException("追加方式的增量导出只支持csv、tsv");
+            }
+            Optional<String> baseFile = ExportWatermarks.getBaseFile(name, consumer)
+                .filter(file -> file.endsWith(POINT + fileType.getSuffix()))
+                .filter(ExcelUtils::exists);
+            Object since = baseFile.flatMap(file -> ExportWatermarks.get(name, consumer)).orElse(null);
+            AtomicReference<Object> watermark = new AtomicReference<>(since);
+            RowSource rows = trackWatermark(config, source.apply(since), watermark);
+            fileName = ExportScheduler.getDefault().call(config, () ->
+                save(config.getFileName(), fileType, progress, out -> {
+                    if (baseFile.isPresent()) {
+                        // 复制上次的完整文件，新数据不再写表头
+                        storage.transferTo(baseFile.get(), 0, storage.length(baseFile.get()), out);
+                    }
+                    generateDelimited(config, rows, fileType.getDelimiter(), !baseFile.isPresent(), out, progress);
+                }));
+            ExportWatermarks.update(name, consumer, watermark.get(), fileName);
+        } finally {
+            lock.unlock();
+        }
+        // 生成的完整文件不会再被修改，下载时不需要持有锁
+        download(name, fileName, String.format("%s.%s", config.getFileName(), fileType.getSuffix()),
+            response, request, null);
+    }
+
+    /**
+     * 记录数据源中水位字段的最大值
+     * @param config    导出配置
+     * @param source    数据源
+     * @param watermark 当前最大水位
+     * @return 数据源
+     */
+    private static RowSource trackWatermark(ExcelConfig config, RowSource source, AtomicReference<Object> watermark) {
+        List<String> fields = Collections.singletonList(config.getWatermark());
+        return consumer -> {
+            // 取值器按第一行的类型获取一次，之后只在类型变化时重新获取
+            Class<?>[] type = {null};
+            FieldAccessor[] accessor = {null};
+            source.forEach(item -> {
+                if (item != null) {
+                    if (item.getClass() != type[0]) {
+                        type[0] = item.getClass();
+                        accessor[0] = FieldAccessor.of(type[0], fields)[0];
+                    }
+                    Object value = accessor[0].get(item);
+                    if (value != null && !(value instanceof Comparable)) {
+                        throw new UtilException(String.format("水位字段%s的值不能比较", config.getWatermark()));
+                    }
+                    watermark.accumulateAndGet(value, ExcelUtils::max);
+                }
+                consumer.accept(item);
+            });
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object max(Object current, Object value) {
+        if (value == null) {
+            return current;
+        }
+        if (current == null) {
+            return value;
+        }
+        return ((Comparable<Object>) value).compareTo(current) > 0 ? value : current;
+    }
+
+    /**
+     * {@link ExportStorage}中的文件是否存在
+     * @param fileName 文件名
+     */
+    private static boolean exists(String fileName) {
+        try {
+            storage.length(fileName);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 删除{@link ExportStorage}中的文件，删除失败时只记录日志，由存储的过期清理兜底
+     * @param fileName 文件名
+     */
+    private static void delete(String fileName) {
+        try {
+            storage.delete(fileName);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 将包含多个sheet的excel直接写入响应流
+     * </p>
+     * 每个sheet使用各自的配置和数据源，并行生成到同一个工作簿中
+     * @param fileName 导出文件名
+     * @param sheets   sheet列表，按顺序排列
+     */
+    public static void download(String fileName, List<ExportSheet> sheets, HttpServletResponse response, HttpServletRequest request) {
+        List<ExcelConfig> configs = validate(sheets);
+        ExportProgress progress = new ExportProgress(fileName);
+        ExportScheduler.getDefault().call(fileName, configs, () -> {
+            write(fileName, XLSX, progress, out -> write(generateExcel(sheets, progress), out, progress), response, request);
+            return null;
+        });
+    }
+
+    /**
+     * 将多个导出打包成一个zip直接写入响应流
+     * </p>
+     * 各导出并行生成，生成完成的先写入zip，不经过临时文件；
+     * 每个导出的格式优先使用请求参数format，否则使用各自配置的格式，zip中的文件名重复时自动编号
+     * @param fileName zip文件名，不包含后缀
+     * @param exports  各导出的配置和数据源
+     */
+    public static void downloadZip(String fileName, List<ExportSheet> exports, HttpServletResponse response, HttpServletRequest request) {
+        List<ExcelConfig> configs = validate(exports);
+        ExportProgress progress = new ExportProgress(fileName);
+        ExportScheduler.getDefault().call(fileName, configs, () -> {
+            write(fileName, FileType.ZIP, progress, out -> zip(exports, out, progress, request), response, request);
+            return null;
+        });
+    }
+
+    /**
+     * 并行生成各导出并写入zip
+     * @param exports  各导出的配置和数据源
+     * @param out      输出流
+     * @param progress 导出进度
+     */
+    private static void zip(List<ExportSheet> exports, OutputStream out, ExportProgress progress,
+                            HttpServletRequest request) throws Exception {
+        ZipExport zip = new ZipExport(out);
+        Map<ZipExport.Part, ExportStorage.Content> contents = new LinkedHashMap<>();
+        exports.forEach(export -> {
+            ExcelConfig config = export.getConfig();
+            FileType fileType = getFileType(config, request);
+            // xlsx本身已压缩，不再压缩
+            contents.put(
+                zip.add(String.format("%s.%s", config.getFileName(), fileType.getSuffix()), fileType.isDelimited()),
+                content(config, export.getSource(), fileType, progress)
+            );
+        });
+        contents.forEach((part, content) -> ExportExecutors.sheet().execute(() -> {
+            try {
+                OutputStream buffered = new BufferedOutputStream(part, BUFFER_SIZE);
+                content.write(buffered);
+                buffered.flush();
+                part.finish();
+            } catch (Throwable e) {
+                zip.fail(e);
+            }
+        }));
+        zip.write();
+    }
+
+    /**
+     * 将导出内容写入响应流
+     * </p>
+     * csv、tsv在请求头Accept-Encoding包含gzip时使用gzip压缩传输
+     * @param fileName 导出文件名
+     * @param fileType 导出格式
+     * @param progress 导出进度
+     * @param content  导出内容
+     */
+    private static void write(String fileName, FileType fileType, ExportProgress progress, ExportStorage.Content content,
+                              HttpServletResponse response, HttpServletRequest request) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        ExportMetrics.started(progress);
+        try {
+            setDownloadHeader(String.format("%s.%s", fileName, fileType.getSuffix()), fileType.getContentType(), response, request);
+            boolean gzip = fileType.isDelimited() && acceptsGzip(request);
+            if (gzip) {
+                response.setHeader(Headers.CONTENT_ENCODING, GZIP);
+                response.setHeader(Headers.VARY, Headers.ACCEPT_ENCODING);
+            }
+            OutputStream counted = progress.count(new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE));
+            OutputStream out = gzip ? new GZIPOutputStream(counted, BUFFER_SIZE) : counted;
+            content.write(out);
+            if (gzip) {
+                ((GZIPOutputStream) out).finish();
+            }
+            out.flush();
+            logFinished(fileName, progress);
+            failed = false;
+        } catch (UtilException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException(e.getMessage());
+        } finally {
+            ExportMetrics.finished(progress, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * 客户端是否接受gzip编码
+     * @return Accept-Encoding中包含gzip且q不为0
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        return Optional.ofNullable(request.getHeader(Headers.ACCEPT_ENCODING))
+            .map(header -> Arrays.stream(header.split(COMMA))
+                .map(coding -> coding.trim().toLowerCase(Locale.ROOT))
+                .anyMatch(coding -> coding.equals(GZIP)
+                    || coding.startsWith(GZIP + ";") && !coding.replace(" ", "").matches(".*;q=0(\\.0*)?$")))
+            .orElse(false);
+    }
+
+    /**
+     * 记录导出完成时的行数、输出字节数和临时文件占用的字节数
+     * @param name     导出文件名
+     * @param progress 导出进度
+     */
+    private static void logFinished(String name, ExportProgress progress) {
+        LOGGER.info(String.format("export %s finished: %d rows, %d bytes, %d temp bytes",
+            name, progress.getRows(), progress.getBytes(), progress.getTempBytes()));
+    }
+
+    /**
+     * 将工作簿写入输出流
+     * </p>
+     * 写入完成后释放工作簿的临时文件
+     * @param book     工作簿
+     * @param out      输出流
+     * @param progress 导出进度
+     */
+    private static void write(SXSSFWorkbook book, OutputStream out, ExportProgress progress) throws IOException {
+        long start = System.nanoTime();
+        try {
+            book.write(out);
+        } finally {
+            progress.addStageNanos(ExportStage.FLUSH, System.nanoTime() - start);
+            // 删除SXSSF产生的临时文件
+            book.dispose();
+        }
+    }
+
+    /**
+     * 按导出格式生成导出内容
+     * </p>
+     * csv、tsv以及{@link ExportEngine#DIRECT}引擎的xlsx边查询边写入输出流；
+     * {@link ExportEngine#SXSSF}引擎的xlsx先生成工作簿，再写入输出流
+     * @param config   导出配置
+     * @param source   数据源
+     * @param fileType 导出格式
+     * @param progress 导出进度
+     * @return 导出内容
+     */
+    private static ExportStorage.Content content(ExcelConfig config, RowSource source, FileType fileType, ExportProgress progress) {
+        if (fileType.isDelimited()) {
+            return out -> generateDelimited(config, source, fileType.getDelimiter(), true, out, progress);
+        }
+        // 模板在加载时已拆成各个部分，使用模板时固定直接生成
+        if (config.getEngine() == ExportEngine.DIRECT || config.getExcelTemplate() != null) {
+            return out -> generateDirect(config, source, out, progress);
+        }
+        return out -> write(generateExcel(config, source, progress), out, progress);
+    }
+
+    /**
+     * 获取本次下载的导出格式
+     * @param config 导出配置
+     * @return 请求参数指定的格式，没有指定时使用配置的格式
+     */
+    private static FileType getFileType(ExcelConfig config, HttpServletRequest request) {
+        return Optional.ofNullable(request.getParameter(FORMAT))
+            .filter(StringUtils::isNotEmpty)
+            .map(format -> FileType.of(format)
+                .filter(FileType::isExportable)
+                .orElseThrow(() -> new UtilException("不支持的导出格式：" + format)))
+            .orElseGet(config::getFileType);
+    }
+
+    /**
+     * 多sheet导出的配置完整性校验
+     * @param sheets sheet列表
+     * @return 各sheet的导出配置
+     */
+    private static List<ExcelConfig> validate(List<ExportSheet> sheets) {
+        if (CollectionUtils.isEmpty(sheets)) {
+            throw new UtilException("导出的sheet不能为空");
+        }
+        List<ExcelConfig> configs = new ArrayList<>(sheets.size());
+        sheets.forEach(sheet -> {
+            sheet.getConfig().validate();
+            configs.add(sheet.getConfig());
+        });
+        return configs;
+    }
+
+    /**
+     * 下载{@link #excel(Supplier)}生成的临时文件，下载文件名为去掉uuid后的导出名称
+     * @param fileName 临时文件名
+     */
+    public static void download(String fileName, HttpServletResponse response, HttpServletRequest request) {
+        String downloadName = exportName(fileName) + POINT + StringUtils.substringAfterLast(fileName, POINT);
+        download(fileName, downloadName, response, request);
+    }
+
+    /**
+     * 下载生成的临时文件
+     * </p>
+     * 支持单个Range请求，用于断点续传；临时文件不在下载后删除，由{@link ExportJobs}在过期后统一清理
+     * @param fileName     临时文件名
+     * @param downloadName 下载文件名
+     */
+    public static void download(String fileName, String downloadName, HttpServletResponse response, HttpServletRequest request) {
+        download(exportName(fileName), fileName, downloadName, response, request, null);
+    }
+
+    /**
+     * 从临时文件名中取出导出名称，用于记录传输耗时
+     * </p>
+     * 不能直接使用临时文件名，每个文件名都唯一，会使统计数据无限增长
+     * @param fileName 临时文件名
+     * @return 导出名称
+     */
+    static String exportName(String fileName) {
+        Matcher matcher = SAVED_FILE_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : StringUtils.substringBeforeLast(fileName, POINT);
+    }
+
+    /**
+     * 下载生成的临时文件，传输耗时记录在导出名称下
+     * @param name         导出名称
+     * @param fileName     临时文件名
+     * @param downloadName 下载文件名
+     * @param out          响应流，为null时使用response.getOutputStream()
+     */
+    private static void download(String name, String fileName, String downloadName, HttpServletResponse response,
+                                 HttpServletRequest request, OutputStream out) {
+        try {
+            long length = storage.length(fileName);
+            long start = 0;
+            long end = length - 1;
+            response.setHeader(Headers.ACCEPT_RANGES, BYTES);
+
+            long[] range = parseRange(request.getHeader(Headers.RANGE), length);
+            if (range != null) {
+                if (range[0] >= length || range[0] > range[1]) {
+                    // 请求的范围无效
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(Headers.CONTENT_RANGE, String.format("%s */%d", BYTES, length));
+                    return;
+                }
+                start = range[0];
+                end = range[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(Headers.CONTENT_RANGE, String.format("%s %d-%d/%d", BYTES, start, end, length));
+            }
+            setDownloadHeader(downloadName, getContentType(downloadName), response, request);
+            response.setContentLengthLong(end - start + 1);
+
+            OutputStream target = out != null ? out : response.getOutputStream();
+            long transferStart = System.nanoTime();
+            storage.transferTo(fileName, start, end - start + 1, target);
+            target.flush();
+            ExportMetrics.transferred(name, end - start + 1, System.nanoTime() - transferStart);
+        } catch (FileNotFoundException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException("导出文件不存在或已过期");
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException(e.getMessage());
+        }
+    }
+
+    /**
+     * 解析Range请求头
+     * </p>
+     * 只支持单个范围，例如：bytes=0-499、bytes=500-、bytes=-500
+     * @param range  Range请求头
+     * @param length 文件长度
+     * @return 起止位置，不支持的格式返回null，按下载整个文件处理
+     */
+    static long[] parseRange(String range, long length) {
+        String prefix = BYTES + "=";
+        if (range == null || !range.startsWith(prefix) || range.contains(COMMA)) {
+            return null;
+        }
+        String spec = range.substring(prefix.length()).trim();
+        int i = spec.indexOf('-');
+        if (i < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, i).trim();
+            String last = spec.substring(i + 1).trim();
+            if (first.isEmpty()) {
+                // 最后n个字节
+                return new long[]{Math.max(0, length - Long.parseLong(last)), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据下载文件名的后缀获取响应类型
+     * @param fileName 下载文件名
+     * @return 响应类型
+     */
+    private static String getContentType(String fileName) {
+        return FileType.of(StringUtils.substringAfterLast(fileName, POINT))
+            .map(FileType::getContentType)
+            .orElse(APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    /**
+     * 设置下载响应头
+     * @param fileName    下载文件名
+     * @param contentType 响应类型
+     */
+    private static void setDownloadHeader(String fileName, String contentType, HttpServletResponse response,
+                                          HttpServletRequest request) throws UnsupportedEncodingException {
+        // 设置下载文件名
+        String newFileName =
+            Optional.ofNullable(request.getHeader(USER_AGENT))
+                .map(String::toUpperCase)
+                .filter(IS_IE)
+                .map(t -> {
+                    try {
+                        return URLEncoder.encode(fileName, UTF_8);
+                    } catch (UnsupportedEncodingException e) {
+                        return EMPTY;
+                    }
+                }).orElse(new String(fileName.getBytes(UTF_8), ISO_8859_1));
+
+        response.setContentType(contentType);
+        response.setHeader(Headers.CONTENT_DISPOSITION, FORMAT_FILE_NAME.apply(newFileName));
+    }
+
+    /**
+     * 生成excel
+     * @param config
+     * @param source   数据源
+     * @param progress 导出进度
+     * @return 生成的工作簿，使用完后需要调用{@link SXSSFWorkbook#dispose()}删除临时文件
+     */
+    private static SXSSFWorkbook generateExcel(ExcelConfig config, RowSource source, ExportProgress progress) {
+        SXSSFWorkbook book = ExportWorkbook.of(config, progress);
+        try {
+            StylePool styles = new StylePool(book);
+            writeSheets(book, config, source, styles.get(StyleSpec.HEADER), new CellWriter(styles), progress, new AtomicBoolean());
+        } catch (UtilException e) {
+            book.dispose();
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            book.dispose();
+            throw new UtilException(e.getMessage());
+        }
+        return book;
+    }
+
+    /**
+     * 并行生成包含多个sheet的excel
+     * </p>
+     * 每个sheet的数据写入各自的临时文件，互不影响；创建sheet和单元格样式会修改整个工作簿，在工作簿上同步。
+     * 共享字符串表不是线程安全的，多sheet导出固定写成内联字符串，参见{@link ExportWorkbook#of(Collection, ExportProgress)}
+     * @param sheets   sheet列表
+     * @param progress 导出进度
+     * @return 生成的工作簿，使用完后需要调用{@link SXSSFWorkbook#dispose()}删除临时文件
+     */
+    private static SXSSFWorkbook generateExcel(List<ExportSheet> sheets, ExportProgress progress) {
+        SXSSFWorkbook book = ExportWorkbook.of(sheets.stream().map(ExportSheet::getConfig).collect(Collectors.toList()), progress);
+        StylePool styles = new StylePool(book);
+        CellStyle headerStyle = styles.get(StyleSpec.HEADER);
+        CellWriter writer = new CellWriter(styles);
+        // 任意一个sheet失败后，通知其他sheet停止写入
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<List<SXSSFSheet>>> futures = new ArrayList<>(sheets.size());
+        sheets.forEach(sheet -> futures.add(ExportExecutors.sheet().submit(() -> {
+            try {
+                return writeSheets(book, sheet.getConfig(), sheet.getSource(), headerStyle, writer, progress, aborted);
+            } catch (Exception e) {
+                aborted.set(true);
+                throw e;
+            }
+        })));
+
+        // 等待所有sheet写入结束后再处理结果，避免释放工作簿时还有sheet在写入
+        Throwable error = null;
+        List<List<SXSSFSheet>> results = new ArrayList<>(futures.size());
+        for (Future<List<SXSSFSheet>> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                error = Optional.ofNullable(error).orElse(e.getCause());
+            } catch (InterruptedException e) {
+                aborted.set(true);
+                Thread.currentThread().interrupt();
+                error = Optional.ofNullable(error).orElse(e);
+            }
+        }
+        if (error != null) {
+            book.dispose();
+            if (error instanceof UtilException) {
+                throw (UtilException) error;
+            }
+            LOGGER.error(error.getMessage(), error);
+            throw new UtilException(error.getMessage());
+        }
+
+        // 并行创建的sheet顺序不确定，按传入的顺序重新排列
+        int position = 0;
+        for (List<SXSSFSheet> result : results) {
+            for (SXSSFSheet sheet : result) {
+                book.setSheetOrder(sheet.getSheetName(), position++);
+            }
+        }
+        book.setActiveSheet(0);
+        return book;
+    }
+
+    /**
+     * 将数据源写入sheet，超过每个sheet的最大行数时创建新的sheet继续写入
+     * @param book        工作簿
+     * @param config      导出配置
+     * @param source      数据源
+     * @param headerStyle 表头样式
+     * @param writer      单元格写入器
+     * @param progress    导出进度
+     * @param aborted     是否终止写入
+     * @return 创建的sheet
+     */
+    private static List<SXSSFSheet> writeSheets(SXSSFWorkbook book, ExcelConfig config, RowSource source, CellStyle headerStyle,
+                                                CellWriter writer, ExportProgress progress, AtomicBoolean aborted) throws Exception {
+        // 布局在加载配置时已编译，所有sheet共用
+        ExcelLayout layout = config.getLayout();
+        FieldFormats formats = layout.getFormats();
+        RowWriter rows = new RowWriter(config.getMaxRowsPerSheet(), ExportWorkbook.flushInterval(config),
+            sheetIndex -> createSheet(book, config, layout, headerStyle, sheetIndex));
+        int columns = layout.getColumns();
+
+        // excel设置单元格值，每条数据一行，按列号创建单元格并按值的类型写入
+        progress.time(source).forEach(item -> {
+            if (aborted.get()) {
+                throw new UtilException("导出已终止");
+            }
+            SXSSFRow row = rows.next();
+            if (item == null) {
+                for (int i = 0; i < columns; i++) {
+                    row.createCell(i);
+                }
+                progress.addRow(columns);
+                return;
+            }
+            FieldAccessor[] accessors = layout.accessors(item.getClass());
+            for (int i = 0; i < accessors.length; i++) {
+                writer.write(row.createCell(i), formats.convert(i, accessors[i].get(item)), formats.pattern(i, accessors[i]), formats.align(i));
+            }
+            progress.addRow(columns);
+        });
+        return rows.getSheets();
+    }
+
+    /**
+     * 生成csv、tsv
+     * </p>
+     * 多行表头合并为一行，每条数据一行，直接写入输出流
+     * @param config    导出配置
+     * @param source    数据源
+     * @param delimiter 字段分隔符
+     * @param header    是否写入表头，追加到已有文件时不写
+     * @param out       输出流
+     * @param progress  导出进度
+     */
+    private static void generateDelimited(ExcelConfig config, RowSource source, char delimiter, boolean header,
+                                          OutputStream out, ExportProgress progress) throws Exception {
+        CsvWriter writer = new CsvWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), delimiter);
+        ExcelLayout layout = config.getLayout();
+        FieldFormats formats = layout.getFormats();
+        int columns = layout.getColumns();
+        if (header) {
+            layout.getFlattenedHeaders().forEach(name -> writer.write(name, null));
+            writer.endRow();
+        }
+
+        progress.time(source).forEach(item -> {
+            if (item == null) {
+                for (int i = 0; i < columns; i++) {
+                    writer.write(null, null);
+                }
+            } else {
+                FieldAccessor[] accessors = layout.accessors(item.getClass());
+                for (int i = 0; i < accessors.length; i++) {
+                    writer.write(formats.convert(i, accessors[i].get(item)), formats.pattern(i, accessors[i]));
+                }
+            }
+            writer.endRow();
+            progress.addRow(columns);
+        });
+        writer.flush();
+    }
+
+    /**
+     * 不经过POI的单元格对象，直接生成xlsx写入输出流
+     * </p>
+     * 支持多行表头、合并单元格、冻结表头和超过最大行数后创建新的sheet，字符串固定写成内联字符串；
+     * 使用模板时数据从模板的标记行开始写入，超过最大行数后创建的sheet仍按布局绘制表头
+     * @param config   导出配置
+     * @param source   数据源
+     * @param out      输出流
+     * @param progress 导出进度
+     */
+    private static void generateDirect(ExcelConfig config, RowSource source, OutputStream out,
+                                       ExportProgress progress) throws Exception {
+        ExcelTemplate template = config.getExcelTemplate();
+        XlsxWriter writer = new XlsxWriter(out, template);
+        ExcelLayout layout = config.getLayout();
+        FieldFormats formats = layout.getFormats();
+        int maxRows = config.getMaxRowsPerSheet();
+        int columns = layout.getColumns();
+        if (template == null) {
+            startSheet(writer, config, layout, 1);
+        } else {
+            writer.startTemplateSheet();
+        }
+
+        int[] sheetIndex = {1};
+        progress.time(source).forEach(item -> {
+            // 超过每个sheet的最大行数时，创建新的sheet继续写入
+            if (writer.getRowCount() >= maxRows) {
+                writer.endSheet();
+                startSheet(writer, config, layout, ++sheetIndex[0]);
+            }
+            writer.startRow();
+            if (item == null) {
+                // 空行只保留每一列的默认样式
+                for (int i = 0; i < columns; i++) {
+                    writer.write(null, null, null);
+                }
+            } else {
+                FieldAccessor[] accessors = layout.accessors(item.getClass());
+                for (int i = 0; i < accessors.length; i++) {
+                    writer.write(formats.convert(i, accessors[i].get(item)), formats.pattern(i, accessors[i]), formats.align(i));
+                }
+            }
+            writer.endRow();
+            progress.addRow(columns);
+        });
+        long start = System.nanoTime();
+        writer.endSheet();
+        writer.finish();
+        progress.addStageNanos(ExportStage.FLUSH, System.nanoTime() - start);
+    }
+
+    /**
+     * 直接生成xlsx时创建sheet并绘制表头
+     * </p>
+     * 表头区域内的单元格都使用表头样式，合并单元格的边框不需要单独设置
+     * @param writer     xlsx写入器
+     * @param config     导出配置
+     * @param layout     导出布局
+     * @param sheetIndex 同一配置下的第几个sheet，从1开始
+     */
+    private static void startSheet(XlsxWriter writer, ExcelConfig config, ExcelLayout layout, int sheetIndex) {
+        writer.startSheet(sheetName(config, sheetIndex), layout.getFreezePane(), layout.getMergedRegions(),
+            layout.getFormats().widths());
+        for (int i = 0; i < layout.getHeaderRows(); i++) {
+            writer.startRow();
+            for (int j = 0; j < layout.getColumns(); j++) {
+                writer.writeHeader(layout.getHeader(i, j));
+            }
+            writer.endRow();
+        }
+    }
+
+    /**
+     * 创建sheet，绘制表头、合并单元格并冻结表头
+     * @param book        工作簿
+     * @param config      导出配置
+     * @param layout      导出布局
+     * @param headerStyle 表头样式
+     * @param sheetIndex  同一配置下的第几个sheet，从1开始
+     * @return 只有表头的sheet
+     */
+    private static SXSSFSheet createSheet(SXSSFWorkbook book, ExcelConfig config, ExcelLayout layout,
+                                          CellStyle headerStyle, int sheetIndex) {
+        // 创建sheet会修改整个工作簿，多个sheet并行生成时需要同步
+        synchronized (book) {
+            return drawSheet(book, config, layout, headerStyle, sheetIndex);
+        }
+    }
+
+    /**
+     * 在工作簿中创建sheet并按布局绘制表头，调用方需要持有工作簿的锁
+     * </p>
+     * 表头区域内的单元格都使用表头样式，合并单元格的边框不需要单独设置
+     */
+    private static SXSSFSheet drawSheet(SXSSFWorkbook book, ExcelConfig config, ExcelLayout layout,
+                                        CellStyle headerStyle, int sheetIndex) {
+        SXSSFSheet sheet = Optional.ofNullable(sheetName(config, sheetIndex))
+            .map(book::createSheet)
+            .orElseGet(book::createSheet);
+        // 绘制表头，必须在写入数据前绘制，表头行写入磁盘后无法再修改
+        for (int i = 0; i < layout.getHeaderRows(); i++) {
+            SXSSFRow row = sheet.createRow(i);
+            for (int j = 0; j < layout.getColumns(); j++) {
+                Cell cell = row.createCell(j);
+                Optional.ofNullable(layout.getHeader(i, j)).ifPresent(cell::setCellValue);
+                cell.setCellStyle(headerStyle);
+            }
+        }
+
+        // 合并单元格，编译布局时已校验不重叠，不再逐个与已有的合并单元格比较
+        layout.getMergedRegions().forEach(sheet::addMergedRegionUnsafe);
+
+        // 列宽
+        int[] widths = layout.getFormats().widths();
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] > 0) {
+                sheet.setColumnWidth(i, widths[i] * CHARACTER_WIDTH);
+            }
+        }
+
+        // 冻结表头
+        int[] pane = layout.getFreezePane();
+        sheet.createFreezePane(pane[0], pane[1], pane[2], pane[3]);
+        return sheet;
+    }
+
+    /**
+     * 获取sheet名称
+     * @param config     导出配置
+     * @param sheetIndex 同一配置下的第几个sheet，从1开始
+     * @return sheet名称，没有配置时返回null，使用默认名称
+     */
+    private static String sheetName(ExcelConfig config, int sheetIndex) {
+        return Optional.ofNullable(config.getSheetName())
+            .filter(StringUtils::isNotEmpty)
+            .map(name -> sheetIndex == 1 ? name : String.format("%s(%d)", name, sheetIndex))
+            .orElse(null);
+    }
+
+    /**
+     * 生成文件并保存到导出文件存储，供后续下载
+     * @param name     导出文件名
+     * @param fileType 导出格式
+     * @param progress 导出进度
+     * @param content  导出内容
+     * @return 临时文件名
+     */
+    private static String save(String name, FileType fileType, ExportProgress progress, ExportStorage.Content content) {
+        // 生成唯一文件名
+        String fileName = String.format("%s_%s.%s", name, UUID.randomUUID(), fileType.getSuffix());
+        long start = System.nanoTime();
+        boolean failed = true;
+        ExportMetrics.started(progress);
+        try {
+            storage.save(fileName, out -> {
+                OutputStream counted = progress.count(out);
+                content.write(counted);
+                counted.flush();
+            });
+            logFinished(name, progress);
+            failed = false;
+        } catch (UtilException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException(e.getMessage());
+        } finally {
+            ExportMetrics.finished(progress, System.nanoTime() - start, failed);
+        }
+        return fileName;
+    }
+
+    /**
+     * 常用常量
+     */
+    interface Constant {
+        String EMPTY = "";
+        String COMMA = ",";
+        String POINT = ".";
+        String YYYY_MM_DD_HH_MM_SS = "yyyy-MM-dd HH:mm:ss";
+        String YYYY_MM_DD = "yyyy-MM-dd";
+        String HH_MM_SS = "HH:mm:ss";
+        String UTF_8 = "UTF-8";
+        String ISO_8859_1 = "ISO8859_1";
+        String BYTES = "bytes";
+        String FORMAT = "format";
+        /**
+         * csv、tsv合并多行表头时的连接符
+         */
+        String HEADER_SEPARATOR = "-";
+        String GZIP = "gzip";
+    }
+
+    interface MediaType {
+        String APPLICATION_OCTET_STREAM_VALUE = "application/octet-stream";
+    }
+
+    interface Headers {
+        String CONTENT_DISPOSITION = "Content-Disposition";
+        String USER_AGENT = "User-Agent";
+        String ACCEPT_RANGES = "Accept-Ranges";
+        String RANGE = "Range";
+        String CONTENT_RANGE = "Content-Range";
+        String ACCEPT_ENCODING = "Accept-Encoding";
+        String CONTENT_ENCODING = "Content-Encoding";
+        String VARY = "Vary";
+    }
+
+
+}
@@ -0,0 +1,292 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.FileType;
+import com.lwb.excel.export.exception.UtilException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 导出结果缓存
+ * </p>
+ * 缓存的文件保存在{@link ExportStorage}中，key由导出配置、请求参数和数据版本组成；
+ * 数据版本按标签（通常为表名）记录，表有写操作时调用{@link #invalidate(String)}，旧的缓存不再命中。
+ * 按最近使用顺序淘汰，缓存文件的总大小不超过上限，超过{@link ExcelConfig#getCacheTtl()}后过期。
+ * 失效、替换和淘汰只移除缓存项，文件可能仍在被之前的请求下载，不再被引用后由{@link ExportJobs}的过期清理删除
+ * 同一个key同时只生成一次，其他请求等待生成完成后共用结果
+ */
+public final class ExportCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportCache.class);
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    /**
+     * 缓存文件的总大小上限，单位字节
+     */
+    private static volatile long maxBytes = 512 * BYTES_PER_MB;
+
+    /**
+     * key -> 缓存项，按访问顺序排列，最久未使用的在前
+     */
+    private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+    private static long totalBytes;
+
+    /**
+     * 正在生成的key
+     */
+    private static final ConcurrentMap<String, CompletableFuture<String>> LOADING = new ConcurrentHashMap<>();
+
+    /**
+     * 标签 -> 数据版本
+     */
+    private static final ConcurrentMap<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+
+    private ExportCache() {
+    }
+
+    /**
+     * 设置缓存文件的总大小上限
+     * @param maxSize 上限，单位MB
+     */
+    public static void setMaxSize(int maxSize) {
+        maxBytes = maxSize * BYTES_PER_MB;
+        synchronized (ENTRIES) {
+            shrink();
+        }
+    }
+
+    /**
+     * 是否缓存该导出
+     * @param config 导出配置
+     */
+    static boolean isEnabled(ExcelConfig config) {
+        return maxBytes > 0 && Optional.ofNullable(config.getCacheTtl()).orElse(0) > 0;
+    }
+
+    /**
+     * 生成缓存key
+     * @param config   导出配置
+     * @param fileType 导出格式
+     * @param params   请求参数
+     * @return 缓存key
+     */
+    static String key(ExcelConfig config, FileType fileType, Map<String, String[]> params) {
+        StringBuilder key = new StringBuilder(config.toString()).append('\n').append(fileType);
+        new TreeMap<>(params).forEach((name, values) ->
+            key.append('\n').append(name).append('=').append(String.join(",", values)));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取缓存的文件，没有时生成
+     * @param key    缓存key
+     * @param config 导出配置
+     * @param loader 生成文件的方法，返回{@link ExportStorage}中的文件名及文件大小
+     * @return 文件名
+     */
+    static String get(String key, ExcelConfig config, Supplier<Map.Entry<String, Long>> loader) {
+        List<String> tags = Optional.ofNullable(config.getCacheTags()).orElseGet(Collections::emptyList);
+        // 数据版本作为key的一部分，数据变更后不会命中旧的缓存
+        String versionedKey = key + ':' + versions(tags);
+        Optional<String> cached = lookup(versionedKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> loading = LOADING.putIfAbsent(versionedKey, future);
+        if (loading != null) {
+            return await(loading);
+        }
+        try {
+            Map.Entry<String, Long> file = loader.get();
+            put(versionedKey, new Entry(file.getKey(), file.getValue(), tags,
+                System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(config.getCacheTtl())));
+            future.complete(file.getKey());
+            return file.getKey();
+        } catch (Throwable e) {
+            // OutOfMemoryError等错误同样需要结束等待，否则等待同一个导出的请求一直阻塞
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            LOADING.remove(versionedKey, future);
+        }
+    }
+
+    /**
+     * 数据变更，标记了该标签的缓存全部失效
+     * @param tag 标签，通常为表名
+     */
+    public static void invalidate(String tag) {
+        VERSIONS.computeIfAbsent(tag, t -> new AtomicLong()).incrementAndGet();
+        synchronized (ENTRIES) {
+            removeIf(entry -> entry.tags.contains(tag));
+        }
+        LOGGER.debug(String.format("export cache of %s invalidated", tag));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            removeIf(entry -> true);
+        }
+    }
+
+    /**
+     * 文件是否被缓存引用
+     * @param fileName {@link ExportStorage}中的文件名
+     */
+    static boolean contains(String fileName) {
+        synchronized (ENTRIES) {
+            return ENTRIES.values().stream().anyMatch(entry -> entry.fileName.equals(fileName));
+        }
+    }
+
+    /**
+     * 清理过期的缓存
+     */
+    static void evict() {
+        long now = System.currentTimeMillis();
+        synchronized (ENTRIES) {
+            removeIf(entry -> entry.expireTime < now);
+        }
+    }
+
+    private static Optional<String> lookup(String key) {
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.expireTime < System.currentTimeMillis()) {
+                remove(key);
+                return Optional.empty();
+            }
+        }
+        try {
+            // 文件可能已被存储清理
+            ExcelUtils.getStorage().length(entry.fileName);
+            return Optional.of(entry.fileName);
+        } catch (FileNotFoundException e) {
+            synchronized (ENTRIES) {
+                if (ENTRIES.remove(key, entry)) {
+                    totalBytes -= entry.bytes;
+                }
+            }
+            return Optional.empty();
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private static void put(String versionedKey, Entry entry) {
+        // 生成期间数据已变更，结果不再缓存
+        if (!versionedKey.endsWith(':' + versions(entry.tags)) || entry.bytes > maxBytes) {
+            return;
+        }
+        synchronized (ENTRIES) {
+            Optional.ofNullable(ENTRIES.put(versionedKey, entry)).ifPresent(old -> totalBytes -= old.bytes);
+            totalBytes += entry.bytes;
+            shrink();
+        }
+    }
+
+    /**
+     * 超过上限时淘汰最久未使用的缓存
+     */
+    private static void shrink() {
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.bytes;
+        }
+    }
+
+    private static void remove(String key) {
+        Optional.ofNullable(ENTRIES.remove(key)).ifPresent(entry -> totalBytes -= entry.bytes);
+    }
+
+    private static void removeIf(Predicate<Entry> predicate) {
+        Iterator<Entry> iterator = ENTRIES.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (predicate.test(entry)) {
+                iterator.remove();
+                totalBytes -= entry.bytes;
+            }
+        }
+    }
+
+    private static String versions(Collection<String> tags) {
+        return tags.stream()
+            .map(tag -> String.valueOf(Optional.ofNullable(VERSIONS.get(tag)).map(AtomicLong::get).orElse(0L)))
+            .collect(Collectors.joining(","));
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UtilException("导出任务被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            LOGGER.error(cause.getMessage(), cause);
+            throw new UtilException(cause.getMessage());
+        }
+    }
+
+    /**
+     * 缓存项
+     */
+    private static final class Entry {
+
+        final String fileName;
+        final long bytes;
+        final List<String> tags;
+        final long expireTime;
+
+        Entry(String fileName, long bytes, List<String> tags, long expireTime) {
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.tags = tags;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExecutorType;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出线程池工厂
+ * </p>
+ * 分片查询、sheet生成、导出调度和异步下载的线程池都由工厂创建，
+ * 通过{@link ExportExecutors#setFactory(ExportExecutorFactory)}替换，例如改用虚拟线程或接入监控
+ */
+public interface ExportExecutorFactory {
+
+    /**
+     * 创建线程工厂
+     * @param prefix 线程名前缀
+     * @return 线程工厂
+     */
+    ThreadFactory threadFactory(String prefix);
+
+    /**
+     * 创建固定并发数的线程池，超过并发数的任务在队列中等待
+     * @param prefix      线程名前缀
+     * @param concurrency 并发数
+     * @param queue       等待队列
+     * @return 线程池，空闲的线程超时后回收
+     */
+    default ThreadPoolExecutor newPool(String prefix, int concurrency, BlockingQueue<Runnable> queue) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            concurrency,
+            concurrency,
+            60,
+            TimeUnit.SECONDS,
+            queue,
+            threadFactory(prefix)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 创建不限制线程数的线程池，提交的任务立即执行
+     * @param prefix 线程名前缀
+     * @return 线程池
+     */
+    default ExecutorService newUnbounded(String prefix) {
+        return Executors.newCachedThreadPool(threadFactory(prefix));
+    }
+
+    /**
+     * 创建异步下载的线程池，限制最大线程数，超过的下载在队列中等待
+     * </p>
+     * 每个异步下载占用一个线程等待导出生成并向客户端传输，平台线程需要限制数量；
+     * 虚拟线程可以每个任务一个线程
+     * @param prefix     线程名前缀
+     * @param maxThreads 最大线程数
+     * @return 线程池
+     */
+    default ExecutorService newRequestPool(String prefix, int maxThreads) {
+        return newPool(prefix, maxThreads, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * 按线程类型创建工厂
+     * @param type 线程类型
+     * @return 线程池工厂，jdk不支持虚拟线程时{@link ExecutorType#VIRTUAL}抛出异常
+     */
+    static ExportExecutorFactory of(ExecutorType type) {
+        switch (type) {
+            case VIRTUAL:
+                return new VirtualExecutorFactory();
+            case AUTO:
+                return VirtualExecutorFactory.isSupported() ? new VirtualExecutorFactory() : new PlatformExecutorFactory();
+            default:
+                return new PlatformExecutorFactory();
+        }
+    }
+}
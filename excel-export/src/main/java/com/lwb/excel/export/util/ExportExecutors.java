@@ -0,0 +1,123 @@
+package com.lwb.excel.export.util;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * 导出过程中使用的线程池
+ * </p>
+ * 线程池由{@link ExportExecutorFactory}在第一次使用时创建，替换工厂后旧的线程池执行完已提交的任务后关闭
+ */
+public final class ExportExecutors {
+
+    private static volatile ExportExecutorFactory factory = new PlatformExecutorFactory();
+
+    /**
+     * 分片查询线程池
+     */
+    private static volatile ExecutorService fetchExecutor;
+
+    /**
+     * sheet生成线程池
+     * </p>
+     * 生成sheet的任务会等待分片查询的结果，使用单独的线程池，避免与分片查询互相等待
+     */
+    private static volatile ExecutorService sheetExecutor;
+
+    /**
+     * 异步下载线程池，下载在该线程池中写入响应流，不占用tomcat线程
+     */
+    private static volatile ExecutorService requestExecutor;
+
+    /**
+     * 异步下载线程池的最大线程数
+     */
+    private static volatile int requestThreads = 200;
+
+    private ExportExecutors() {
+    }
+
+    public static ExportExecutorFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * 替换线程池工厂
+     * </p>
+     * 导出调度器的线程池在创建调度器时由当时的工厂创建，需要在创建调度器之前设置
+     * @param executorFactory 线程池工厂
+     */
+    public static void setFactory(ExportExecutorFactory executorFactory) {
+        ExecutorService[] old;
+        synchronized (ExportExecutors.class) {
+            factory = Objects.requireNonNull(executorFactory);
+            old = new ExecutorService[]{fetchExecutor, sheetExecutor, requestExecutor};
+            fetchExecutor = null;
+            sheetExecutor = null;
+            requestExecutor = null;
+        }
+        Stream.of(old).filter(Objects::nonNull).forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * 设置异步下载线程池的最大线程数，旧的线程池执行完已提交的任务后关闭
+     * </p>
+     * 使用虚拟线程时不限制线程数
+     * @param threads 最大线程数
+     */
+    public static void setRequestThreads(int threads) {
+        ExecutorService old;
+        synchronized (ExportExecutors.class) {
+            requestThreads = Math.max(1, threads);
+            old = requestExecutor;
+            requestExecutor = null;
+        }
+        Optional.ofNullable(old).ifPresent(ExecutorService::shutdown);
+    }
+
+    static ExecutorService fetch() {
+        ExecutorService executor = fetchExecutor;
+        if (executor == null) {
+            synchronized (ExportExecutors.class) {
+                if (fetchExecutor == null) {
+                    int concurrency = Runtime.getRuntime().availableProcessors() << 1;
+                    fetchExecutor = factory.newPool("excel-fetch-", concurrency, new LinkedBlockingQueue<>());
+                }
+                executor = fetchExecutor;
+            }
+        }
+        return executor;
+    }
+
+    static ExecutorService sheet() {
+        ExecutorService executor = sheetExecutor;
+        if (executor == null) {
+            synchronized (ExportExecutors.class) {
+                if (sheetExecutor == null) {
+                    sheetExecutor = factory.newUnbounded("excel-sheet-");
+                }
+                executor = sheetExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 异步下载线程池，最大线程数参见{@link #setRequestThreads(int)}，导出的生成仍由{@link ExportScheduler}控制并发
+     */
+    public static ExecutorService request() {
+        ExecutorService executor = requestExecutor;
+        if (executor == null) {
+            synchronized (ExportExecutors.class) {
+                if (requestExecutor == null) {
+                    requestExecutor = factory.newRequestPool("excel-request-", requestThreads);
+                }
+                executor = requestExecutor;
+            }
+        }
+        return executor;
+    }
+}
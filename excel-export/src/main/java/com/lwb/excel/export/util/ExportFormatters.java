@@ -0,0 +1,106 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+import java.text.DecimalFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 格式化器注册表
+ * </p>
+ * 日期格式、数字格式和字段值转换器按格式或类名解析一次后全局缓存，导出时不再逐个单元格解析格式。
+ * {@link DateTimeFormatter}和{@link FastDateFormat}不可变、线程安全，直接共用；
+ * {@link DecimalFormat}不是线程安全的，缓存解析好的实例，使用时复制
+ */
+final class ExportFormatters {
+
+    private static final ConcurrentMap<String, DateTimeFormatter> DATE_TIME_FORMATTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, FastDateFormat> DATE_FORMATS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, DecimalFormat> NUMBER_FORMATS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, ValueConverter> CONVERTERS = new ConcurrentHashMap<>();
+
+    private ExportFormatters() {
+    }
+
+    /**
+     * java.time类型的格式化器
+     * @param pattern 日期格式
+     * @return
+     */
+    static DateTimeFormatter dateTimeFormatter(String pattern) {
+        return DATE_TIME_FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    /**
+     * {@link java.util.Date}的格式化器
+     * @param pattern 日期格式
+     * @return
+     */
+    static FastDateFormat dateFormat(String pattern) {
+        return DATE_FORMATS.computeIfAbsent(pattern, FastDateFormat::getInstance);
+    }
+
+    /**
+     * 数字格式化器
+     * @param pattern 数字格式，例如：#,##0.00
+     * @return 新的实例，只能在一个线程中使用
+     */
+    static DecimalFormat numberFormat(String pattern) {
+        return (DecimalFormat) NUMBER_FORMATS.computeIfAbsent(pattern, DecimalFormat::new).clone();
+    }
+
+    /**
+     * 在加载配置时预先编译数字格式，导出时不再因格式错误失败
+     * </p>
+     * 加载配置时不知道字段类型，不是有效数字格式的需要是有效的日期格式
+     * @param pattern 格式
+     * @throws IllegalArgumentException 既不是有效的数字格式，也不是有效的日期格式
+     */
+    static void compile(String pattern) {
+        try {
+            NUMBER_FORMATS.computeIfAbsent(pattern, DecimalFormat::new);
+        } catch (IllegalArgumentException e) {
+            // 例如：yyyy.MM.dd
+            if (!isDatePattern(pattern)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 日期格式需要同时适用于{@link java.util.Date}和java.time类型，{@link FastDateFormat}把非字母都当作文本，几乎不会报错
+     */
+    private static boolean isDatePattern(String pattern) {
+        try {
+            dateTimeFormatter(pattern);
+            dateFormat(pattern);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 字段值转换器
+     * @param className 实现类的全限定名
+     * @return 每个类只创建一个实例
+     */
+    static ValueConverter converter(String className) {
+        return CONVERTERS.computeIfAbsent(className, ExportFormatters::newConverter);
+    }
+
+    private static ValueConverter newConverter(String className) {
+        try {
+            Class<?> clazz = Class.forName(className);
+            if (!ValueConverter.class.isAssignableFrom(clazz)) {
+                throw new UtilException(String.format("%s没有实现ValueConverter", className));
+            }
+            return (ValueConverter) clazz.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UtilException(String.format("无法创建字段值转换器%s：%s", className, e));
+        }
+    }
+}
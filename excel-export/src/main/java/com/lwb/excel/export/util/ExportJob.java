@@ -0,0 +1,121 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.lwb.excel.export.enums.ExportStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 异步导出任务
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ExportJob {
+
+    /**
+     * 任务id
+     */
+    final String id;
+    /**
+     * 导出名称
+     */
+    final String name;
+    /**
+     * 下载文件名
+     */
+    final String downloadName;
+    volatile ExportStatus status = ExportStatus.QUEUED;
+    /**
+     * 生成的临时文件名，完成后才有值
+     */
+    @JsonIgnore
+    volatile String fileName;
+    /**
+     * 失败原因
+     */
+    volatile String message;
+    final Date createTime = new Date();
+    volatile Date finishTime;
+
+    @Getter(AccessLevel.NONE)
+    final ExportProgress progress;
+    /**
+     * 调度器中的任务，用于发现未执行就被拒绝的任务
+     */
+    @Getter(AccessLevel.NONE)
+    volatile Future<?> future;
+
+    ExportJob(String id, String name, String downloadName) {
+        this.id = id;
+        this.name = name;
+        this.downloadName = downloadName;
+        this.progress = new ExportProgress(name);
+    }
+
+    /**
+     * 已写入的数据行数
+     */
+    public long getRows() {
+        return progress.getRows();
+    }
+
+    /**
+     * 已输出的字节数
+     */
+    public long getBytes() {
+        return progress.getBytes();
+    }
+
+    /**
+     * 已写入临时文件的字节数
+     */
+    public long getTempBytes() {
+        return progress.getTempBytes();
+    }
+
+    ExportProgress progress() {
+        return progress;
+    }
+
+    void scheduled(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * 调度器关闭时排队中的任务不会执行，标记为失败
+     */
+    void checkRejected() {
+        Future<?> f = this.future;
+        if (this.status == ExportStatus.QUEUED && f != null && f.isDone()) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                failed(e.getCause().getMessage());
+            } catch (CancellationException | InterruptedException e) {
+                failed("导出任务已取消");
+            }
+        }
+    }
+
+    void running() {
+        this.status = ExportStatus.RUNNING;
+    }
+
+    void finished(String fileName) {
+        this.fileName = fileName;
+        this.finishTime = new Date();
+        this.status = ExportStatus.FINISHED;
+    }
+
+    void failed(String message) {
+        this.message = message;
+        this.finishTime = new Date();
+        this.status = ExportStatus.FAILED;
+    }
+}
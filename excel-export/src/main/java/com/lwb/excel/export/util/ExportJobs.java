@@ -0,0 +1,113 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 异步导出任务管理
+ * </p>
+ * 任务提交到{@link ExportScheduler}执行，生成的临时文件和任务记录超过有效期后统一清理
+ */
+public final class ExportJobs {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportJobs.class);
+
+    private static final ConcurrentMap<String, ExportJob> JOBS = new ConcurrentHashMap<>();
+
+    /**
+     * 临时文件及任务记录的有效期，单位毫秒
+     */
+    private static volatile long ttl = TimeUnit.MINUTES.toMillis(30);
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "excel-export-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        EVICTOR.scheduleWithFixedDelay(ExportJobs::evict, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private ExportJobs() {
+    }
+
+    /**
+     * 提交异步导出任务
+     * @param config 导出配置
+     * @param task   生成临时文件的任务，返回临时文件名
+     * @return 导出任务
+     */
+    static ExportJob submit(ExcelConfig config, Function<ExportProgress, String> task) {
+        ExportJob job = new ExportJob(
+            UUID.randomUUID().toString().replace("-", ""),
+            config.getName(),
+            String.format("%s.%s", config.getFileName(), config.getFileType().getSuffix())
+        );
+        job.scheduled(ExportScheduler.getDefault().submit(config, () -> {
+            job.running();
+            String failure = "导出任务异常结束";
+            try {
+                job.finished(task.apply(job.progress()));
+            } catch (Throwable e) {
+                // OutOfMemoryError等错误同样需要结束任务，否则任务一直处于执行中且不会被清理
+                LOGGER.error(e.getMessage(), e);
+                failure = Optional.ofNullable(e.getMessage()).orElse(e.getClass().getName());
+                throw e;
+            } finally {
+                if (job.getStatus() == ExportStatus.RUNNING) {
+                    job.failed(failure);
+                }
+            }
+            return null;
+        }));
+        JOBS.put(job.getId(), job);
+        return job;
+    }
+
+    /**
+     * 获取导出任务
+     * @param id 任务id
+     * @return 任务不存在或已过期时返回空
+     */
+    public static Optional<ExportJob> get(String id) {
+        Optional<ExportJob> job = Optional.ofNullable(JOBS.get(id));
+        job.ifPresent(ExportJob::checkRejected);
+        return job;
+    }
+
+    /**
+     * 设置临时文件及任务记录的有效期
+     * @param ttl 有效期，单位毫秒
+     */
+    public static void setTtl(long ttl) {
+        ExportJobs.ttl = ttl;
+    }
+
+    /**
+     * 清理过期的任务记录和临时文件
+     */
+    static void evict() {
+        long expire = System.currentTimeMillis() - ttl;
+        JOBS.values().forEach(ExportJob::checkRejected);
+        JOBS.values().removeIf(job -> job.getFinishTime() != null && job.getFinishTime().getTime() < expire);
+        ExportCache.evict();
+        try {
+            // 缓存的导出结果和增量导出的基础文件按各自的规则清理
+            ExcelUtils.getStorage().deleteExpired(expire,
+                fileName -> ExportCache.contains(fileName) || ExportWatermarks.contains(fileName));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+}
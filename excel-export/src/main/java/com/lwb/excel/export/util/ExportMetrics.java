@@ -0,0 +1,135 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportStage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导出指标
+ * </p>
+ * 按导出名称（name标签）记录导出次数、失败次数、行数、单元格数、输出字节数、临时文件字节数以及每个阶段的耗时，
+ * 用于定位慢导出的时间花在了查询、取值写入、打包还是传输上；指标写入Micrometer，通过Actuator的metrics端点查看
+ */
+public final class ExportMetrics {
+
+    /**
+     * 各阶段耗时，stage标签为{@link ExportStage}
+     */
+    static final String STAGE = "excel.export.stage";
+    /**
+     * 导出结果，result标签为success、failure或rejected
+     */
+    static final String RESULTS = "excel.export.results";
+    static final String ROWS = "excel.export.rows";
+    static final String CELLS = "excel.export.cells";
+    static final String BYTES = "excel.export.bytes";
+    static final String TEMP_BYTES = "excel.export.temp.bytes";
+    static final String TRANSFERRED_BYTES = "excel.export.transferred.bytes";
+    static final String ACTIVE_EXPORTS = "excel.export.active";
+
+    /**
+     * 正在生成的导出数
+     */
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    private static volatile MeterRegistry registry;
+
+    static {
+        setRegistry(Metrics.globalRegistry);
+    }
+
+    private ExportMetrics() {
+    }
+
+    /**
+     * 设置记录指标的注册表，Spring环境中为Actuator的MeterRegistry
+     * @param registry 指标注册表
+     */
+    public static void setRegistry(MeterRegistry registry) {
+        Gauge.builder(ACTIVE_EXPORTS, ACTIVE, AtomicInteger::get)
+            .description("正在生成的导出数")
+            .register(registry);
+        Gauge.builder("excel.export.queued", () -> ExportScheduler.getDefault().getQueued())
+            .description("调度器中排队的导出数")
+            .strongReference(true)
+            .register(registry);
+        Gauge.builder("excel.export.available.memory", () -> ExportScheduler.getDefault().getAvailableMemory())
+            .description("调度器剩余的内存预算，单位MB")
+            .strongReference(true)
+            .register(registry);
+        ExportMetrics.registry = registry;
+    }
+
+    /**
+     * 开始生成
+     * @param progress 导出进度
+     */
+    static void started(ExportProgress progress) {
+        ACTIVE.incrementAndGet();
+    }
+
+    /**
+     * 生成结束，汇总导出进度中的计数和各阶段耗时
+     * @param progress 导出进度
+     * @param nanos    生成的总耗时，单位纳秒
+     * @param failed   是否失败
+     */
+    static void finished(ExportProgress progress, long nanos, boolean failed) {
+        ACTIVE.decrementAndGet();
+        String name = progress.getName();
+        counter(RESULTS, name, "result", failed ? "failure" : "success").increment();
+        counter(ROWS, name).increment(progress.getRows());
+        counter(CELLS, name).increment(progress.getCells());
+        counter(BYTES, name).increment(progress.getBytes());
+        counter(TEMP_BYTES, name).increment(progress.getTempBytes());
+        record(name, ExportStage.FETCH, progress.getStageNanos(ExportStage.FETCH));
+        record(name, ExportStage.RENDER, progress.getStageNanos(ExportStage.RENDER));
+        record(name, ExportStage.FLUSH, progress.getStageNanos(ExportStage.FLUSH));
+        record(name, ExportStage.GENERATE, nanos);
+    }
+
+    /**
+     * 记录阶段耗时
+     * @param name  导出名称
+     * @param stage 阶段
+     * @param nanos 耗时，单位纳秒
+     */
+    static void record(String name, ExportStage stage, long nanos) {
+        Timer.builder(STAGE)
+            .tags("name", name, "stage", stage.name())
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 已生成的文件写入响应流
+     * @param name  导出名称
+     * @param bytes 写入的字节数
+     * @param nanos 耗时，单位纳秒
+     */
+    static void transferred(String name, long bytes, long nanos) {
+        counter(TRANSFERRED_BYTES, name).increment(bytes);
+        record(name, ExportStage.TRANSFER, nanos);
+    }
+
+    /**
+     * 导出被调度器拒绝
+     * @param name 导出名称
+     */
+    static void rejected(String name) {
+        counter(RESULTS, name, "result", "rejected").increment();
+    }
+
+    private static Counter counter(String meter, String name, String... tags) {
+        return Counter.builder(meter)
+            .tag("name", name)
+            .tags(tags)
+            .register(registry);
+    }
+}
@@ -0,0 +1,142 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportStage;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 导出进度
+ * </p>
+ * 记录已写入的行数、已输出的字节数和临时文件占用的字节数，可以在其他线程中读取；
+ * 同时记录各阶段的耗时，导出结束后汇总到{@link ExportMetrics}
+ */
+public class ExportProgress {
+
+    /**
+     * 导出名称，参见{@link ExcelConfig#getName()}
+     */
+    private final String name;
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong cells = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong tempBytes = new AtomicLong();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(ExportStage.values().length);
+
+    public ExportProgress(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 导出名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 已写入的数据行数，不包括表头
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * 已写入的数据单元格数，不包括表头
+     */
+    public long getCells() {
+        return cells.get();
+    }
+
+    /**
+     * 已输出的字节数
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 已写入临时文件的字节数，临时文件压缩时为压缩后的字节数
+     */
+    public long getTempBytes() {
+        return tempBytes.get();
+    }
+
+    /**
+     * 阶段的累计耗时，并行生成的多个sheet累加各自的耗时
+     * @param stage 阶段
+     * @return 耗时，单位纳秒
+     */
+    public long getStageNanos(ExportStage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    /**
+     * 写入一行数据
+     * @param cells 该行的单元格数
+     */
+    void addRow(int cells) {
+        rows.incrementAndGet();
+        this.cells.addAndGet(cells);
+    }
+
+    void addStageNanos(ExportStage stage, long nanos) {
+        stageNanos.addAndGet(stage.ordinal(), nanos);
+    }
+
+    /**
+     * 包装数据源，统计读取数据和写入数据的耗时
+     * </p>
+     * 处理每行数据的时间计入{@link ExportStage#RENDER}，数据源推送相邻两行之间的时间计入{@link ExportStage#FETCH}；
+     * 耗时先在本地累加，数据源读取结束后再汇总，不在每行上竞争
+     * @param source 数据源
+     * @return
+     */
+    RowSource time(RowSource source) {
+        return consumer -> {
+            long[] nanos = {0, 0};
+            long[] last = {System.nanoTime()};
+            try {
+                source.forEach(item -> {
+                    long start = System.nanoTime();
+                    nanos[0] += start - last[0];
+                    consumer.accept(item);
+                    last[0] = System.nanoTime();
+                    nanos[1] += last[0] - start;
+                });
+            } finally {
+                // 最后一行之后到数据源读取结束，例如关闭游标
+                addStageNanos(ExportStage.FETCH, nanos[0] + System.nanoTime() - last[0]);
+                addStageNanos(ExportStage.RENDER, nanos[1]);
+            }
+        };
+    }
+
+    long addTempBytes(long length) {
+        return tempBytes.addAndGet(length);
+    }
+
+    /**
+     * 包装输出流，统计输出的字节数
+     * @param out 输出流
+     * @return
+     */
+    OutputStream count(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytes.addAndGet(len);
+            }
+        };
+    }
+}
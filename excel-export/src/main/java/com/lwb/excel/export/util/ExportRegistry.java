@@ -0,0 +1,241 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.annotation.Export;
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import static com.lwb.excel.export.util.ExcelUtils.Constant.EMPTY;
+
+/**
+ * 导出配置注册表
+ * </p>
+ * 被{@link Export}标记的方法及其yml配置只解析、校验一次，之后按方法或配置文件路径缓存
+ */
+public final class ExportRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportRegistry.class);
+
+    private static final String FILE_PROTOCOL = "file";
+
+    /**
+     * yml解析器，线程安全，全局共享
+     */
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    /**
+     * 已解析的配置，key为类名:配置文件路径
+     */
+    private static final ConcurrentMap<String, Entry> CONFIGS = new ConcurrentHashMap<>();
+
+    /**
+     * 方法栈中类名#方法名对应的导出方法，没有则为空
+     */
+    private static final ConcurrentMap<String, Optional<Method>> FRAMES = new ConcurrentHashMap<>();
+
+    /**
+     * 当前请求正在执行的导出方法
+     */
+    private static final ThreadLocal<Method> CURRENT = new ThreadLocal<>();
+
+    /**
+     * yml文件修改后是否重新加载，用于开发环境
+     */
+    private static volatile boolean reloadEnabled = false;
+
+    private ExportRegistry() {
+    }
+
+    /**
+     * 注册类中所有被{@link Export}标记的方法，配置有误时直接抛出异常
+     * @param clazz 类
+     */
+    public static void register(Class<?> clazz) {
+        Optional.ofNullable(clazz.getDeclaredMethods())
+            .filter(ArrayUtils::isNotEmpty)
+            .ifPresent(methods -> Stream.of(methods)
+                .filter(method -> method.isAnnotationPresent(Export.class))
+                .forEach(method -> {
+                    get(method);
+                    LOGGER.debug(String.format("export config of %s registered", method));
+                }));
+    }
+
+    /**
+     * 获取导出方法的配置
+     * @param method 被{@link Export}标记的方法
+     * @return 导出配置
+     */
+    public static ExcelConfig get(Method method) {
+        Export export = Optional.ofNullable(method.getAnnotation(Export.class))
+            .orElseThrow(() -> new UtilException(String.format("%s没有被Export标记", method)));
+        return get(method.getDeclaringClass(), export.value(), export.template());
+    }
+
+    /**
+     * 获取配置文件对应的配置
+     * @param clazz 配置文件相对的类
+     * @param path  配置文件路径
+     * @return 导出配置
+     */
+    public static ExcelConfig get(Class<?> clazz, String path) {
+        return get(clazz, path, EMPTY);
+    }
+
+    /**
+     * 获取配置文件对应的配置，并使用指定的xlsx模板
+     * @param clazz    配置文件和模板相对的类
+     * @param path     配置文件路径
+     * @param template 模板路径，为空时使用配置文件中的模板
+     * @return 导出配置
+     */
+    public static ExcelConfig get(Class<?> clazz, String path, String template) {
+        String key = clazz.getName() + ":" + path + (template.isEmpty() ? EMPTY : ":" + template);
+        Entry entry = CONFIGS.computeIfAbsent(key, k -> load(clazz, path, template));
+        if (reloadEnabled && entry.isModified()) {
+            entry = load(clazz, path, template);
+            CONFIGS.put(key, entry);
+            LOGGER.info(String.format("export config %s reloaded", key));
+        }
+        return entry.config;
+    }
+
+    /**
+     * 获取当前导出的配置
+     * </p>
+     * 优先使用请求拦截器绑定的导出方法，否则在方法栈中查找被{@link Export}标记的方法
+     * @return 导出配置
+     */
+    public static ExcelConfig current() {
+        return get(Optional.ofNullable(CURRENT.get())
+            .orElseGet(() -> getMethod(Thread.currentThread().getStackTrace())));
+    }
+
+    /**
+     * 绑定当前线程正在执行的导出方法
+     * @param method 导出方法
+     */
+    public static void bind(Method method) {
+        CURRENT.set(method);
+    }
+
+    /**
+     * 解除当前线程绑定的导出方法
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static void setReloadEnabled(boolean reloadEnabled) {
+        ExportRegistry.reloadEnabled = reloadEnabled;
+    }
+
+    /**
+     * 解析yml文件
+     * </p>
+     * 解析成ExcelConfig，加载模板，并校验配置的完整性
+     * @param clazz    配置文件相对的类
+     * @param path     配置文件路径
+     * @param template 模板路径，为空时使用配置文件中的模板
+     * @return
+     */
+    private static Entry load(Class<?> clazz, String path, String template) {
+        URL url = Optional.ofNullable(clazz.getResource(path))
+            .orElseThrow(() -> new UtilException(String.format("没有找到导出配置文件%s", path)));
+        try (InputStream in = url.openStream()) {
+            long lastModified = lastModified(url);
+            ExcelConfig config = YAML_MAPPER.readValue(in, ExcelConfig.class);
+            if (!template.isEmpty()) {
+                config.setTemplate(template);
+            }
+            config.loadTemplate(clazz);
+            config.validate();
+            return new Entry(config, url, lastModified);
+        } catch (UtilException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取获取特定方法栈信息
+     * </p>
+     * 方法栈中，找到被{@link Export}标记的方法，查找结果按类名和方法名缓存
+     * @param stackTrace 方法调用栈
+     * @return 导出方法
+     */
+    private static Method getMethod(StackTraceElement... stackTrace) {
+        return
+            Arrays.stream(stackTrace)
+                .map(trace -> FRAMES.computeIfAbsent(
+                    trace.getClassName() + "#" + trace.getMethodName(),
+                    k -> findMethod(trace.getClassName(), trace.getMethodName())))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst()
+                .orElseThrow(() -> new UtilException("没有找到ExportConfig标记的方法!"));
+    }
+
+    private static Optional<Method> findMethod(String className, String methodName) {
+        try {
+            Class<?> clazz = Class.forName(className);
+            return Stream.of(clazz.getDeclaredMethods())
+                .filter(method -> method.getName().equals(methodName))
+                .filter(method -> method.isAnnotationPresent(Export.class))
+                .findAny();
+        } catch (ClassNotFoundException e) {
+            LOGGER.error(e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 配置文件的修改时间，不在文件系统中的配置文件返回0
+     */
+    private static long lastModified(URL url) {
+        if (!FILE_PROTOCOL.equals(url.getProtocol())) {
+            return 0L;
+        }
+        try {
+            return new File(url.toURI()).lastModified();
+        } catch (URISyntaxException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * 已解析的配置
+     */
+    private static class Entry {
+
+        final ExcelConfig config;
+        final URL url;
+        final long lastModified;
+
+        Entry(ExcelConfig config, URL url, long lastModified) {
+            this.config = config;
+            this.url = url;
+            this.lastModified = lastModified;
+        }
+
+        boolean isModified() {
+            return FILE_PROTOCOL.equals(url.getProtocol()) && lastModified(url) != lastModified;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportPriority;
+import com.lwb.excel.export.enums.ExportStage;
+import com.lwb.excel.export.exception.ExportRejectedException;
+import com.lwb.excel.export.exception.UtilException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导出任务调度器
+ * </p>
+ * 限制全局并发数、每种导出的并发数和内存预算，排队任务按优先级执行；
+ * 排队已满时直接拒绝，排队超时后放弃，避免突发的导出请求耗尽内存或阻塞tomcat线程池。
+ * 内存在任务开始执行时才占用，内存不足时任务留在队列中，等待其他任务执行完释放
+ */
+public class ExportScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportScheduler.class);
+
+    private static final int MB = 1024 * 1024;
+
+    private static volatile ExportScheduler defaultScheduler;
+
+    private final ThreadPoolExecutor executor;
+    /**
+     * 全局并发数
+     */
+    private final int concurrency;
+    /**
+     * 最多排队的任务数
+     */
+    private final int queueCapacity;
+    /**
+     * 同步等待的任务最长排队时间，单位毫秒，0表示不限制
+     */
+    private final long queueTimeout;
+    /**
+     * 每种导出默认的并发数
+     */
+    private final int defaultTypeLimit;
+    /**
+     * 每种导出单独设置的并发数
+     */
+    private final Map<String, Integer> typeLimits;
+    /**
+     * 默认每个任务占用的内存，单位MB
+     */
+    private final int defaultJobMemory;
+    /**
+     * 全局内存预算，单位MB
+     */
+    private final int memoryBudget;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 以下状态由调度器的锁保护
+     * </p>
+     * 排队中的任务，按优先级和提交顺序排序
+     */
+    private final TreeSet<Job<?>> pending = new TreeSet<>();
+    /**
+     * 导出名称 -> 正在执行的任务数
+     */
+    private final Map<String, Integer> runningTypes = new HashMap<>();
+    private int running;
+    private int availableMemory;
+    private boolean shutdown;
+
+    /**
+     * @param concurrency      全局并发数
+     * @param queueCapacity    最多排队的任务数
+     * @param queueTimeout     同步等待的任务最长排队时间，单位毫秒，0表示不限制
+     * @param defaultTypeLimit 每种导出默认的并发数
+     * @param typeLimits       每种导出单独设置的并发数，key为导出名称
+     * @param memoryBudget     全局内存预算，单位MB
+     * @param defaultJobMemory 默认每个任务占用的内存，单位MB
+     */
+    public ExportScheduler(int concurrency, int queueCapacity, long queueTimeout, int defaultTypeLimit,
+                           Map<String, Integer> typeLimits, int memoryBudget, int defaultJobMemory) {
+        this.concurrency = Math.max(1, concurrency);
+        // 线程由当前的线程池工厂创建，任务由调度器按并发数放入，线程池的队列中不会积压任务
+        this.executor = ExportExecutors.getFactory().newPool("excel-export-", this.concurrency, new LinkedBlockingQueue<>());
+        this.queueCapacity = queueCapacity;
+        this.queueTimeout = queueTimeout;
+        this.defaultTypeLimit = defaultTypeLimit;
+        this.typeLimits = typeLimits == null ? Collections.emptyMap() : new HashMap<>(typeLimits);
+        this.memoryBudget = memoryBudget;
+        this.availableMemory = memoryBudget;
+        this.defaultJobMemory = defaultJobMemory;
+    }
+
+    /**
+     * 默认调度器，没有通过Spring配置时按cpu核数和最大堆内存创建
+     * @return
+     */
+    public static ExportScheduler getDefault() {
+        if (defaultScheduler == null) {
+            synchronized (ExportScheduler.class) {
+                if (defaultScheduler == null) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    int heap = (int) (Runtime.getRuntime().maxMemory() / MB);
+                    defaultScheduler = new ExportScheduler(cores, cores << 4, TimeUnit.MINUTES.toMillis(1), cores,
+                        null, heap >> 2, 64);
+                }
+            }
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * 替换默认调度器
+     * </p>
+     * 旧调度器中正在执行的任务继续执行，排队中的任务以{@link ExportRejectedException}结束
+     * @param scheduler 调度器，为null时下次使用时按默认配置重新创建
+     */
+    public static void setDefault(ExportScheduler scheduler) {
+        ExportScheduler old;
+        synchronized (ExportScheduler.class) {
+            old = defaultScheduler;
+            defaultScheduler = scheduler;
+        }
+        Optional.ofNullable(old)
+            .filter(o -> o != scheduler)
+            .ifPresent(ExportScheduler::shutdown);
+    }
+
+    /**
+     * 提交导出任务并等待执行完成
+     * @param config 导出配置，决定导出名称、优先级和内存预算
+     * @param task   导出任务
+     * @return 任务结果
+     */
+    public <T> T call(ExcelConfig config, Callable<T> task) {
+        return await(enqueue(
+            config.getName(),
+            Optional.ofNullable(config.getPriority()).orElse(ExportPriority.NORMAL),
+            Optional.ofNullable(config.getMemoryBudget()).orElse(this.defaultJobMemory),
+            task
+        ));
+    }
+
+    /**
+     * 提交由多个配置共同组成的导出任务并等待执行完成，例如多sheet导出
+     * </p>
+     * 优先级取其中最低的，内存预算为各配置之和
+     * @param type    导出名称，用于限制每种导出的并发数
+     * @param configs 导出配置
+     * @param task    导出任务
+     * @return 任务结果
+     */
+    public <T> T call(String type, Collection<ExcelConfig> configs, Callable<T> task) {
+        ExportPriority priority = configs.stream()
+            .map(ExcelConfig::getPriority)
+            .filter(Objects::nonNull)
+            .max(Comparator.naturalOrder())
+            .orElse(ExportPriority.NORMAL);
+        int memoryMb = configs.stream()
+            .mapToInt(config -> Optional.ofNullable(config.getMemoryBudget()).orElse(this.defaultJobMemory))
+            .sum();
+        return await(enqueue(type, priority, memoryMb, task));
+    }
+
+    /**
+     * 等待任务执行完成
+     * </p>
+     * 超过排队时间仍未开始执行的任务从队列中移除并抛出{@link ExportRejectedException}，已开始执行的任务等待其完成
+     */
+    private <T> T await(Job<T> job) {
+        try {
+            if (!job.awaitStart(this.queueTimeout) && dequeue(job)) {
+                ExportMetrics.rejected(job.type);
+                throw new ExportRejectedException("导出任务排队超时，请稍后重试");
+            }
+            return job.get();
+        } catch (InterruptedException e) {
+            dequeue(job);
+            job.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UtilException("导出任务被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            LOGGER.error(cause.getMessage(), cause);
+            throw new UtilException(cause.getMessage());
+        }
+    }
+
+    /**
+     * 提交导出任务
+     * @param config 导出配置，决定导出名称、优先级和内存预算
+     * @param task   导出任务
+     * @return 任务结果
+     */
+    public <T> Future<T> submit(ExcelConfig config, Callable<T> task) {
+        return submit(
+            config.getName(),
+            Optional.ofNullable(config.getPriority()).orElse(ExportPriority.NORMAL),
+            Optional.ofNullable(config.getMemoryBudget()).orElse(this.defaultJobMemory),
+            task
+        );
+    }
+
+    /**
+     * 提交导出任务
+     * </p>
+     * 排队已满时抛出{@link ExportRejectedException}；内存在任务开始执行时占用，超过全局预算的任务按全局预算占用
+     * @param type     导出名称，用于限制每种导出的并发数
+     * @param priority 优先级
+     * @param memoryMb 任务占用的内存，单位MB
+     * @param task     导出任务
+     * @return 任务结果
+     */
+    public <T> Future<T> submit(String type, ExportPriority priority, int memoryMb, Callable<T> task) {
+        return enqueue(type, priority, memoryMb, task);
+    }
+
+    private <T> Job<T> enqueue(String type, ExportPriority priority, int memoryMb, Callable<T> task) {
+        int memory = Math.max(0, Math.min(memoryMb, this.memoryBudget));
+        Job<T> job = new Job<>(task, type, priority, this.sequence.incrementAndGet(), memory);
+        synchronized (this) {
+            if (this.shutdown) {
+                ExportMetrics.rejected(type);
+                throw new ExportRejectedException("导出调度器已关闭，请稍后重试");
+            }
+            if (this.pending.size() >= this.queueCapacity) {
+                ExportMetrics.rejected(type);
+                throw new ExportRejectedException("导出任务排队已满，请稍后重试");
+            }
+            this.pending.add(job);
+            dispatch();
+        }
+        return job;
+    }
+
+    /**
+     * 排队中的任务数
+     */
+    public synchronized int getQueued() {
+        return this.pending.size();
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public synchronized int getActive() {
+        return this.running;
+    }
+
+    /**
+     * 剩余的内存预算，单位MB
+     */
+    public synchronized int getAvailableMemory() {
+        return this.availableMemory;
+    }
+
+    /**
+     * 关闭调度器
+     * </p>
+     * 正在执行的任务继续执行，排队中的任务以{@link ExportRejectedException}结束，之后提交的任务直接拒绝
+     */
+    public void shutdown() {
+        List<Job<?>> rejected;
+        synchronized (this) {
+            this.shutdown = true;
+            rejected = new ArrayList<>(this.pending);
+            this.pending.clear();
+        }
+        rejected.forEach(job -> job.reject(new ExportRejectedException("导出调度器已关闭，请稍后重试")));
+        this.executor.shutdown();
+    }
+
+    /**
+     * 按优先级将可以执行的任务放入线程池
+     * </p>
+     * 所属导出并发已满的任务跳过，优先级最高的可执行任务内存不足时停止，
+     * 避免内存占用小的任务持续插队，使内存占用大的任务一直等待
+     */
+    private void dispatch() {
+        Iterator<Job<?>> iterator = this.pending.iterator();
+        while (this.running < this.concurrency && iterator.hasNext()) {
+            Job<?> job = iterator.next();
+            int typeRunning = this.runningTypes.getOrDefault(job.type, 0);
+            if (typeRunning >= Math.max(1, this.typeLimits.getOrDefault(job.type, this.defaultTypeLimit))) {
+                continue;
+            }
+            if (job.memory > this.availableMemory) {
+                break;
+            }
+            iterator.remove();
+            this.running++;
+            this.runningTypes.put(job.type, typeRunning + 1);
+            this.availableMemory -= job.memory;
+            job.started.countDown();
+            this.executor.execute(job);
+        }
+    }
+
+    /**
+     * 从队列中移除未开始执行的任务
+     * @return 任务仍在排队时返回true
+     */
+    private synchronized boolean dequeue(Job<?> job) {
+        if (this.pending.remove(job)) {
+            job.cancel(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 任务执行完成，释放并发数和内存并放入后续的任务
+     */
+    private synchronized void finished(Job<?> job) {
+        this.running--;
+        this.runningTypes.computeIfPresent(job.type, (type, count) -> count > 1 ? count - 1 : null);
+        this.availableMemory += job.memory;
+        if (!this.shutdown) {
+            dispatch();
+        }
+    }
+
+    /**
+     * 导出任务，按优先级和提交顺序排序
+     */
+    private class Job<T> extends FutureTask<T> implements Comparable<Job<?>> {
+
+        final String type;
+        final ExportPriority priority;
+        final long sequence;
+        final int memory;
+        /**
+         * 开始执行或被拒绝时结束等待
+         */
+        final CountDownLatch started = new CountDownLatch(1);
+        /**
+         * 提交时间，用于统计排队耗时
+         */
+        final long submitTime = System.nanoTime();
+
+        Job(Callable<T> callable, String type, ExportPriority priority, long sequence, int memory) {
+            super(callable);
+            this.type = type;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.memory = memory;
+        }
+
+        /**
+         * 等待任务开始执行
+         * @param timeout 最长等待时间，单位毫秒，0表示不限制
+         * @return 超时仍未开始执行时返回false
+         */
+        boolean awaitStart(long timeout) throws InterruptedException {
+            if (timeout <= 0) {
+                this.started.await();
+                return true;
+            }
+            return this.started.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        void reject(RuntimeException e) {
+            setException(e);
+            this.started.countDown();
+        }
+
+        @Override
+        public void run() {
+            ExportMetrics.record(this.type, ExportStage.QUEUE, System.nanoTime() - this.submitTime);
+            try {
+                super.run();
+            } finally {
+                finished(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> o) {
+            int c = this.priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(this.sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.lwb.excel.export.util;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * 多sheet导出中的一个sheet
+ */
+@Getter
+@AllArgsConstructor(staticName = "of")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExportSheet {
+
+    /**
+     * sheet的导出配置
+     */
+    ExcelConfig config;
+    /**
+     * sheet的数据源
+     */
+    RowSource source;
+}
@@ -0,0 +1,69 @@
+package com.lwb.excel.export.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 导出文件存储
+ * </p>
+ * 异步导出和{@link ExcelUtils#excel(ExcelConfig, RowSource)}生成的文件保存在存储中，下载时从存储中读取；
+ * 多个节点共用同一个存储时，任意节点生成的文件都可以从其他节点下载
+ */
+public interface ExportStorage {
+
+    /**
+     * 导出生成的文件名：导出名称_UUID.后缀
+     */
+    Pattern FILE_NAME = Pattern.compile(".+_[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.[a-z]+");
+
+    /**
+     * 保存文件
+     * </p>
+     * 写入成功后文件才可以读取，写入失败时丢弃已写入的内容
+     * @param fileName 文件名
+     * @param content  文件内容
+     */
+    void save(String fileName, Content content) throws Exception;
+
+    /**
+     * 获取文件长度
+     * @param fileName 文件名
+     * @return 文件长度
+     * @throws java.io.FileNotFoundException 文件不存在
+     */
+    long length(String fileName) throws IOException;
+
+    /**
+     * 将文件的一部分写入输出流
+     * @param fileName 文件名
+     * @param position 起始位置
+     * @param count    字节数
+     * @param out      输出流
+     * @throws java.io.FileNotFoundException 文件不存在
+     */
+    void transferTo(String fileName, long position, long count, OutputStream out) throws IOException;
+
+    /**
+     * 删除文件
+     * @param fileName 文件名
+     */
+    void delete(String fileName) throws IOException;
+
+    /**
+     * 删除过期的文件
+     * @param expireTime 最后修改时间早于该时间的文件过期
+     * @param retained   仍在使用、不能删除的文件，例如缓存的导出结果
+     */
+    void deleteExpired(long expireTime, Predicate<String> retained) throws IOException;
+
+    /**
+     * 文件内容
+     */
+    @FunctionalInterface
+    interface Content {
+
+        void write(OutputStream out) throws Exception;
+    }
+}
@@ -0,0 +1,182 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 增量导出水位记录
+ * </p>
+ * 按导出名称和消费方记录上次导出的最大水位，以及追加方式下上次生成的完整文件。
+ * 与异步导出任务一样只保存在当前节点的内存中，重启后下一次导出为全量导出；
+ * 多个节点部署时每个节点各自记录水位，同一消费方的请求需要由负载均衡固定路由到同一节点，否则会退化为全量导出。
+ * 同一导出的同一消费方同时只能有一个增量导出，参见{@link #tryLock(String, String)}
+ */
+public final class ExportWatermarks {
+
+    private static final ConcurrentMap<String, Watermark> WATERMARKS = new ConcurrentHashMap<>();
+    /**
+     * 导出名称:消费方 -> 增量导出锁，释放时移除，不随消费方的数量增长
+     */
+    private static final ConcurrentMap<String, KeyLock> LOCKS = new ConcurrentHashMap<>();
+
+    private ExportWatermarks() {
+    }
+
+    /**
+     * 获取消费方上次导出的水位
+     * @param name     导出名称
+     * @param consumer 消费方
+     * @return 没有导出过时返回空
+     */
+    public static Optional<Object> get(String name, String consumer) {
+        return Optional.ofNullable(WATERMARKS.get(key(name, consumer))).map(watermark -> watermark.value);
+    }
+
+    /**
+     * 清除消费方的水位，下一次导出为全量导出
+     * @param name     导出名称
+     * @param consumer 消费方
+     */
+    public static void reset(String name, String consumer) {
+        WATERMARKS.remove(key(name, consumer));
+    }
+
+    /**
+     * 锁定消费方的增量导出，从读取水位到更新水位期间不允许同一消费方的其他增量导出
+     * </p>
+     * 只在当前节点内有效
+     * @param name     导出名称
+     * @param consumer 消费方
+     * @return 锁，已被其他请求锁定时返回空
+     */
+    static Optional<Lock> tryLock(String name, String consumer) {
+        String key = key(name, consumer);
+        while (true) {
+            KeyLock lock = LOCKS.computeIfAbsent(key, KeyLock::new);
+            if (!lock.tryLock()) {
+                return Optional.empty();
+            }
+            if (LOCKS.get(key) == lock) {
+                return Optional.of(lock);
+            }
+            // 获取到的锁已被其他请求释放并移除，重新获取
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 水位回退
+     * @param value   水位
+     * @param overlap 回退量，数值水位按数值回退，时间水位按秒回退
+     * @return 回退后的水位，value为null或回退量不大于0时返回value
+     */
+    static Object rewind(Object value, long overlap) {
+        if (value == null || overlap <= 0) {
+            return value;
+        }
+        if (value instanceof Long) {
+            return (Long) value - overlap;
+        }
+        if (value instanceof Integer) {
+            return (int) Math.max(Integer.MIN_VALUE, (Integer) value - overlap);
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).subtract(BigDecimal.valueOf(overlap));
+        }
+        if (value instanceof Timestamp) {
+            return Timestamp.from(((Timestamp) value).toInstant().minusSeconds(overlap));
+        }
+        if (value instanceof Date) {
+            return new Date(((Date) value).getTime() - TimeUnit.SECONDS.toMillis(overlap));
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).minusSeconds(overlap);
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).minusSeconds(overlap);
+        }
+        throw new UtilException(String.format("水位类型%s不支持回退", value.getClass().getName()));
+    }
+
+    /**
+     * 获取追加方式下上次生成的完整文件
+     * @param name     导出名称
+     * @param consumer 消费方
+     * @return {@link ExportStorage}中的文件名
+     */
+    static Optional<String> getBaseFile(String name, String consumer) {
+        return Optional.ofNullable(WATERMARKS.get(key(name, consumer))).map(watermark -> watermark.baseFile);
+    }
+
+    /**
+     * 导出成功后更新水位
+     * </p>
+     * 被替换的完整文件可能仍在被之前的请求下载，不在此删除，不再被引用后由过期清理删除
+     * @param name     导出名称
+     * @param consumer 消费方
+     * @param value    本次导出的最大水位，没有数据时为上次的水位
+     * @param baseFile 追加方式下本次生成的完整文件，其他方式为null
+     */
+    static void update(String name, String consumer, Object value, String baseFile) {
+        WATERMARKS.put(key(name, consumer), new Watermark(value, baseFile));
+    }
+
+    /**
+     * 文件是否是追加方式的完整文件
+     * @param fileName {@link ExportStorage}中的文件名
+     */
+    static boolean contains(String fileName) {
+        return WATERMARKS.values().stream().anyMatch(watermark -> fileName.equals(watermark.baseFile));
+    }
+
+    private static String key(String name, String consumer) {
+        return name + ":" + consumer;
+    }
+
+    /**
+     * 增量导出锁，持有者释放时从锁表中移除
+     * </p>
+     * 只通过tryLock获取，不会有等待的线程；移除后才获取到的锁不在锁表中，由{@link #tryLock(String, String)}重新获取
+     */
+    private static final class KeyLock extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+
+        KeyLock(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void unlock() {
+            // 在释放之前移除，移除后其他请求获取的是新的锁
+            if (getHoldCount() == 1) {
+                LOCKS.remove(this.key, this);
+            }
+            super.unlock();
+        }
+    }
+
+    private static final class Watermark {
+
+        final Object value;
+        final String baseFile;
+
+        Watermark(Object value, String baseFile) {
+            this.value = value;
+            this.baseFile = baseFile;
+        }
+    }
+}
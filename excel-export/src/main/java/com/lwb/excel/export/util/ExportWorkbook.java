@@ -0,0 +1,196 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出使用的SXSSF工作簿
+ * </p>
+ * 行窗口大小、临时文件是否压缩、写入临时文件的间隔可以按导出配置设置；
+ * 统计每个导出写入临时文件的字节数（压缩后），超过磁盘配额时终止导出
+ */
+public final class ExportWorkbook extends SXSSFWorkbook {
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    private static volatile int defaultWindowSize = DEFAULT_WINDOW_SIZE;
+    private static volatile boolean defaultCompressTempFiles = false;
+    private static volatile int defaultTempQuota = 0;
+    private static volatile int defaultFlushInterval = 0;
+
+    private final ExportProgress progress;
+    /**
+     * 临时文件磁盘配额，单位字节，0表示不限制
+     */
+    private final long tempQuota;
+    /**
+     * 是否正在释放临时文件
+     */
+    private volatile boolean disposing;
+
+    private ExportWorkbook(int windowSize, boolean compressTempFiles, boolean sharedStrings, int tempQuota,
+                           ExportProgress progress) {
+        super(null, windowSize, compressTempFiles, sharedStrings);
+        this.progress = progress;
+        this.tempQuota = tempQuota * BYTES_PER_MB;
+    }
+
+    /**
+     * 按导出配置创建工作簿，没有设置的项使用全局默认值
+     * @param config   导出配置
+     * @param progress 导出进度
+     * @return 工作簿
+     */
+    static ExportWorkbook of(ExcelConfig config, ExportProgress progress) {
+        return new ExportWorkbook(
+            Optional.ofNullable(config.getWindowSize()).orElse(defaultWindowSize),
+            Optional.ofNullable(config.getCompressTempFiles()).orElse(defaultCompressTempFiles),
+            Boolean.TRUE.equals(config.getSharedStrings()),
+            Optional.ofNullable(config.getTempQuota()).orElse(defaultTempQuota),
+            progress
+        );
+    }
+
+    /**
+     * 创建多个sheet共用的工作簿
+     * </p>
+     * 行窗口取最大值，任意一个配置压缩时压缩临时文件，磁盘配额为各配置之和；
+     * 共享字符串表不是线程安全的，固定写成内联字符串
+     * @param configs  各sheet的导出配置
+     * @param progress 导出进度
+     * @return 工作簿
+     */
+    static ExportWorkbook of(Collection<ExcelConfig> configs, ExportProgress progress) {
+        int windowSize = configs.stream()
+            .map(ExcelConfig::getWindowSize)
+            .filter(Objects::nonNull)
+            .mapToInt(Integer::intValue)
+            .max()
+            .orElse(defaultWindowSize);
+        boolean compressTempFiles = configs.stream()
+            .map(config -> Optional.ofNullable(config.getCompressTempFiles()).orElse(defaultCompressTempFiles))
+            .anyMatch(Boolean.TRUE::equals);
+        int[] tempQuotas = configs.stream()
+            .mapToInt(config -> Optional.ofNullable(config.getTempQuota()).orElse(defaultTempQuota))
+            .toArray();
+        // 任意一个配置不限制时不限制
+        int tempQuota = Arrays.stream(tempQuotas).anyMatch(quota -> quota <= 0) ? 0 : Arrays.stream(tempQuotas).sum();
+        return new ExportWorkbook(windowSize, compressTempFiles, false, tempQuota, progress);
+    }
+
+    /**
+     * 每写入多少行数据写入一次临时文件
+     * @param config 导出配置
+     * @return 行数，0表示只按行窗口写入
+     */
+    static int flushInterval(ExcelConfig config) {
+        return Math.max(0, Optional.ofNullable(config.getFlushInterval()).orElse(defaultFlushInterval));
+    }
+
+    /**
+     * 设置全局默认值
+     * @param windowSize        行窗口大小，-1表示不限制
+     * @param compressTempFiles 是否压缩临时文件
+     * @param tempQuota         每个导出的临时文件磁盘配额，单位MB，0表示不限制
+     * @param flushInterval     每写入多少行数据写入一次临时文件，0表示只按行窗口写入
+     */
+    public static void setDefaults(int windowSize, boolean compressTempFiles, int tempQuota, int flushInterval) {
+        defaultWindowSize = windowSize;
+        defaultCompressTempFiles = compressTempFiles;
+        defaultTempQuota = tempQuota;
+        defaultFlushInterval = flushInterval;
+    }
+
+    /**
+     * 设置POI临时文件所在的文件夹，可以指向tmpfs等较快的磁盘
+     * @param directory 临时文件夹
+     */
+    public static void setTempDirectory(String directory) {
+        File dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new UtilException(String.format("无法创建临时文件夹：%s", directory));
+        }
+        TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(dir));
+    }
+
+    /**
+     * 释放临时文件
+     * </p>
+     * 释放时会把内存中剩余的行写入临时文件，超过配额后不再抛出异常，否则临时文件不会被删除
+     */
+    @Override
+    public boolean dispose() {
+        this.disposing = true;
+        return super.dispose();
+    }
+
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        return new TempSheetDataWriter(getSharedStringSource());
+    }
+
+    /**
+     * 统计临时文件写入的字节数
+     * </p>
+     * 父类的构造方法中会创建临时文件，只能使用外部类的属性
+     */
+    private class TempSheetDataWriter extends SheetDataWriter {
+
+        TempSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+            super(sharedStringsTable);
+        }
+
+        @Override
+        public File createTempFile() throws IOException {
+            return TempFile.createTempFile("poi-sxssf-sheet", isCompressTempFiles() ? ".xml.gz" : ".xml");
+        }
+
+        @Override
+        protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
+            OutputStream counted = new FilterOutputStream(fos) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    addTempBytes(1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    addTempBytes(len);
+                }
+            };
+            return isCompressTempFiles() ? new GZIPOutputStream(counted) : counted;
+        }
+
+        @Override
+        protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+            return isCompressTempFiles() ? new GZIPInputStream(fis) : fis;
+        }
+    }
+
+    private void addTempBytes(long length) {
+        long tempBytes = this.progress.addTempBytes(length);
+        if (this.tempQuota > 0 && tempBytes > this.tempQuota && !this.disposing) {
+            throw new UtilException(String.format("导出临时文件超过磁盘配额%dMB", this.tempQuota / BYTES_PER_MB));
+        }
+    }
+}
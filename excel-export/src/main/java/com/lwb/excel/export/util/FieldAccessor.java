@@ -0,0 +1,263 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 字段取值器
+ * </p>
+ * 按(类, 字段列表)编译一次后缓存，嵌套字段（例如：classVO.school.name）预先解析成getter调用链，
+ * 取值时直接调用getter，不再反射查找字段
+ */
+final class FieldAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FieldAccessor.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * 已编译的取值器，类 -> 字段列表 -> 每个字段的取值器
+     */
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<List<String>, FieldAccessor[]>> CACHE =
+        new ConcurrentHashMap<>();
+
+    /**
+     * 字段名称
+     */
+    private final String fieldName;
+    /**
+     * getter调用链，依次取值
+     */
+    private final Function<Object, Object>[] getters;
+    /**
+     * 最终字段上JsonFormat注解的日期格式，没有则为null
+     */
+    private final String pattern;
+
+    private FieldAccessor(String fieldName, Function<Object, Object>[] getters, String pattern) {
+        this.fieldName = fieldName;
+        this.getters = getters;
+        this.pattern = pattern;
+    }
+
+    /**
+     * 获取对象所有导出字段的取值器
+     * @param clazz  对象类型
+     * @param fields 字段名称
+     * @return 与fields一一对应的取值器
+     */
+    static FieldAccessor[] of(Class<?> clazz, List<String> fields) {
+        ConcurrentMap<List<String>, FieldAccessor[]> plans =
+            CACHE.computeIfAbsent(clazz, c -> new ConcurrentHashMap<>());
+        FieldAccessor[] accessors = plans.get(fields);
+        if (accessors == null) {
+            List<String> key = Collections.unmodifiableList(new ArrayList<>(fields));
+            accessors = plans.computeIfAbsent(key, k -> compile(clazz, k));
+        }
+        return accessors;
+    }
+
+    /**
+     * 获取字段值
+     * @param obj 对象
+     * @return 字段值，路径中任一对象为null时返回null
+     */
+    Object get(Object obj) {
+        Object value = obj;
+        for (Function<Object, Object> getter : this.getters) {
+            if (value == null) {
+                return null;
+            }
+            value = getter.apply(value);
+        }
+        return value;
+    }
+
+    String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 日期格式
+     * @return JsonFormat注解的pattern，没有设置返回null
+     */
+    String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 编译字段取值器
+     * @param clazz  对象类型
+     * @param fields 字段名称
+     * @return
+     */
+    private static FieldAccessor[] compile(Class<?> clazz, List<String> fields) {
+        return fields.stream()
+            .map(fieldName -> compile(clazz, fieldName))
+            .toArray(FieldAccessor[]::new);
+    }
+
+    /**
+     * 编译单个字段取值器
+     * </p>
+     * 支持获取嵌套对象的值（例如：user.role.name，表示获取user对象中嵌套对象role的name字段的值）；
+     * 路径中的对象是map时，剩余的路径作为key获取值；声明类型中没有的字段，取值时按对象的实际类型查找
+     * @param clazz     对象类型
+     * @param fieldName 字段名称
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private static FieldAccessor compile(Class<?> clazz, String fieldName) {
+        if (StringUtils.isEmpty(fieldName)) {
+            return new FieldAccessor(fieldName, new Function[]{o -> null}, null);
+        }
+        String[] names = StringUtils.split(fieldName, '.');
+        List<Function<Object, Object>> getters = new ArrayList<>(names.length);
+        Class<?> current = clazz;
+        String pattern = null;
+        for (int i = 0; i < names.length; i++) {
+            String rest = StringUtils.join(names, '.', i, names.length);
+            // 如果对象是map 剩余的路径作为key获取值
+            if (Map.class.isAssignableFrom(current)) {
+                getters.add(o -> ((Map) o).get(rest));
+                break;
+            }
+            Optional<Field> found = findField(current, names[i]);
+            if (!found.isPresent() && i > 0) {
+                // 字段的声明类型中没有，例如只在子类中声明，取值时按实际类型获取取值器
+                getters.add(o -> of(o.getClass(), Collections.singletonList(rest))[0].get(o));
+                break;
+            }
+            Field field = found.orElseThrow(() ->
+                new UtilException(String.format("%s中没有找到字段%s", clazz.getName(), names[0])));
+            PropertyDescriptor descriptor = findProperty(current, names[i]);
+            getters.add(getter(field, descriptor));
+            if (i == names.length - 1) {
+                pattern = pattern(field, descriptor);
+            }
+            current = field.getType();
+        }
+        return new FieldAccessor(fieldName, getters.toArray(new Function[0]), pattern);
+    }
+
+    /**
+     * 查找字段，包括父类中声明的字段
+     */
+    private static Optional<Field> findField(Class<?> clazz, String name) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return Optional.of(c.getDeclaredField(name));
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 查找属性描述，没有getter/setter时返回null
+     */
+    private static PropertyDescriptor findProperty(Class<?> clazz, String name) {
+        try {
+            BeanInfo info = Introspector.getBeanInfo(clazz);
+            return Arrays.stream(info.getPropertyDescriptors())
+                .filter(d -> name.equals(d.getName()))
+                .findAny()
+                .orElse(null);
+        } catch (IntrospectionException e) {
+            LOGGER.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 日期格式，依次从字段、setter、getter上查找JsonFormat注解
+     */
+    private static String pattern(Field field, PropertyDescriptor descriptor) {
+        return Optional.ofNullable(field.getAnnotation(JsonFormat.class))
+            .map(Optional::of)
+            .orElseGet(() -> Optional.ofNullable(descriptor)
+                .flatMap(d -> Optional.ofNullable(d.getWriteMethod())
+                    .map(Optional::of)
+                    .orElseGet(() -> Optional.ofNullable(d.getReadMethod())))
+                .map(m -> m.getAnnotation(JsonFormat.class)))
+            .map(JsonFormat::pattern)
+            .filter(StringUtils::isNotEmpty)
+            .orElse(null);
+    }
+
+    /**
+     * 生成getter函数
+     * </p>
+     * 公共getter通过LambdaMetafactory生成直接调用的函数，否则使用字段的MethodHandle
+     */
+    private static Function<Object, Object> getter(Field field, PropertyDescriptor descriptor) {
+        Method read = descriptor == null ? null : descriptor.getReadMethod();
+        if (read != null
+            && Modifier.isPublic(read.getModifiers())
+            && Modifier.isPublic(read.getDeclaringClass().getModifiers())) {
+            try {
+                return lambda(read);
+            } catch (Throwable e) {
+                LOGGER.debug(String.format("fallback to method handle for %s", read), e);
+            }
+        }
+        try {
+            field.setAccessible(true);
+            MethodHandle handle = LOOKUP.unreflectGetter(field)
+                .asType(MethodType.methodType(Object.class, Object.class));
+            return obj -> {
+                try {
+                    return handle.invokeExact(obj);
+                } catch (Throwable e) {
+                    throw new UtilException(e.getMessage());
+                }
+            };
+        } catch (IllegalAccessException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new UtilException(e.getMessage());
+        }
+    }
+
+    /**
+     * 使用LambdaMetafactory将getter编译成Function
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> lambda(Method read) throws Throwable {
+        MethodHandle handle = LOOKUP.unreflect(read);
+        CallSite site = LambdaMetafactory.metafactory(
+            LOOKUP,
+            "apply",
+            MethodType.methodType(Function.class),
+            MethodType.methodType(Object.class, Object.class),
+            handle,
+            handle.type().wrap()
+        );
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+}
@@ -0,0 +1,120 @@
+package com.lwb.excel.export.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 导出配置中每个字段的格式
+ * </p>
+ * 按{@link ExcelConfig#getFormats()}在编译{@link ExcelLayout}时解析一次，多个导出共用，与字段一一对应，包括格式、对齐方式、列宽和值转换；
+ * 没有配置格式的字段使用字段上JsonFormat注解的格式，参见{@link FieldAccessor#getPattern()}
+ */
+final class FieldFormats {
+
+    private final String[] patterns;
+    private final HorizontalAlignment[] aligns;
+    private final int[] widths;
+    private final ValueConverter[] converters;
+
+    private FieldFormats(String[] patterns, HorizontalAlignment[] aligns, int[] widths, ValueConverter[] converters) {
+        this.patterns = patterns;
+        this.aligns = aligns;
+        this.widths = widths;
+        this.converters = converters;
+    }
+
+    /**
+     * 解析导出配置中各字段的格式
+     * @param config 导出配置
+     * @return
+     */
+    static FieldFormats of(ExcelConfig config) {
+        List<String> fields = config.getFields();
+        String[] patterns = new String[fields.size()];
+        HorizontalAlignment[] aligns = new HorizontalAlignment[fields.size()];
+        int[] widths = new int[fields.size()];
+        ValueConverter[] converters = new ValueConverter[fields.size()];
+        Map<String, ExcelConfig.FieldFormat> formats = config.getFormats();
+        if (formats != null) {
+            for (int i = 0; i < fields.size(); i++) {
+                ExcelConfig.FieldFormat format = formats.get(fields.get(i));
+                if (format != null) {
+                    patterns[i] = StringUtils.defaultIfEmpty(format.getPattern(), null);
+                    aligns[i] = format.getAlign();
+                    widths[i] = Optional.ofNullable(format.getWidth()).orElse(0);
+                    converters[i] = converter(format);
+                }
+            }
+        }
+        return new FieldFormats(patterns, aligns, widths, converters);
+    }
+
+    /**
+     * 转换字段值
+     * @param column 字段序号
+     * @param value  字段值
+     * @return 没有配置转换时返回原值
+     */
+    Object convert(int column, Object value) {
+        ValueConverter converter = this.converters[column];
+        return value == null || converter == null ? value : converter.convert(value);
+    }
+
+    /**
+     * 字段的格式，日期字段为日期格式，数字字段为数字格式
+     * @param column   字段序号
+     * @param accessor 字段取值器
+     * @return 没有配置时返回JsonFormat注解的格式，都没有时返回null
+     */
+    String pattern(int column, FieldAccessor accessor) {
+        String pattern = this.patterns[column];
+        return pattern != null ? pattern : accessor.getPattern();
+    }
+
+    /**
+     * 字段的水平对齐方式
+     * @param column 字段序号
+     * @return 没有配置时返回null
+     */
+    HorizontalAlignment align(int column) {
+        return this.aligns[column];
+    }
+
+    /**
+     * 各字段的列宽
+     * @return 单位为字符数，0表示默认列宽
+     */
+    int[] widths() {
+        return this.widths.clone();
+    }
+
+    /**
+     * 先使用转换器转换，再按名称映射，枚举按name()映射，其他类型按toString()映射，没有映射的值不变
+     */
+    private static ValueConverter converter(ExcelConfig.FieldFormat format) {
+        ValueConverter converter = Optional.ofNullable(format.getConverter())
+            .filter(StringUtils::isNotEmpty)
+            .map(ExportFormatters::converter)
+            .orElse(null);
+        Map<String, String> labels = format.getLabels();
+        if (labels == null || labels.isEmpty()) {
+            return converter;
+        }
+        ValueConverter label = value -> {
+            String key = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+            String name = labels.get(key);
+            return name == null ? value : name;
+        };
+        if (converter == null) {
+            return label;
+        }
+        return value -> {
+            Object converted = converter.convert(value);
+            return converted == null ? null : label.convert(converted);
+        };
+    }
+}
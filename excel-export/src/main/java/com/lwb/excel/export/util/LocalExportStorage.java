@@ -0,0 +1,115 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘存储
+ * </p>
+ * 先写入同目录下的临时文件，写入成功后重命名为目标文件，读取时不会读到未写完的文件
+ */
+public class LocalExportStorage implements ExportStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalExportStorage.class);
+
+    /**
+     * 读写文件的缓冲区大小
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * 未写完的文件后缀
+     */
+    private static final String PART_SUFFIX = ".part";
+
+    private final File directory;
+
+    public LocalExportStorage(File directory) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new UtilException(String.format("无法创建导出文件夹：%s", directory));
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public void save(String fileName, Content content) throws Exception {
+        File file = getFile(fileName);
+        File part = new File(this.directory, fileName + PART_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(part), BUFFER_SIZE)) {
+                content.write(out);
+            }
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // 删除生成失败的文件
+            part.delete();
+            throw e;
+        }
+    }
+
+    @Override
+    public long length(String fileName) throws IOException {
+        File file = getFile(fileName);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(fileName);
+        }
+        return file.length();
+    }
+
+    @Override
+    public void transferTo(String fileName, long position, long count, OutputStream out) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(getFile(fileName), "r")) {
+            file.seek(position);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = count;
+            int len;
+            while (remaining > 0 && (len = file.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                out.write(buffer, 0, len);
+                remaining -= len;
+            }
+        }
+    }
+
+    @Override
+    public void delete(String fileName) throws IOException {
+        Files.deleteIfExists(getFile(fileName).toPath());
+    }
+
+    @Override
+    public void deleteExpired(long expireTime, Predicate<String> retained) {
+        Optional.ofNullable(this.directory.listFiles())
+            .map(Stream::of)
+            .orElseGet(Stream::empty)
+            .filter(File::isFile)
+            .filter(file -> file.lastModified() < expireTime)
+            .filter(file -> !retained.test(file.getName()))
+            .filter(File::delete)
+            .forEach(file -> LOGGER.debug(String.format("file %s deleted!", file)));
+    }
+
+    /**
+     * 获取文件，文件名不能包含路径
+     * @param fileName 文件名
+     * @return 文件
+     */
+    protected File getFile(String fileName) throws FileNotFoundException {
+        File file = new File(this.directory, fileName);
+        if (!this.directory.equals(file.getParentFile())) {
+            throw new FileNotFoundException(fileName);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,171 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+/**
+ * 分片并行查询的数据源
+ * </p>
+ * 数据按主键范围或分页拆成多个分片，在查询线程池中并行查询，再由写入excel的线程按分片顺序逐行写入。
+ * 分片在写入时才逐个生成，主键稀疏（例如雪花id）时分片数很多也不会预先占用内存；
+ * 查询中、已查询未写入和正在写入的分片合计不超过并行数，查询不会跑在写入前面太多，内存占用有上限
+ */
+public class PartitionedSource<P> implements RowSource {
+
+    /**
+     * 分片，按顺序写入，每次导出重新遍历
+     */
+    private final Iterable<P> partitions;
+    /**
+     * 查询一个分片的数据，分片内的数据需要有序
+     */
+    private final Function<P, List<?>> fetcher;
+    /**
+     * 同时查询的分片数
+     */
+    private final int parallelism;
+
+    public PartitionedSource(Iterable<P> partitions, Function<P, List<?>> fetcher, int parallelism) {
+        this.partitions = partitions;
+        this.fetcher = fetcher;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 按主键范围分片
+     * </p>
+     * 例如：min=1, max=25, step=10，分片为[1,11)、[11,21)、[21,26)
+     * @param min         最小主键，为null时表示没有数据
+     * @param max         最大主键，为null时表示没有数据
+     * @param step        每个分片的主键跨度
+     * @param fetcher     查询[from, to)范围内的数据，按主键排序
+     * @param parallelism 同时查询的分片数
+     * @return
+     */
+    public static RowSource byKeyRange(Long min, Long max, long step,
+                                       BiFunction<Long, Long, List<?>> fetcher, int parallelism) {
+        if (min == null || max == null) {
+            return RowSource.of(Collections.emptyList());
+        }
+        if (step <= 0) {
+            throw new UtilException("分片的主键跨度必须大于0");
+        }
+        if (max == Long.MAX_VALUE) {
+            // 分片的结束主键不包含在内，无法表示
+            throw new UtilException("最大主键不能为Long.MAX_VALUE");
+        }
+        return new PartitionedSource<>(
+            () -> new KeyRanges(min, max, step),
+            range -> fetcher.apply(range[0], range[1]),
+            parallelism
+        );
+    }
+
+    /**
+     * 按分页分片
+     * @param total       总条数
+     * @param pageSize    每页条数
+     * @param fetcher     查询(offset, limit)的数据，需要稳定排序
+     * @param parallelism 同时查询的分片数
+     * @return
+     */
+    public static RowSource byPage(long total, int pageSize,
+                                   BiFunction<Long, Integer, List<?>> fetcher, int parallelism) {
+        if (pageSize <= 0) {
+            throw new UtilException("每页条数必须大于0");
+        }
+        Iterable<Long> offsets = () -> LongStream.iterate(0, offset -> offset + pageSize)
+            .limit(total <= 0 ? 0 : (total - 1) / pageSize + 1)
+            .iterator();
+        return new PartitionedSource<>(offsets, offset -> fetcher.apply(offset, pageSize), parallelism);
+    }
+
+    @Override
+    public void forEach(Consumer<Object> consumer) throws Exception {
+        Iterator<P> iterator = this.partitions.iterator();
+        Deque<Future<List<?>>> fetching = new ArrayDeque<>(this.parallelism);
+        try {
+            while (fetching.size() < this.parallelism && iterator.hasNext()) {
+                fetching.add(fetch(iterator.next()));
+            }
+            while (!fetching.isEmpty()) {
+                // 按分片顺序等待查询结果，写完一个分片再提交下一个分片的查询
+                List<?> rows = await(fetching.poll());
+                Optional.ofNullable(rows).ifPresent(r -> r.forEach(consumer));
+                if (iterator.hasNext()) {
+                    fetching.add(fetch(iterator.next()));
+                }
+            }
+        } finally {
+            fetching.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Future<List<?>> fetch(P partition) {
+        return ExportExecutors.fetch().submit(() -> this.fetcher.apply(partition));
+    }
+
+    private static List<?> await(Future<List<?>> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new UtilException(cause.getMessage());
+        } catch (CancellationException e) {
+            throw new UtilException("分片查询被取消");
+        }
+    }
+
+    /**
+     * 按主键跨度逐个生成的分片[from, to)
+     */
+    private static final class KeyRanges implements Iterator<long[]> {
+
+        private final long max;
+        private final long step;
+        private long from;
+        private boolean done;
+
+        KeyRanges(long min, long max, long step) {
+            this.max = max;
+            this.step = step;
+            this.from = min;
+            this.done = min > max;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.done;
+        }
+
+        @Override
+        public long[] next() {
+            if (this.done) {
+                throw new NoSuchElementException();
+            }
+            long from = this.from;
+            // from + step溢出或超过最大主键时为最后一个分片
+            long to = from > this.max - this.step ? this.max + 1 : from + this.step;
+            this.done = to > this.max;
+            this.from = to;
+            return new long[]{from, to};
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.lwb.excel.export.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用平台线程的线程池工厂，线程为守护线程
+ */
+public final class PlatformExecutorFactory implements ExportExecutorFactory {
+
+    @Override
+    public ThreadFactory threadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
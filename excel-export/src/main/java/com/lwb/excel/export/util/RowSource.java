@@ -0,0 +1,83 @@
+package com.lwb.excel.export.util;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 导出数据源
+ * </p>
+ * 以逐行推送的方式提供数据，数据边查询边写入excel，不需要一次性加载到内存中
+ */
+@FunctionalInterface
+public interface RowSource {
+
+    /**
+     * 依次处理每一行数据
+     * @param consumer 行数据处理函数
+     * @throws Exception 读取数据失败
+     */
+    void forEach(Consumer<Object> consumer) throws Exception;
+
+    /**
+     * 集合数据源
+     * @param iterable 已加载的数据，可以为null
+     * @return
+     */
+    static RowSource of(Iterable<?> iterable) {
+        return consumer -> Optional.ofNullable(iterable)
+            .ifPresent(i -> i.forEach(consumer));
+    }
+
+    /**
+     * 迭代器数据源
+     * @param iterator 迭代器
+     * @return
+     */
+    static RowSource of(Iterator<?> iterator) {
+        return iterator::forEachRemaining;
+    }
+
+    /**
+     * 流数据源，读取完毕后关闭流
+     * @param stream 数据流
+     * @return
+     */
+    static RowSource of(Stream<?> stream) {
+        return consumer -> {
+            try (Stream<?> s = stream) {
+                s.forEachOrdered(consumer);
+            }
+        };
+    }
+
+    /**
+     * mybatis游标数据源，读取完毕后关闭游标
+     * </p>
+     * 游标依赖打开的SqlSession，需要在事务中调用mapper方法获取游标
+     * @param cursor 游标
+     * @return
+     */
+    static RowSource of(Cursor<?> cursor) {
+        return consumer -> {
+            try (Cursor<?> c = cursor) {
+                c.forEach(consumer);
+            }
+        };
+    }
+
+    /**
+     * mybatis ResultHandler数据源
+     * </p>
+     * 例如：RowSource.ofHandler(userMapper::streamUserList)，结果集每返回一行就写入一行
+     * @param query 使用ResultHandler的查询方法
+     * @return
+     */
+    static <T> RowSource ofHandler(Consumer<ResultHandler<T>> query) {
+        return consumer -> query.accept(context -> consumer.accept(context.getResultObject()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * SXSSF的数据行写入器
+ * </p>
+ * 每条数据一行，行号由计数器维护，不再每次从sheet中统计行数；
+ * 写满{@link ExcelConfig#getMaxRowsPerSheet()}后创建新的sheet继续写入，
+ * 每写入{@link ExcelConfig#getFlushInterval()}行将内存中的行写入临时文件，行窗口不限制时内存占用也不会随行数增长
+ */
+final class RowWriter {
+
+    private final int maxRows;
+    private final int flushInterval;
+    /**
+     * 第几个sheet（从1开始） -> 已绘制表头的sheet
+     */
+    private final IntFunction<SXSSFSheet> sheetFactory;
+    private final List<SXSSFSheet> sheets = new ArrayList<>();
+    private SXSSFSheet sheet;
+    /**
+     * 当前sheet中下一行的行号
+     */
+    private int rowIndex;
+    /**
+     * 上次写入临时文件后新增的行数
+     */
+    private int unflushed;
+
+    /**
+     * @param maxRows       每个sheet的最大行数（包括表头）
+     * @param flushInterval 每写入多少行写入一次临时文件，0表示只按行窗口写入
+     * @param sheetFactory  创建sheet并绘制表头
+     */
+    RowWriter(int maxRows, int flushInterval, IntFunction<SXSSFSheet> sheetFactory) {
+        this.maxRows = maxRows;
+        this.flushInterval = flushInterval;
+        this.sheetFactory = sheetFactory;
+        newSheet();
+    }
+
+    /**
+     * 创建下一行，当前sheet已写满时切换到新的sheet
+     * @return 新的一行，单元格按列号创建
+     */
+    SXSSFRow next() {
+        if (this.rowIndex >= this.maxRows) {
+            // 写满的sheet不会再修改，剩余的行直接写入临时文件
+            if (this.flushInterval > 0) {
+                flush();
+            }
+            newSheet();
+        }
+        if (this.flushInterval > 0 && this.unflushed >= this.flushInterval) {
+            flush();
+        }
+        this.unflushed++;
+        return this.sheet.createRow(this.rowIndex++);
+    }
+
+    /**
+     * 已创建的sheet
+     */
+    List<SXSSFSheet> getSheets() {
+        return this.sheets;
+    }
+
+    private void newSheet() {
+        this.sheet = this.sheetFactory.apply(this.sheets.size() + 1);
+        this.sheets.add(this.sheet);
+        // 表头行数只在创建sheet时统计一次
+        this.rowIndex = this.sheet.getPhysicalNumberOfRows();
+        this.unflushed = 0;
+    }
+
+    private void flush() {
+        try {
+            this.sheet.flushRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.unflushed = 0;
+    }
+}
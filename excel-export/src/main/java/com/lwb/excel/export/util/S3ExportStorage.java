@@ -0,0 +1,533 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * S3兼容的对象存储，例如AWS S3、MinIO
+ * </p>
+ * 使用路径风格访问，请求按AWS Signature Version 4签名，不依赖AWS SDK。
+ * 保存时边生成边上传：内存中只保留一个分片，写满后作为分片上传，小于一个分片的文件直接上传；
+ * 生成失败时取消分片上传。下载时按Range读取对象，断点续传不需要读取整个文件
+ * </p>
+ * 多个节点共用bucket时，对象元数据中记录生成它的节点，每个节点只清理前缀下自己生成的导出文件，
+ * 其他节点缓存的结果和增量导出的基础文件由其他节点判断是否保留
+ */
+public class S3ExportStorage implements ExportStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3ExportStorage.class);
+
+    /**
+     * S3分片上传的最小分片大小
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final int TIMEOUT = 60 * 1000;
+    /**
+     * 记录生成节点的对象元数据
+     */
+    static final String NODE_HEADER = "x-amz-meta-export-node";
+
+    private final String endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    /**
+     * 对象名前缀，用于多个应用共用一个bucket
+     */
+    private final String prefix;
+    /**
+     * 当前节点的标识
+     */
+    private final String node;
+    private final int partSize;
+
+    /**
+     * @param endpoint  服务地址，例如：http://localhost:9000
+     * @param region    区域，MinIO可以使用us-east-1
+     * @param bucket    bucket名称
+     * @param accessKey access key
+     * @param secretKey secret key
+     * @param prefix    对象名前缀，不能为空，清理过期文件时只处理前缀下的对象
+     * @param node      节点标识，共用bucket的节点各不相同
+     * @param partSize  分片大小，单位字节，不能小于{@link #MIN_PART_SIZE}
+     */
+    public S3ExportStorage(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                           String prefix, String node, int partSize) {
+        if (StringUtils.isAnyEmpty(endpoint, region, bucket, accessKey, secretKey, node)) {
+            throw new UtilException("S3存储配置信息不完整");
+        }
+        if (StringUtils.isEmpty(prefix)) {
+            throw new UtilException("S3存储的对象名前缀不能为空");
+        }
+        this.endpoint = StringUtils.removeEnd(endpoint, "/");
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.prefix = prefix;
+        this.node = node;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+    }
+
+    @Override
+    public void save(String fileName, Content content) throws Exception {
+        MultipartUpload upload = new MultipartUpload(this.prefix + fileName);
+        try {
+            content.write(upload);
+            upload.close();
+        } catch (Exception e) {
+            upload.abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public long length(String fileName) throws IOException {
+        HttpURLConnection connection = request("HEAD", this.prefix + fileName, null, null, 0, Collections.emptyMap());
+        try {
+            check(connection, fileName);
+            return connection.getContentLengthLong();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void transferTo(String fileName, long position, long count, OutputStream out) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        HttpURLConnection connection = request("GET", this.prefix + fileName, null, null, 0,
+            Collections.singletonMap(ExcelUtils.Headers.RANGE, String.format("bytes=%d-%d", position, position + count - 1)));
+        try {
+            check(connection, fileName);
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[LocalExportStorage.BUFFER_SIZE];
+                // 不支持Range的服务返回整个对象，跳过起始位置之前的内容
+                long skip = connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL ? 0 : position;
+                while (skip > 0) {
+                    int len = in.read(buffer, 0, (int) Math.min(buffer.length, skip));
+                    if (len < 0) {
+                        return;
+                    }
+                    skip -= len;
+                }
+                long remaining = count;
+                int len;
+                while (remaining > 0 && (len = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                    out.write(buffer, 0, len);
+                    remaining -= len;
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void delete(String fileName) throws IOException {
+        execute("DELETE", this.prefix + fileName, null, null);
+    }
+
+    @Override
+    public void deleteExpired(long expireTime, Predicate<String> retained) throws IOException {
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", this.prefix);
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            Document result = parse(execute("GET", "", query, null));
+            NodeList contents = result.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                String key = text(object, "Key");
+                String fileName = key.substring(this.prefix.length());
+                // 只清理导出生成的、由当前节点生成的文件
+                if (ExportStorage.FILE_NAME.matcher(fileName).matches()
+                    && Instant.parse(text(object, "LastModified")).toEpochMilli() < expireTime
+                    && !retained.test(fileName) && this.node.equals(node(key))) {
+                    execute("DELETE", key, null, null);
+                    LOGGER.debug(String.format("object %s deleted!", key));
+                }
+            }
+            continuationToken = "true".equals(text(result.getDocumentElement(), "IsTruncated"))
+                ? text(result.getDocumentElement(), "NextContinuationToken")
+                : null;
+        } while (continuationToken != null);
+    }
+
+    /**
+     * 读取生成对象的节点
+     * @return 节点标识，对象已删除或没有记录时为null
+     */
+    private String node(String key) throws IOException {
+        HttpURLConnection connection = request("HEAD", key, null, null, 0, Collections.emptyMap());
+        try {
+            check(connection, key);
+            return connection.getHeaderField(NODE_HEADER);
+        } catch (FileNotFoundException e) {
+            return null;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 分片上传
+     * </p>
+     * 写满一个分片后上传，关闭时上传剩余内容并完成上传
+     */
+    private class MultipartUpload extends OutputStream {
+
+        private final String key;
+        private final byte[] buffer = new byte[partSize];
+        private int position;
+        private String uploadId;
+        private final List<String> etags = new ArrayList<>();
+
+        MultipartUpload(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.position == this.buffer.length) {
+                uploadPart();
+            }
+            this.buffer[this.position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (this.position == this.buffer.length) {
+                    uploadPart();
+                }
+                int count = Math.min(len, this.buffer.length - this.position);
+                System.arraycopy(b, off, this.buffer, this.position, count);
+                this.position += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.uploadId == null) {
+                // 小于一个分片，直接上传
+                execute("PUT", this.key, null, this.buffer, this.position, Collections.singletonMap(NODE_HEADER, node));
+                return;
+            }
+            if (this.position > 0) {
+                uploadPart();
+            }
+            StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < this.etags.size(); i++) {
+                xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(this.etags.get(i)).append("</ETag></Part>");
+            }
+            xml.append("</CompleteMultipartUpload>");
+            Map<String, String> query = new TreeMap<>();
+            query.put("uploadId", this.uploadId);
+            execute("POST", this.key, query, xml.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * 取消分片上传，删除已上传的分片
+         */
+        void abort() {
+            if (this.uploadId == null) {
+                return;
+            }
+            Map<String, String> query = new TreeMap<>();
+            query.put("uploadId", this.uploadId);
+            try {
+                execute("DELETE", this.key, query, null);
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+
+        private void uploadPart() throws IOException {
+            if (this.uploadId == null) {
+                Map<String, String> query = new TreeMap<>();
+                query.put("uploads", "");
+                this.uploadId = text(parse(execute("POST", this.key, query, null, 0,
+                    Collections.singletonMap(NODE_HEADER, node))).getDocumentElement(), "UploadId");
+            }
+            Map<String, String> query = new TreeMap<>();
+            query.put("partNumber", String.valueOf(this.etags.size() + 1));
+            query.put("uploadId", this.uploadId);
+            // 直接发送缓冲区中已写入的部分，不复制分片
+            HttpURLConnection connection = request("PUT", this.key, query, this.buffer, this.position, Collections.emptyMap());
+            try {
+                check(connection, this.key);
+                this.etags.add(connection.getHeaderField("ETag"));
+            } finally {
+                connection.disconnect();
+            }
+            this.position = 0;
+        }
+    }
+
+    /**
+     * 发送请求并读取响应内容
+     */
+    private byte[] execute(String method, String key, Map<String, String> query, byte[] body) throws IOException {
+        return execute(method, key, query, body, body == null ? 0 : body.length, Collections.emptyMap());
+    }
+
+    /**
+     * 发送请求并读取响应内容
+     * @param length  请求内容的长度，只发送body的前length个字节
+     * @param headers 其他请求头
+     */
+    private byte[] execute(String method, String key, Map<String, String> query, byte[] body, int length,
+                           Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = request(method, key, query, body, length, headers);
+        try {
+            check(connection, key);
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, len);
+                }
+                return out.toByteArray();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 创建签名后的请求
+     * @param method  请求方法
+     * @param key     对象名，为空时请求bucket
+     * @param query   请求参数
+     * @param body    请求内容
+     * @param length  请求内容的长度，只发送body的前length个字节
+     * @param headers 其他请求头，一起参与签名
+     * @return 已发送请求内容的连接
+     */
+    private HttpURLConnection request(String method, String key, Map<String, String> query, byte[] body, int length,
+                                      Map<String, String> headers) throws IOException {
+        String path = "/" + encode(this.bucket, false) + (key.isEmpty() ? "/" : "/" + encode(key, true));
+        StringBuilder canonicalQuery = new StringBuilder();
+        if (query != null) {
+            new TreeMap<>(query).forEach((name, value) -> canonicalQuery
+                .append(canonicalQuery.length() == 0 ? "" : "&")
+                .append(encode(name, false)).append('=').append(encode(value, false)));
+        }
+        URL url = new URL(this.endpoint + path + (canonicalQuery.length() == 0 ? "" : "?" + canonicalQuery));
+        String host = url.getPort() == -1 || url.getPort() == url.getDefaultPort() ? url.getHost() : url.getHost() + ":" + url.getPort();
+        String payloadHash = body == null ? EMPTY_SHA256 : hex(sha256(body, length));
+        String amzDate = AMZ_DATE.format(Instant.now());
+
+        Map<String, String> signedHeaders = new TreeMap<>();
+        headers.forEach((name, value) -> signedHeaders.put(name.toLowerCase(Locale.ROOT), value));
+        signedHeaders.put("host", host);
+        signedHeaders.put("x-amz-content-sha256", payloadHash);
+        signedHeaders.put("x-amz-date", amzDate);
+        String canonicalRequest = canonicalRequest(method, path, canonicalQuery.toString(), signedHeaders, payloadHash);
+        String scope = scope(amzDate, this.region, SERVICE);
+        String signature = signature(this.secretKey, amzDate, scope, canonicalRequest);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setRequestProperty("x-amz-content-sha256", payloadHash);
+        connection.setRequestProperty("x-amz-date", amzDate);
+        connection.setRequestProperty("Authorization", String.format("%s Credential=%s/%s, SignedHeaders=%s, Signature=%s",
+            ALGORITHM, this.accessKey, scope, String.join(";", signedHeaders.keySet()), signature));
+        headers.forEach(connection::setRequestProperty);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body, 0, length);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * 生成Signature Version 4的规范请求
+     * @param method         请求方法
+     * @param path           编码后的路径
+     * @param canonicalQuery 按参数名排序并编码后的请求参数
+     * @param headers        参与签名的请求头，名称为小写并按名称排序
+     * @param payloadHash    请求内容的sha256
+     * @return 规范请求
+     */
+    static String canonicalRequest(String method, String path, String canonicalQuery, Map<String, String> headers,
+                                   String payloadHash) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        return method + "\n" + path + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n"
+            + String.join(";", headers.keySet()) + "\n" + payloadHash;
+    }
+
+    /**
+     * 签名范围
+     * @param amzDate x-amz-date，例如：20150830T123600Z
+     * @param region  区域
+     * @param service 服务名称
+     */
+    static String scope(String amzDate, String region, String service) {
+        return amzDate.substring(0, 8) + "/" + region + "/" + service + "/aws4_request";
+    }
+
+    /**
+     * 计算Signature Version 4签名
+     * @param secretKey        secret key
+     * @param amzDate          x-amz-date
+     * @param scope            签名范围，参见{@link #scope(String, String, String)}
+     * @param canonicalRequest 规范请求
+     * @return 签名
+     */
+    static String signature(String secretKey, String amzDate, String scope, String canonicalRequest) {
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+            + hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+        for (String part : scope.split("/")) {
+            signingKey = hmac(signingKey, part);
+        }
+        return hex(hmac(signingKey, stringToSign));
+    }
+
+    /**
+     * 检查响应状态
+     */
+    private static void check(HttpURLConnection connection, String key) throws IOException {
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            throw new FileNotFoundException(key);
+        }
+        if (status >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            String error = "";
+            InputStream in = connection.getErrorStream();
+            if (in != null) {
+                try (InputStream errorStream = in) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int len;
+                    while ((len = errorStream.read(buffer)) > 0) {
+                        out.write(buffer, 0, len);
+                    }
+                    error = new String(out.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            throw new IOException(String.format("S3 %s %s failed: %d %s", connection.getRequestMethod(), key, status, error));
+        }
+    }
+
+    private static Document parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new java.io.ByteArrayInputStream(xml));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static String text(Element element, String tagName) {
+        NodeList nodes = element.getElementsByTagName(tagName);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+
+    /**
+     * 按RFC 3986编码，只保留非保留字符
+     * @param value     待编码的值
+     * @param keepSlash 是否保留“/”
+     */
+    static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xf, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return sha256(data, data.length);
+    }
+
+    private static byte[] sha256(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return digest.digest();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 工作簿的样式池
+ * </p>
+ * 按{@link StyleSpec}创建样式，相同属性在同一个工作簿中只创建一次，字体同样只创建一次；
+ * 写入单元格时只查找已创建的样式，不会因为逐个单元格创建样式超过xlsx的样式数上限。
+ * 可以被同一工作簿中并行生成的多个sheet共用
+ */
+final class StylePool {
+
+    private final Workbook book;
+    private final Map<StyleSpec, CellStyle> styles = new ConcurrentHashMap<>();
+    private Font headerFont;
+
+    StylePool(Workbook book) {
+        this.book = book;
+    }
+
+    Workbook getBook() {
+        return book;
+    }
+
+    /**
+     * 获取样式，没有时创建
+     * @param spec 样式属性
+     * @return
+     */
+    CellStyle get(StyleSpec spec) {
+        CellStyle style = this.styles.get(spec);
+        return style != null ? style : this.styles.computeIfAbsent(spec, this::create);
+    }
+
+    private CellStyle create(StyleSpec spec) {
+        // 样式表属于整个工作簿，并行生成sheet时需要同步
+        synchronized (this.book) {
+            CellStyle style = this.book.createCellStyle();
+            if (spec.getPattern() != null) {
+                style.setDataFormat(this.book.createDataFormat().getFormat(spec.getPattern()));
+            }
+            if (spec.getAlign() != null) {
+                style.setAlignment(spec.getAlign());
+            }
+            if (spec.isHeader()) {
+                style.setBorderBottom(BorderStyle.THIN);
+                style.setBorderLeft(BorderStyle.THIN);
+                style.setBorderTop(BorderStyle.THIN);
+                style.setBorderRight(BorderStyle.THIN);
+                style.setFillForegroundColor(IndexedColors.SKY_BLUE.index);
+                style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+                // 单元格垂直方向样式
+                style.setVerticalAlignment(VerticalAlignment.CENTER);
+                // 自动换行
+                style.setWrapText(true);
+                style.setFont(headerFont());
+            }
+            return style;
+        }
+    }
+
+    private Font headerFont() {
+        if (this.headerFont == null) {
+            this.headerFont = this.book.createFont();
+            this.headerFont.setBold(true);
+        }
+        return this.headerFont;
+    }
+}
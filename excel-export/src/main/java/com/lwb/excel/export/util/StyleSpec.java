@@ -0,0 +1,85 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 单元格样式的属性
+ * </p>
+ * 相同属性的样式只有一个实例，全局缓存，可以按引用比较；
+ * 每个工作簿按属性创建一次样式，参见{@link StylePool}
+ */
+final class StyleSpec {
+
+    /**
+     * 表头样式：粗体、天蓝色背景、细边框、居中、自动换行
+     */
+    static final StyleSpec HEADER = new StyleSpec(null, HorizontalAlignment.CENTER, true);
+
+    /**
+     * 对齐方式 -> 格式 -> 样式属性，没有格式时key为空字符串
+     */
+    private static final ConcurrentMap<HorizontalAlignment, ConcurrentMap<String, StyleSpec>> ALIGNED =
+        new ConcurrentHashMap<>();
+    /**
+     * 没有设置对齐方式的样式属性
+     */
+    private static final ConcurrentMap<String, StyleSpec> UNALIGNED = new ConcurrentHashMap<>();
+
+    /**
+     * 日期或数字格式，为null时使用常规格式
+     */
+    private final String pattern;
+    /**
+     * 水平对齐方式，为null时使用默认对齐方式
+     */
+    private final HorizontalAlignment align;
+    private final boolean header;
+
+    private StyleSpec(String pattern, HorizontalAlignment align, boolean header) {
+        this.pattern = pattern;
+        this.align = align;
+        this.header = header;
+    }
+
+    /**
+     * 获取数据单元格的样式属性，查找时不创建对象
+     * @param pattern 日期或数字格式
+     * @param align   水平对齐方式
+     * @return 都为null时返回null，使用默认样式
+     */
+    static StyleSpec of(String pattern, HorizontalAlignment align) {
+        if (pattern == null && align == null) {
+            return null;
+        }
+        ConcurrentMap<String, StyleSpec> specs = align == null
+            ? UNALIGNED
+            : ALIGNED.computeIfAbsent(align, a -> new ConcurrentHashMap<>());
+        String key = pattern == null ? ExcelUtils.Constant.EMPTY : pattern;
+        StyleSpec spec = specs.get(key);
+        return spec != null ? spec : specs.computeIfAbsent(key, k -> new StyleSpec(pattern, align, false));
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    HorizontalAlignment getAlign() {
+        return align;
+    }
+
+    boolean isHeader() {
+        return header;
+    }
+
+    /**
+     * xlsx中水平对齐方式的取值
+     */
+    Optional<String> getXmlAlign() {
+        return Optional.ofNullable(this.align)
+            .map(a -> a == HorizontalAlignment.CENTER_SELECTION ? "centerContinuous" : a.name().toLowerCase());
+    }
+}
@@ -0,0 +1,18 @@
+package com.lwb.excel.export.util;
+
+/**
+ * 字段值转换器
+ * </p>
+ * 在{@link ExcelConfig#getFormats()}中按字段配置实现类的全限定名，写入单元格前转换字段值，
+ * 例如将状态码转换为名称；实现类需要有公共的无参构造方法，每个类只创建一个实例，需要线程安全
+ */
+@FunctionalInterface
+public interface ValueConverter {
+
+    /**
+     * 转换字段值
+     * @param value 字段值，不为null
+     * @return 写入单元格的值，按转换后的类型写入
+     */
+    Object convert(Object value);
+}
@@ -0,0 +1,96 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 异步下载使用虚拟线程的线程池工厂
+ * </p>
+ * 项目按jdk8编译，通过反射调用jdk21的Thread.ofVirtual()和Executors.newThreadPerTaskExecutor()；
+ * 只有异步下载的线程池每个任务一个虚拟线程，向慢速客户端写入时让出平台线程。
+ * 导出调度、分片查询和sheet生成仍使用平台线程：JDBC驱动和导出中的synchronized、wait()会使虚拟线程固定在平台线程上，
+ * 改用虚拟线程不会减少平台线程的占用，反而可能耗尽虚拟线程的调度线程
+ */
+public final class VirtualExecutorFactory implements ExportExecutorFactory {
+
+    /**
+     * Thread.ofVirtual()，不支持时为null
+     */
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // jdk19、20中虚拟线程为预览特性，没有开启时调用抛出UnsupportedOperationException
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private final PlatformExecutorFactory platform = new PlatformExecutorFactory();
+
+    /**
+     * 当前jdk是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    public VirtualExecutorFactory() {
+        if (!isSupported()) {
+            throw new UtilException("当前jdk不支持虚拟线程：" + System.getProperty("java.version"));
+        }
+    }
+
+    @Override
+    public ThreadFactory threadFactory(String prefix) {
+        return this.platform.threadFactory(prefix);
+    }
+
+    /**
+     * 创建虚拟线程的线程工厂
+     * @param prefix 线程名前缀
+     * @return 线程工厂
+     */
+    ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 1L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UtilException("无法创建虚拟线程：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 每个异步下载一个虚拟线程，阻塞时不占用平台线程，不需要限制线程数
+     */
+    @Override
+    public ExecutorService newRequestPool(String prefix, int maxThreads) {
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, virtualThreadFactory(prefix));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UtilException("无法创建虚拟线程：" + e.getMessage());
+        }
+    }
+}
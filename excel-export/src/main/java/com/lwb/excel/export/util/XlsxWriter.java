@@ -0,0 +1,796 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.lwb.excel.export.util.CellWriter.EXCEL_MIN_DATE;
+import static com.lwb.excel.export.util.CellWriter.MAX_EXACT_NUMBER;
+import static com.lwb.excel.export.util.CellWriter.MAX_PRECISION;
+import static com.lwb.excel.export.util.CellWriter.dateString;
+import static com.lwb.excel.export.util.CellWriter.excelDate;
+import static com.lwb.excel.export.util.CellWriter.fractionOfDay;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.HH_MM_SS;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD;
+import static com.lwb.excel.export.util.ExcelUtils.Constant.YYYY_MM_DD_HH_MM_SS;
+
+/**
+ * 直接生成xlsx
+ * </p>
+ * 不经过POI的单元格对象，sheet的xml逐行写入压缩流：列号预先编码，行号每行编码一次，
+ * 整数直接写入缓冲区，不需要转义的字符串直接复制，写入单元格时几乎不创建对象。
+ * 单元格的值与{@link CellWriter}的写法一致，字符串写成内联字符串；
+ * 样式表在所有sheet写完后生成，只包含表头样式和用到的样式，相同{@link StyleSpec}只生成一个样式。
+ * 使用模板时复制模板中不变的部分，数据从模板的标记行开始写入，新的sheet和样式插入模板的工作簿和样式表，参见{@link ExcelTemplate}。
+ * 非线程安全，每次导出使用一个实例
+ */
+final class XlsxWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String CONTENT_TYPES_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/content-types";
+    private static final String CONTENT_TYPE_PREFIX = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    /**
+     * 样式序号：0为默认样式，1为表头样式，之后为数据单元格的样式
+     */
+    private static final int HEADER_STYLE = 1;
+    private static final int FIRST_DATA_STYLE = 2;
+    /**
+     * 自定义数字格式的起始编号
+     */
+    static final int FIRST_CUSTOM_FORMAT = 164;
+    /**
+     * int的最大位数，包括负号
+     */
+    private static final int MAX_INT_LENGTH = 11;
+    /**
+     * long的最大位数，包括负号
+     */
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    /**
+     * 模板，为null时生成整个工作簿
+     */
+    private final ExcelTemplate template;
+    private final int headerStyle;
+    private final int firstDataStyle;
+    private final int firstCustomFormat;
+    /**
+     * 每一列的默认样式序号，0表示默认样式
+     */
+    private final int[] columnStyles;
+    private final boolean date1904;
+    /**
+     * 新建的sheet，不包括模板中的sheet
+     */
+    private final List<String> sheetNames = new ArrayList<>();
+    /**
+     * 当前是否为模板中的sheet
+     */
+    private boolean templateSheet;
+    /**
+     * 样式属性 -> 样式序号
+     */
+    private final Map<StyleSpec, Integer> styles = new LinkedHashMap<>();
+    /**
+     * 日期或数字格式 -> 格式编号
+     */
+    private final Map<String, Integer> numberFormats = new LinkedHashMap<>();
+    /**
+     * 预先编码的列号
+     */
+    private char[][] columnNames = new char[0][];
+    /**
+     * 当前行号的编码
+     */
+    private final char[] rowName = new char[MAX_INT_LENGTH];
+    private int rowNameLength;
+
+    private List<CellRangeAddress> cellRangeAddresses;
+    private int rowCount;
+    private int column;
+
+    XlsxWriter(OutputStream out) {
+        this(out, null);
+    }
+
+    /**
+     * 基于模板生成，模板中不变的部分立即复制
+     * @param out      输出流
+     * @param template 模板，为null时生成整个工作簿
+     */
+    XlsxWriter(OutputStream out, ExcelTemplate template) {
+        this.zip = new ZipOutputStream(out);
+        this.out = new OutputStreamWriter(this.zip, StandardCharsets.UTF_8);
+        this.template = template;
+        if (template == null) {
+            this.headerStyle = HEADER_STYLE;
+            this.firstDataStyle = FIRST_DATA_STYLE;
+            this.firstCustomFormat = FIRST_CUSTOM_FORMAT;
+            this.columnStyles = new int[0];
+            this.date1904 = false;
+            return;
+        }
+        this.headerStyle = template.getHeaderStyle();
+        this.firstDataStyle = template.getStyleCount();
+        this.firstCustomFormat = template.getFirstCustomFormat();
+        this.columnStyles = template.getColumnStyles();
+        this.date1904 = template.isDate1904();
+        template.getParts().forEach((name, content) -> {
+            putEntry(name);
+            try {
+                this.zip.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            closeEntry();
+        });
+    }
+
+    /**
+     * 开始写入新的sheet
+     * @param name               sheet名称，为null时使用默认名称
+     * @param pane               冻结几列、冻结几行、首列可见序号、首行可见序号
+     * @param cellRangeAddresses 合并的单元格
+     * @param widths             列宽，单位为字符数，0表示默认列宽
+     */
+    void startSheet(String name, int[] pane, List<CellRangeAddress> cellRangeAddresses, int[] widths) {
+        List<String> templateSheets = this.template == null ? Collections.emptyList() : this.template.getSheetNames();
+        String sheetName = name == null ? "Sheet" + (templateSheets.size() + this.sheetNames.size()) : name;
+        WorkbookUtil.validateSheetName(sheetName);
+        if (Stream.concat(templateSheets.stream(), this.sheetNames.stream()).anyMatch(sheetName::equalsIgnoreCase)) {
+            throw new IllegalArgumentException("The workbook already contains a sheet named '" + sheetName + "'");
+        }
+        this.sheetNames.add(sheetName);
+        this.cellRangeAddresses = cellRangeAddresses;
+        this.rowCount = 0;
+        this.templateSheet = false;
+        putEntry(sheetPart(this.sheetNames.size()));
+
+        append(XML_DECLARATION);
+        append("<worksheet xmlns=\"").append(MAIN_NAMESPACE).append("\" xmlns:r=\"").append(RELATIONSHIP_NAMESPACE).append("\">");
+        append("<sheetViews><sheetView workbookViewId=\"0\"");
+        if (this.template == null && this.sheetNames.size() == 1) {
+            append(" tabSelected=\"1\"");
+        }
+        int columnSplit = pane[0];
+        int rowSplit = pane[1];
+        if (columnSplit > 0 || rowSplit > 0) {
+            String activePane = columnSplit > 0 && rowSplit > 0 ? "bottomRight" : rowSplit > 0 ? "bottomLeft" : "topRight";
+            append("><pane");
+            if (columnSplit > 0) {
+                append(" xSplit=\"").appendInt(columnSplit).append("\"");
+            }
+            if (rowSplit > 0) {
+                append(" ySplit=\"").appendInt(rowSplit).append("\"");
+            }
+            append(" topLeftCell=\"").append(new CellReference(pane[3], pane[2]).formatAsString())
+                .append("\" activePane=\"").append(activePane).append("\" state=\"frozen\"/>");
+            append("<selection pane=\"").append(activePane).append("\"/></sheetView>");
+        } else {
+            append("/>");
+        }
+        append("</sheetViews>");
+        writeColumns(widths);
+        append("<sheetData>");
+    }
+
+    /**
+     * 开始写入模板中标记行所在的sheet，数据从标记行开始写入
+     */
+    void startTemplateSheet() {
+        this.templateSheet = true;
+        this.rowCount = this.template.getDataRow();
+        putEntry(this.template.getDataSheet().getName());
+        append(this.template.getDataSheet().segment(0));
+    }
+
+    /**
+     * 当前sheet已写入的行数，包括表头
+     */
+    int getRowCount() {
+        return this.rowCount;
+    }
+
+    void startRow() {
+        this.rowCount++;
+        this.column = 0;
+        // 行号每行只编码一次
+        int value = this.rowCount;
+        int length = 0;
+        do {
+            this.rowName[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char c = this.rowName[i];
+            this.rowName[i] = this.rowName[j];
+            this.rowName[j] = c;
+        }
+        this.rowNameLength = length;
+        append("<row r=\"").append(this.rowName, this.rowNameLength).append("\">");
+    }
+
+    void endRow() {
+        append("</row>");
+    }
+
+    /**
+     * 写入表头单元格
+     * @param name 表头名称，为null时写入只有表头样式的空白单元格
+     */
+    void writeHeader(String name) {
+        if (name == null) {
+            startCell(this.column++, this.headerStyle, null);
+            append("/>");
+            return;
+        }
+        writeString(this.column++, this.headerStyle, name);
+    }
+
+    /**
+     * 按值的类型写入单元格
+     * </p>
+     * 没有日期、数字格式和对齐方式的单元格使用该列的默认样式
+     * @param value   值，为null时只写入该列默认样式的空白单元格，没有默认样式时不写入
+     * @param pattern 日期或数字格式，为null时日期使用默认格式，数字使用常规格式
+     * @param align   水平对齐方式，为null时使用默认对齐方式
+     */
+    void write(Object value, String pattern, HorizontalAlignment align) {
+        int column = this.column++;
+        if (value == null) {
+            if (columnStyle(column) != 0) {
+                startCell(column, 0, null);
+                append("/>");
+            }
+            return;
+        }
+        if (value instanceof Number) {
+            writeNumber(column, style(pattern, align), (Number) value);
+        } else if (value instanceof Boolean) {
+            startCell(column, style(null, align), "b");
+            append("><v>").append((Boolean) value ? "1" : "0").append("</v></c>");
+        } else if (value instanceof Date) {
+            double date = DateUtil.getExcelDate((Date) value, this.date1904);
+            if (date < 0) {
+                // excel无法表示的日期写成字符串
+                writeString(column, style(null, align), dateString((Date) value));
+            } else {
+                writeDouble(column, style(pattern == null ? YYYY_MM_DD_HH_MM_SS : pattern, align), date);
+            }
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            writeDate(column, dateTime.toLocalDate(), dateTime.toLocalTime(), pattern == null ? YYYY_MM_DD_HH_MM_SS : pattern, align);
+        } else if (value instanceof LocalDate) {
+            writeDate(column, (LocalDate) value, LocalTime.MIDNIGHT, pattern == null ? YYYY_MM_DD : pattern, align);
+        } else if (value instanceof LocalTime) {
+            writeDouble(column, style(pattern == null ? HH_MM_SS : pattern, align), fractionOfDay((LocalTime) value));
+        } else {
+            writeString(column, style(null, align), value.toString());
+        }
+    }
+
+    /**
+     * 结束当前sheet，写入合并单元格
+     */
+    void endSheet() {
+        if (this.templateSheet) {
+            append(this.template.getDataSheet().segment(1));
+            closeEntry();
+            return;
+        }
+        append("</sheetData>");
+        if (!this.cellRangeAddresses.isEmpty()) {
+            append("<mergeCells count=\"").appendInt(this.cellRangeAddresses.size()).append("\">");
+            this.cellRangeAddresses.forEach(region ->
+                append("<mergeCell ref=\"").append(region.formatAsString()).append("\"/>"));
+            append("</mergeCells>");
+        }
+        append("</worksheet>");
+        closeEntry();
+    }
+
+    /**
+     * 写入工作簿、样式表等其他部分，结束压缩流
+     * </p>
+     * 不关闭底层输出流
+     */
+    void finish() {
+        if (this.template == null) {
+            writeWorkbook();
+            writeStyles();
+            writeContentTypes();
+        } else {
+            writeTemplateWorkbook();
+            writeTemplateStyles();
+            writeTemplateContentTypes();
+        }
+        try {
+            this.zip.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeNumber(int column, int style, Number number) {
+        if (number instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) number;
+            if (decimal.precision() <= MAX_PRECISION) {
+                writeDouble(column, style, decimal.doubleValue());
+            } else {
+                writeString(column, style, decimal.toPlainString());
+            }
+        } else if (number instanceof BigInteger) {
+            BigInteger integer = (BigInteger) number;
+            if (integer.bitLength() < Long.SIZE && Math.abs(integer.longValue()) <= MAX_EXACT_NUMBER) {
+                writeLong(column, style, integer.longValue());
+            } else {
+                writeString(column, style, integer.toString());
+            }
+        } else if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                writeString(column, style, String.valueOf(number));
+            } else {
+                writeDouble(column, style, d);
+            }
+        } else {
+            long l = number.longValue();
+            if (Math.abs(l) <= MAX_EXACT_NUMBER) {
+                writeLong(column, style, l);
+            } else {
+                writeString(column, style, String.valueOf(l));
+            }
+        }
+    }
+
+    private void writeDate(int column, LocalDate date, LocalTime time, String pattern, HorizontalAlignment align) {
+        if (date.isBefore(EXCEL_MIN_DATE)) {
+            writeString(column, style(null, align), date.atTime(time).toString());
+            return;
+        }
+        writeDouble(column, style(pattern, align), excelDate(date, time));
+    }
+
+    private void writeLong(int column, int style, long value) {
+        startCell(column, style, null);
+        append("><v>").appendLong(value).append("</v></c>");
+    }
+
+    private void writeDouble(int column, int style, double value) {
+        startCell(column, style, null);
+        append("><v>");
+        // 整数不写小数部分
+        if (value == (long) value && Math.abs(value) <= MAX_EXACT_NUMBER) {
+            appendLong((long) value);
+        } else {
+            append(Double.toString(value));
+        }
+        append("</v></c>");
+    }
+
+    private void writeString(int column, int style, String value) {
+        startCell(column, style, "inlineStr");
+        append("><is><t");
+        if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+            append(" xml:space=\"preserve\"");
+        }
+        append(">").appendEscaped(value).append("</t></is></c>");
+    }
+
+    /**
+     * @param style 样式序号，为0时使用该列的默认样式
+     */
+    private void startCell(int column, int style, String type) {
+        append("<c r=\"").append(columnName(column), -1).append(this.rowName, this.rowNameLength).append("\"");
+        int s = style != 0 ? style : columnStyle(column);
+        if (s != 0) {
+            append(" s=\"").appendInt(s).append("\"");
+        }
+        if (type != null) {
+            append(" t=\"").append(type).append("\"");
+        }
+    }
+
+    private int columnStyle(int column) {
+        return column < this.columnStyles.length ? this.columnStyles[column] : 0;
+    }
+
+    /**
+     * 获取预先编码的列号，例如：0 -> A
+     */
+    private char[] columnName(int column) {
+        if (column >= this.columnNames.length) {
+            char[][] columnNames = new char[Math.max(column + 1, this.columnNames.length << 1)][];
+            System.arraycopy(this.columnNames, 0, columnNames, 0, this.columnNames.length);
+            for (int i = this.columnNames.length; i < columnNames.length; i++) {
+                columnNames[i] = CellReference.convertNumToColString(i).toCharArray();
+            }
+            this.columnNames = columnNames;
+        }
+        return this.columnNames[column];
+    }
+
+    /**
+     * 获取样式序号，相同样式属性只生成一个样式
+     * @return 格式和对齐方式都为null时返回0，使用该列的默认样式
+     */
+    private int style(String pattern, HorizontalAlignment align) {
+        StyleSpec spec = StyleSpec.of(pattern, align);
+        if (spec == null) {
+            return 0;
+        }
+        Integer style = this.styles.get(spec);
+        if (style == null) {
+            style = this.firstDataStyle + this.styles.size();
+            this.styles.put(spec, style);
+            if (pattern != null) {
+                this.numberFormats.putIfAbsent(pattern, this.firstCustomFormat + this.numberFormats.size());
+            }
+        }
+        return style;
+    }
+
+    /**
+     * 写入列宽
+     * @param widths 列宽，单位为字符数，0表示默认列宽
+     */
+    private void writeColumns(int[] widths) {
+        if (Arrays.stream(widths).allMatch(width -> width <= 0)) {
+            return;
+        }
+        append("<cols>");
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] > 0) {
+                append("<col min=\"").appendInt(i + 1).append("\" max=\"").appendInt(i + 1)
+                    .append("\" width=\"").appendInt(widths[i]).append("\" customWidth=\"1\"/>");
+            }
+        }
+        append("</cols>");
+    }
+
+    private void writeWorkbook() {
+        putEntry("xl/workbook.xml");
+        append(XML_DECLARATION);
+        append("<workbook xmlns=\"").append(MAIN_NAMESPACE).append("\" xmlns:r=\"").append(RELATIONSHIP_NAMESPACE).append("\">");
+        append("<bookViews><workbookView activeTab=\"0\"/></bookViews><sheets>");
+        for (int i = 1; i <= this.sheetNames.size(); i++) {
+            append("<sheet name=\"").appendEscaped(this.sheetNames.get(i - 1))
+                .append("\" sheetId=\"").appendInt(i).append("\" r:id=\"rId").appendInt(i).append("\"/>");
+        }
+        append("</sheets></workbook>");
+        closeEntry();
+
+        putEntry("xl/_rels/workbook.xml.rels");
+        append(XML_DECLARATION);
+        append("<Relationships xmlns=\"").append(PACKAGE_RELATIONSHIP_NAMESPACE).append("\">");
+        for (int i = 1; i <= this.sheetNames.size(); i++) {
+            append("<Relationship Id=\"rId").appendInt(i).append("\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+                .append("/worksheet\" Target=\"worksheets/sheet").appendInt(i).append(".xml\"/>");
+        }
+        append("<Relationship Id=\"rId").appendInt(this.sheetNames.size() + 1).append("\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+            .append("/styles\" Target=\"styles.xml\"/>");
+        append("</Relationships>");
+        closeEntry();
+
+        putEntry("_rels/.rels");
+        append(XML_DECLARATION);
+        append("<Relationships xmlns=\"").append(PACKAGE_RELATIONSHIP_NAMESPACE).append("\">");
+        append("<Relationship Id=\"rId1\" Type=\"").append(RELATIONSHIP_NAMESPACE)
+            .append("/officeDocument\" Target=\"xl/workbook.xml\"/>");
+        append("</Relationships>");
+        closeEntry();
+    }
+
+    /**
+     * 写入样式表，{@link StyleSpec#HEADER}的表头样式与{@link StylePool}为POI引擎创建的样式一致
+     */
+    private void writeStyles() {
+        putEntry("xl/styles.xml");
+        append(XML_DECLARATION);
+        append("<styleSheet xmlns=\"").append(MAIN_NAMESPACE).append("\">");
+        if (!this.numberFormats.isEmpty()) {
+            append("<numFmts count=\"").appendInt(this.numberFormats.size()).append("\">");
+            appendNumberFormats();
+            append("</numFmts>");
+        }
+        append("<fonts count=\"2\">");
+        append("<font><sz val=\"11\"/><color indexed=\"8\"/><name val=\"Calibri\"/><family val=\"2\"/><scheme val=\"minor\"/></font>");
+        append("<font><b val=\"true\"/><sz val=\"11\"/><color indexed=\"8\"/><name val=\"Calibri\"/><family val=\"2\"/><scheme val=\"minor\"/></font>");
+        append("</fonts>");
+        append("<fills count=\"3\">");
+        append("<fill><patternFill patternType=\"none\"/></fill>");
+        append("<fill><patternFill patternType=\"gray125\"/></fill>");
+        append("<fill><patternFill patternType=\"solid\"><fgColor indexed=\"40\"/></patternFill></fill>");
+        append("</fills>");
+        append("<borders count=\"2\">");
+        append("<border><left/><right/><top/><bottom/><diagonal/></border>");
+        append("<border><left style=\"thin\"/><right style=\"thin\"/><top style=\"thin\"/><bottom style=\"thin\"/><diagonal/></border>");
+        append("</borders>");
+        append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+        append("<cellXfs count=\"").appendInt(FIRST_DATA_STYLE + this.styles.size()).append("\">");
+        append("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>");
+        append("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFont=\"true\" applyFill=\"true\" ")
+            .append("applyBorder=\"true\" applyAlignment=\"true\"><alignment horizontal=\"center\" vertical=\"center\" wrapText=\"true\"/></xf>");
+        appendDataStyles();
+        append("</cellXfs>");
+        append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+        append("</styleSheet>");
+        closeEntry();
+    }
+
+    /**
+     * 在模板的样式表中插入用到的数字格式和样式
+     */
+    private void writeTemplateStyles() {
+        ExcelTemplate.Part styles = this.template.getStyles();
+        putEntry(styles.getName());
+        append(styles.segment(0)).appendInt(this.template.getNumberFormatCount() + this.numberFormats.size());
+        append(styles.segment(1));
+        appendNumberFormats();
+        append(styles.segment(2)).appendInt(this.firstDataStyle + this.styles.size());
+        append(styles.segment(3));
+        appendDataStyles();
+        append(styles.segment(4));
+        closeEntry();
+    }
+
+    private void appendNumberFormats() {
+        this.numberFormats.forEach((pattern, format) ->
+            append("<numFmt numFmtId=\"").appendInt(format).append("\" formatCode=\"").appendEscaped(pattern).append("\"/>"));
+    }
+
+    /**
+     * 数据单元格的样式，只设置格式和对齐方式
+     */
+    private void appendDataStyles() {
+        this.styles.keySet().forEach(spec -> {
+            append("<xf numFmtId=\"").appendInt(spec.getPattern() == null ? 0 : this.numberFormats.get(spec.getPattern()))
+                .append("\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"");
+            if (spec.getPattern() != null) {
+                append(" applyNumberFormat=\"true\"");
+            }
+            Optional<String> align = spec.getXmlAlign();
+            if (align.isPresent()) {
+                append(" applyAlignment=\"true\"><alignment horizontal=\"").append(align.get()).append("\"/></xf>");
+            } else {
+                append("/>");
+            }
+        });
+    }
+
+    /**
+     * 在模板的工作簿中加入新建的sheet
+     */
+    private void writeTemplateWorkbook() {
+        ExcelTemplate.Part workbook = this.template.getWorkbook();
+        putEntry(workbook.getName());
+        append(workbook.segment(0));
+        for (int i = 0; i < this.sheetNames.size(); i++) {
+            append("<sheet xmlns:r=\"").append(RELATIONSHIP_NAMESPACE).append("\" name=\"").appendEscaped(this.sheetNames.get(i))
+                .append("\" sheetId=\"").appendInt(this.template.getFirstSheetId() + i)
+                .append("\" r:id=\"rId").appendInt(this.template.getFirstRelationshipId() + i).append("\"/>");
+        }
+        append(workbook.segment(1));
+        closeEntry();
+
+        ExcelTemplate.Part relationships = this.template.getWorkbookRelationships();
+        putEntry(relationships.getName());
+        append(relationships.segment(0));
+        for (int i = 0; i < this.sheetNames.size(); i++) {
+            append("<Relationship Id=\"rId").appendInt(this.template.getFirstRelationshipId() + i).append("\" Type=\"")
+                .append(RELATIONSHIP_NAMESPACE).append("/worksheet\" Target=\"")
+                .append(sheetPart(i + 1).substring("xl/".length())).append("\"/>");
+        }
+        append(relationships.segment(1));
+        closeEntry();
+    }
+
+    private void writeTemplateContentTypes() {
+        ExcelTemplate.Part contentTypes = this.template.getContentTypes();
+        putEntry(contentTypes.getName());
+        append(contentTypes.segment(0));
+        for (int i = 1; i <= this.sheetNames.size(); i++) {
+            append("<Override PartName=\"/").append(sheetPart(i)).append("\" ContentType=\"")
+                .append(CONTENT_TYPE_PREFIX).append("worksheet+xml\"/>");
+        }
+        append(contentTypes.segment(1));
+        closeEntry();
+    }
+
+    /**
+     * 新建的第几个sheet的文件名，使用模板时排在模板中的sheet之后
+     */
+    private String sheetPart(int index) {
+        int first = this.template == null ? 1 : this.template.getFirstSheetNumber();
+        return String.format("xl/worksheets/sheet%d.xml", first + index - 1);
+    }
+
+    private void writeContentTypes() {
+        putEntry("[Content_Types].xml");
+        append(XML_DECLARATION);
+        append("<Types xmlns=\"").append(CONTENT_TYPES_NAMESPACE).append("\">");
+        append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"").append(CONTENT_TYPE_PREFIX).append("sheet.main+xml\"/>");
+        append("<Override PartName=\"/xl/styles.xml\" ContentType=\"").append(CONTENT_TYPE_PREFIX).append("styles+xml\"/>");
+        for (int i = 1; i <= this.sheetNames.size(); i++) {
+            append("<Override PartName=\"/xl/worksheets/sheet").appendInt(i).append(".xml\" ContentType=\"")
+                .append(CONTENT_TYPE_PREFIX).append("worksheet+xml\"/>");
+        }
+        append("</Types>");
+        closeEntry();
+    }
+
+    private void putEntry(String name) {
+        try {
+            this.zip.putNextEntry(new ZipEntry(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeEntry() {
+        flushBuffer();
+        try {
+            this.out.flush();
+            this.zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private XlsxWriter append(String text) {
+        return append(text, text.length());
+    }
+
+    /**
+     * 写入字符串的前length个字符
+     */
+    private XlsxWriter append(String text, int length) {
+        int offset = 0;
+        while (offset < length) {
+            if (this.position == this.buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(length - offset, this.buffer.length - this.position);
+            text.getChars(offset, offset + count, this.buffer, this.position);
+            this.position += count;
+            offset += count;
+        }
+        return this;
+    }
+
+    /**
+     * 写入字符数组
+     * @param length 写入的长度，小于0时写入整个数组
+     */
+    private XlsxWriter append(char[] chars, int length) {
+        int count = length < 0 ? chars.length : length;
+        ensure(count);
+        System.arraycopy(chars, 0, this.buffer, this.position, count);
+        this.position += count;
+        return this;
+    }
+
+    private XlsxWriter appendInt(int value) {
+        return appendLong(value);
+    }
+
+    private XlsxWriter appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        ensure(MAX_LONG_LENGTH);
+        if (value < 0) {
+            this.buffer[this.position++] = '-';
+            value = -value;
+        }
+        int start = this.position;
+        do {
+            this.buffer[this.position++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = this.position - 1; i < j; i++, j--) {
+            char c = this.buffer[i];
+            this.buffer[i] = this.buffer[j];
+            this.buffer[j] = c;
+        }
+        return this;
+    }
+
+    /**
+     * 写入需要转义的文本
+     * </p>
+     * 先查找需要转义的字符，没有时直接复制；xml不允许的控制字符直接丢弃
+     */
+    private XlsxWriter appendEscaped(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && !needsEscape(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return append(text);
+        }
+        append(text, i);
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            ensure(6);
+            switch (c) {
+                case '<':
+                    append("&lt;");
+                    break;
+                case '>':
+                    append("&gt;");
+                    break;
+                case '&':
+                    append("&amp;");
+                    break;
+                case '"':
+                    append("&quot;");
+                    break;
+                default:
+                    if (!needsEscape(c)) {
+                        this.buffer[this.position++] = c;
+                    }
+            }
+        }
+        return this;
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '<' || c == '>' || c == '&' || c == '"'
+            || (c < 0x20 && c != '\t' && c != '\n' && c != '\r')
+            || c == '\uFFFE' || c == '\uFFFF';
+    }
+
+    private void ensure(int length) {
+        if (this.position + length > this.buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        try {
+            this.out.write(this.buffer, 0, this.position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.position = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 将并行生成的多个文件写入同一个zip输出流
+ * </p>
+ * zip只能依次写入每个文件：同一时间只有一个文件直接写入zip，其他文件先写入内存缓冲区，缓冲区满后暂停生成；
+ * 已生成完的文件优先写入，其次是缓冲数据最多的文件，获得zip后先写出缓冲数据再直接写入。
+ * 内存占用不超过文件数 * {@link #BUFFER_LIMIT}，不使用临时文件
+ */
+final class ZipExport {
+
+    /**
+     * 每个文件等待写入zip时最多缓冲的字节数
+     */
+    static final int BUFFER_LIMIT = 4 * 1024 * 1024;
+
+    private final ZipOutputStream zip;
+    private final List<Part> parts = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    /**
+     * 第一个生成失败的原因，失败后其他文件停止生成
+     */
+    private volatile Throwable failure;
+
+    ZipExport(OutputStream out) {
+        this.zip = new ZipOutputStream(out);
+    }
+
+    /**
+     * 添加一个文件，文件名重复时依次命名为：名称(2).后缀、名称(3).后缀...
+     * @param fileName 文件名，包含后缀
+     * @param compress 是否压缩，xlsx本身已压缩，不需要再压缩
+     * @return 写入该文件的输出流，生成完成后调用{@link Part#finish()}
+     */
+    Part add(String fileName, boolean compress) {
+        String name = fileName;
+        int point = fileName.lastIndexOf('.');
+        for (int i = 2; !this.names.add(name); i++) {
+            name = point < 0
+                ? String.format("%s(%d)", fileName, i)
+                : String.format("%s(%d)%s", fileName.substring(0, point), i, fileName.substring(point));
+        }
+        Part part = new Part(name, compress);
+        this.parts.add(part);
+        return part;
+    }
+
+    /**
+     * 生成失败，停止所有文件的生成
+     * @param e 失败原因
+     */
+    synchronized void fail(Throwable e) {
+        if (this.failure == null) {
+            this.failure = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * 依次将所有文件写入zip，直到全部生成完成
+     * </p>
+     * 任意文件生成失败或写入zip失败时，停止其他文件的生成并抛出异常
+     */
+    void write() throws Exception {
+        try {
+            for (int i = 0; i < this.parts.size(); i++) {
+                writeNext();
+            }
+            this.zip.finish();
+        } catch (Exception e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    private void writeNext() throws Exception {
+        synchronized (this) {
+            checkFailure();
+            Part next = this.parts.stream()
+                .filter(part -> !part.written)
+                .max(Comparator.<Part, Boolean>comparing(part -> part.done).thenComparing(part -> part.buffer.size()))
+                .orElseThrow(IllegalStateException::new);
+            this.zip.setLevel(next.compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+            this.zip.putNextEntry(new ZipEntry(next.name));
+            next.buffer.writeTo(this.zip);
+            next.buffer = null;
+            // 之后由生成线程直接写入zip
+            next.direct = true;
+            notifyAll();
+            while (!next.done) {
+                checkFailure();
+                wait();
+            }
+            next.written = true;
+        }
+        this.zip.closeEntry();
+    }
+
+    private void checkFailure() throws Exception {
+        if (this.failure == null) {
+            return;
+        }
+        if (this.failure instanceof Exception) {
+            throw (Exception) this.failure;
+        }
+        throw new UtilException(this.failure.getMessage());
+    }
+
+    /**
+     * zip中的一个文件
+     */
+    final class Part extends OutputStream {
+
+        private final String name;
+        private final boolean compress;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        /**
+         * 是否已获得zip，直接写入
+         */
+        private volatile boolean direct;
+        private boolean done;
+        private boolean written;
+
+        private Part(String name, boolean compress) {
+            this.name = name;
+            this.compress = compress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!this.direct) {
+                synchronized (ZipExport.this) {
+                    while (!this.direct && this.buffer.size() > 0
+                        && this.buffer.size() + len > BUFFER_LIMIT && ZipExport.this.failure == null) {
+                        try {
+                            ZipExport.this.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("导出任务被中断");
+                        }
+                    }
+                    if (ZipExport.this.failure != null) {
+                        throw new IOException("导出已终止");
+                    }
+                    if (!this.direct) {
+                        this.buffer.write(b, off, len);
+                        return;
+                    }
+                }
+            } else if (ZipExport.this.failure != null) {
+                // 直接写入zip时同样在失败后停止
+                throw new IOException("导出已终止");
+            }
+            ZipExport.this.zip.write(b, off, len);
+        }
+
+        /**
+         * 文件生成完成
+         */
+        void finish() {
+            synchronized (ZipExport.this) {
+                this.done = true;
+                ZipExport.this.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CellWriterTests {
+
+    private SXSSFWorkbook book;
+    private CellWriter writer;
+    private int column;
+
+    @Before
+    public void setUp() {
+        this.book = new SXSSFWorkbook();
+        this.book.createSheet().createRow(0);
+        this.writer = new CellWriter(new StylePool(this.book));
+    }
+
+    @After
+    public void tearDown() {
+        this.book.dispose();
+    }
+
+    @Test
+    public void writesTypedValues() {
+        assertEquals(CellType.NUMERIC, write(12).getCellType());
+        assertEquals(CellType.BOOLEAN, write(true).getCellType());
+        assertEquals(CellType.STRING, write("a").getCellType());
+        // 超过15位有效数字的数值写成字符串
+        assertEquals("1234567890.1234567", write(new BigDecimal("1234567890.1234567")).getStringCellValue());
+        assertEquals(String.valueOf(Long.MAX_VALUE), write(Long.MAX_VALUE).getStringCellValue());
+    }
+
+    @Test
+    public void writesDatesAsSerials() {
+        Cell cell = write(LocalDate.of(2019, 9, 1));
+        assertEquals(CellType.NUMERIC, cell.getCellType());
+        assertEquals(43709, cell.getNumericCellValue(), 0);
+        assertTrue(DateUtil.isCellDateFormatted(cell));
+
+        LocalDateTime dateTime = LocalDateTime.of(2019, 9, 1, 12, 0);
+        Cell date = write(Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant()));
+        assertEquals(43709.5, date.getNumericCellValue(), 1e-9);
+    }
+
+    @Test
+    public void writesDatesBefore1900AsStrings() {
+        LocalDateTime dateTime = LocalDateTime.of(1899, 12, 31, 8, 30);
+        Cell date = write(Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant()));
+        assertEquals(CellType.STRING, date.getCellType());
+        assertEquals("1899-12-31T08:30", date.getStringCellValue());
+
+        Cell sqlDate = write(java.sql.Date.valueOf(LocalDate.of(1800, 1, 2)));
+        assertEquals("1800-01-02T00:00", sqlDate.getStringCellValue());
+
+        Cell localDate = write(LocalDate.of(1850, 6, 1));
+        assertEquals(CellType.STRING, localDate.getCellType());
+    }
+
+    private Cell write(Object value) {
+        Cell cell = this.book.getSheetAt(0).getRow(0).createCell(this.column++);
+        this.writer.write(cell, value, null, null);
+        return cell;
+    }
+}
@@ -0,0 +1,70 @@
+package com.lwb.excel.export.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvWriterTests {
+
+    @Test
+    public void writesPlainFieldsUnquoted() {
+        assertEquals("a,b c,,1\r\n", csv(',', "a", "b c", null, 1));
+    }
+
+    @Test
+    public void quotesFieldsWithSpecialCharacters() {
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"x\r\ny\",\"z\n\"\r\n", csv(',', "a,b", "say \"hi\"", "x\r\ny", "z\n"));
+        assertEquals("\"\"\"\"\r\n", csv(',', "\""));
+    }
+
+    @Test
+    public void quotesOnlyTheConfiguredDelimiter() {
+        assertEquals("a,b\t\"c\td\"\r\n", csv('\t', "a,b", "c\td"));
+    }
+
+    @Test
+    public void writesNumbersWithoutScientificNotation() {
+        assertEquals("-42,9223372036854775807,-9223372036854775808,0.00000123,12345678901234567890,1.50\r\n",
+            csv(',', -42, Long.MAX_VALUE, Long.MIN_VALUE, 1.23e-6, new BigInteger("12345678901234567890"),
+                new BigDecimal("1.50")));
+        assertEquals("NaN\r\n", csv(',', Double.NaN));
+    }
+
+    @Test
+    public void formatsNumbersAndDates() {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out, ',');
+        writer.write(1234.5, "#,##0.00");
+        writer.write(LocalDate.of(2019, 9, 1), null);
+        writer.write(LocalDateTime.of(2019, 9, 1, 8, 5, 3), null);
+        writer.write(LocalDate.of(2019, 9, 1), "yyyy/MM/dd");
+        writer.endRow();
+        writer.flush();
+        assertEquals("\"1,234.50\",2019-09-01,2019-09-01 08:05:03,2019/09/01\r\n", out.toString());
+    }
+
+    @Test
+    public void escapesAcrossBufferBoundaries() {
+        String text = StringUtils.repeat("ab\"", 5000);
+        String expected = "\"" + StringUtils.repeat("ab\"\"", 5000) + "\"";
+        assertEquals(StringUtils.repeat("x", 9000) + "," + expected + "\r\n", csv(',', StringUtils.repeat("x", 9000), text));
+    }
+
+    private static String csv(char delimiter, Object... values) {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out, delimiter);
+        for (Object value : values) {
+            writer.write(value, null);
+        }
+        writer.endRow();
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ExcelConfigTests {
+
+    @Test
+    public void acceptsNumberAndDatePatterns() throws Exception {
+        config("'#,##0.00'").validate();
+        config("'0.00%'").validate();
+        config("yyyy/MM/dd").validate();
+        // 不是有效的数字格式，但是有效的日期格式
+        config("yyyy.MM.dd").validate();
+        config("''").validate();
+    }
+
+    @Test
+    public void rejectsInvalidPatternWhenLoading() throws Exception {
+        try {
+            config("'#.#.#'").validate();
+            fail();
+        } catch (UtilException e) {
+            assertEquals("字段amount的格式#.#.#无效：Multiple decimal separators in pattern \"#.#.#\"", e.getMessage());
+        }
+    }
+
+    private static ExcelConfig config(String pattern) throws Exception {
+        String yml = "fileName: orders\n"
+            + "headers:\n  - [{name: amount}]\n"
+            + "fields: [amount]\n"
+            + "formats:\n  amount: {pattern: " + pattern + "}\n";
+        return new ObjectMapper(new YAMLFactory()).readValue(yml, ExcelConfig.class);
+    }
+}
@@ -0,0 +1,117 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ExcelLayoutTests {
+
+    private static final String STUDENTS = "headers:\n"
+        + "  - [{name: 编号, mergeIndex: '0,1,0,0'}, {name: 学生信息, mergeIndex: '0,0,1,2'}, {name: ''}, {name: 备注}]\n"
+        + "  - [{name: ''}, {name: 姓名}, {name: 班级}, {name: ''}]\n"
+        + "fields: [id, name, classes, remark]\n";
+
+    @Test
+    public void compilesMultiRowHeaders() throws Exception {
+        ExcelLayout layout = config(STUDENTS).getLayout();
+        assertEquals(2, layout.getHeaderRows());
+        assertEquals(4, layout.getColumns());
+        assertEquals("学生信息", layout.getHeader(0, 1));
+        assertEquals("班级", layout.getHeader(1, 2));
+        assertEquals(Arrays.asList("A1:A2", "B1:C1"),
+            layout.getMergedRegions().stream().map(CellRangeAddress::formatAsString).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("编号", "学生信息-姓名", "学生信息-班级", "备注"), layout.getFlattenedHeaders());
+        // 默认冻结表头行
+        assertArrayEquals(new int[]{0, 2, 0, 2}, layout.getFreezePane());
+    }
+
+    @Test
+    public void mergedRegionsCountAsHeaderColumns() throws Exception {
+        ExcelLayout layout = config("headers:\n"
+            + "  - [{name: 合计, mergeIndex: '0,0,0,2'}]\n"
+            + "fields: [a, b, c]\n").getLayout();
+        assertEquals(Arrays.asList("合计", "合计", "合计"), layout.getFlattenedHeaders());
+    }
+
+    @Test
+    public void parsesFreezePane() throws Exception {
+        ExcelLayout layout = config("freezePaneIndex: '1, 2, 1, 2'\n" + STUDENTS).getLayout();
+        assertArrayEquals(new int[]{1, 2, 1, 2}, layout.getFreezePane());
+    }
+
+    @Test
+    public void reusesLayoutUntilConfigIsReplaced() throws Exception {
+        ExcelConfig config = config(STUDENTS);
+        ExcelLayout layout = config.getLayout();
+        assertSame(layout, config.getLayout());
+        config.setFields(new ArrayList<>(config.getFields()));
+        assertNotSame(layout, config.getLayout());
+    }
+
+    @Test
+    public void rejectsMalformedMergeIndex() throws Exception {
+        assertInvalid("表头a的合并规则0,0,x格式错误",
+            "headers: [[{name: a, mergeIndex: '0,0,x'}, {name: b}]]\nfields: [x, y]\n");
+        assertInvalid("表头a的合并规则0,0,1,0格式错误",
+            "headers: [[{name: a, mergeIndex: '0,0,1,0'}, {name: b}]]\nfields: [x, y]\n");
+        assertInvalid("表头a的合并规则0,0,-1,1格式错误",
+            "headers: [[{name: a, mergeIndex: '0,0,-1,1'}, {name: b}]]\nfields: [x, y]\n");
+    }
+
+    @Test
+    public void rejectsSingleCellMerge() throws Exception {
+        assertInvalid("表头a的合并单元格至少包含两个单元格",
+            "headers: [[{name: a, mergeIndex: '0,0,0,0'}, {name: b}]]\nfields: [x, y]\n");
+    }
+
+    @Test
+    public void rejectsMergeOutsideHeaderRows() throws Exception {
+        assertInvalid("表头a的合并单元格超出表头行",
+            "headers: [[{name: a, mergeIndex: '0,1,0,1'}, {name: b}]]\nfields: [x, y]\n");
+    }
+
+    @Test
+    public void rejectsOverlappingMerges() throws Exception {
+        assertInvalid("表头合并单元格B1:C1与A1:B1重叠",
+            "headers: [[{name: a, mergeIndex: '0,0,0,1'}, {name: b, mergeIndex: '0,0,1,2'}, {name: c}]]\n"
+                + "fields: [x, y, z]\n");
+    }
+
+    @Test
+    public void rejectsHeaderColumnsNotMatchingFields() throws Exception {
+        assertInvalid("表头列数2与字段数3不一致", "headers: [[{name: a}, {name: b}]]\nfields: [x, y, z]\n");
+        assertInvalid("表头列数3与字段数2不一致",
+            "headers: [[{name: a, mergeIndex: '0,0,0,2'}]]\nfields: [x, y]\n");
+    }
+
+    @Test
+    public void rejectsMalformedFreezePane() throws Exception {
+        assertInvalid("冻结规则1,2格式错误", "freezePaneIndex: '1,2'\n" + STUDENTS);
+        assertInvalid("冻结规则a,b,c,d格式错误", "freezePaneIndex: 'a,b,c,d'\n" + STUDENTS);
+    }
+
+    private static void assertInvalid(String message, String yml) throws Exception {
+        try {
+            config(yml).validate();
+            fail();
+        } catch (UtilException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static ExcelConfig config(String yml) throws Exception {
+        return new ObjectMapper(new YAMLFactory()).readValue("fileName: students\n" + yml, ExcelConfig.class);
+    }
+}
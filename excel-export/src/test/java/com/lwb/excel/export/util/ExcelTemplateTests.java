@@ -0,0 +1,143 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExcelTemplateTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesRowsAfterTemplateHeader() throws Exception {
+        ExcelTemplate template = template(book -> {
+            XSSFSheet sheet = book.createSheet("Report");
+            sheet.createRow(0).createCell(0).setCellValue("月报");
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+            Row header = sheet.createRow(1);
+            header.createCell(0).setCellValue("编号");
+            header.createCell(1).setCellValue("日期");
+            CellStyle border = book.createCellStyle();
+            border.setBorderBottom(BorderStyle.DOUBLE);
+            Row marker = sheet.createRow(2);
+            marker.createCell(0).setCellValue(ExcelTemplate.DEFAULT_MARKER);
+            marker.getCell(0).setCellStyle(border);
+            // 标记行之后的内容会被删除
+            sheet.createRow(3).createCell(0).setCellValue("示例");
+        });
+        assertEquals(2, template.getDataRow());
+
+        XSSFWorkbook book = write(template, writer -> {
+            writer.startTemplateSheet();
+            for (int i = 0; i < 2; i++) {
+                writer.startRow();
+                writer.write(i, null, null);
+                writer.write(LocalDate.of(2019, 9, 1), "yyyy-MM-dd", null);
+                writer.endRow();
+            }
+            writer.endSheet();
+        });
+        XSSFSheet sheet = book.getSheet("Report");
+        assertEquals(1, book.getNumberOfSheets());
+        assertEquals("A1:B1", sheet.getMergedRegion(0).formatAsString());
+        assertEquals("月报", sheet.getRow(0).getCell(0).getStringCellValue());
+        assertEquals("日期", sheet.getRow(1).getCell(1).getStringCellValue());
+        assertEquals(3, sheet.getLastRowNum());
+        assertEquals(1, sheet.getRow(3).getCell(0).getNumericCellValue(), 0);
+        // 标记行的样式作为该列的默认样式
+        assertEquals(BorderStyle.DOUBLE, sheet.getRow(2).getCell(0).getCellStyle().getBorderBottom());
+        assertTrue(DateUtil.isCellDateFormatted(sheet.getRow(2).getCell(1)));
+        assertEquals("yyyy-MM-dd", sheet.getRow(2).getCell(1).getCellStyle().getDataFormatString());
+    }
+
+    @Test
+    public void addsSheetsAfterTemplateSheets() throws Exception {
+        ExcelTemplate template = template(book -> {
+            book.createSheet("说明").createRow(0).createCell(0).setCellValue("readme");
+            book.createSheet("数据").createRow(0).createCell(0).setCellValue(ExcelTemplate.DEFAULT_MARKER);
+        });
+        assertEquals(Arrays.asList("说明", "数据"), template.getSheetNames());
+
+        XSSFWorkbook book = write(template, writer -> {
+            writer.startTemplateSheet();
+            writer.startRow();
+            writer.write("a", null, null);
+            writer.endRow();
+            writer.endSheet();
+            writer.startSheet(null, new int[]{0, 1, 0, 1}, Collections.emptyList(), new int[1]);
+            writer.startRow();
+            writer.writeHeader("名称");
+            writer.endRow();
+            writer.startRow();
+            writer.write(1.5, "0.00", null);
+            writer.endRow();
+            writer.endSheet();
+        });
+        assertEquals(3, book.getNumberOfSheets());
+        assertEquals("readme", book.getSheet("说明").getRow(0).getCell(0).getStringCellValue());
+        assertEquals("a", book.getSheet("数据").getRow(0).getCell(0).getStringCellValue());
+        XSSFSheet added = book.getSheetAt(2);
+        assertEquals("Sheet2", added.getSheetName());
+        assertTrue(added.getRow(0).getCell(0).getCellStyle().getFont().getBold());
+        assertEquals(CellType.NUMERIC, added.getRow(1).getCell(0).getCellType());
+        assertEquals("0.00", added.getRow(1).getCell(0).getCellStyle().getDataFormatString());
+    }
+
+    @Test
+    public void rejectsTemplateWithoutMarker() throws Exception {
+        try {
+            template(book -> book.createSheet("Report").createRow(0).createCell(0).setCellValue("${other}"));
+            fail();
+        } catch (UtilException e) {
+            assertTrue(e.getMessage().contains("没有找到数据开始标记${data}"));
+        }
+    }
+
+    private ExcelTemplate template(TemplateContent content) throws Exception {
+        File file = this.folder.newFile("template.xlsx");
+        try (XSSFWorkbook book = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+            content.create(book);
+            book.write(out);
+        }
+        return ExcelTemplate.load(file.toURI().toURL(), ExcelTemplate.DEFAULT_MARKER);
+    }
+
+    private static XSSFWorkbook write(ExcelTemplate template, SheetContent content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxWriter writer = new XlsxWriter(out, template);
+        content.write(writer);
+        writer.finish();
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private interface TemplateContent {
+        void create(XSSFWorkbook book);
+    }
+
+    private interface SheetContent {
+        void write(XlsxWriter writer) throws Exception;
+    }
+}
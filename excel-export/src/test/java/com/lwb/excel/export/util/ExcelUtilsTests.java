@@ -0,0 +1,169 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.enums.ExportEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExcelUtilsTests {
+
+    private static final String USERS = "fileName: users\n"
+        + "sheetName: 用户\n"
+        + "headers:\n"
+        + "  - [{name: 用户, mergeIndex: '0,0,0,1'}, {name: ''}]\n"
+        + "  - [{name: 编号}, {name: 姓名}]\n"
+        + "fields: [id, name]\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExportStorage previous;
+
+    @Before
+    public void setUp() {
+        this.previous = ExcelUtils.getStorage();
+        ExcelUtils.setStorage(new LocalExportStorage(this.folder.getRoot()));
+    }
+
+    @After
+    public void tearDown() {
+        ExcelUtils.setStorage(this.previous);
+    }
+
+    @Test
+    public void rollsOverToNewSheetWithHeaders() throws Exception {
+        for (ExportEngine engine : ExportEngine.values()) {
+            ExcelConfig config = config("maxRowsPerSheet: 5\nengine: " + engine + "\n" + USERS);
+            // 每个sheet 2行表头、3行数据，多出的一行写入第二个sheet
+            XSSFWorkbook book = read(ExcelUtils.excel(config, RowSource.of(users(4))));
+
+            assertEquals(engine.name(), 2, book.getNumberOfSheets());
+            assertEquals("用户", book.getSheetName(0));
+            assertEquals("用户(2)", book.getSheetName(1));
+            for (int i = 0; i < 2; i++) {
+                XSSFSheet sheet = book.getSheetAt(i);
+                assertEquals(engine.name(), "用户", sheet.getRow(0).getCell(0).getStringCellValue());
+                assertEquals(engine.name(), "姓名", sheet.getRow(1).getCell(1).getStringCellValue());
+                assertEquals(engine.name(), "A1:B1", sheet.getMergedRegion(0).formatAsString());
+                assertEquals(engine.name(), 2, sheet.getPaneInformation().getHorizontalSplitPosition());
+            }
+            assertEquals(4, book.getSheetAt(0).getLastRowNum());
+            XSSFSheet second = book.getSheetAt(1);
+            assertEquals(engine.name(), 2, second.getLastRowNum());
+            assertEquals(engine.name(), 4, second.getRow(2).getCell(0).getNumericCellValue(), 0);
+            assertEquals(engine.name(), "u4", second.getRow(2).getCell(1).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void writesEachRecordToItsOwnRow() throws Exception {
+        List<Map<String, Object>> users = users(3);
+        users.add(1, null);
+        XSSFWorkbook book = read(ExcelUtils.excel(config(USERS), RowSource.of(users)));
+
+        // 每条数据一行，不会追加到同一行的后面
+        XSSFSheet sheet = book.getSheetAt(0);
+        assertEquals(1, book.getNumberOfSheets());
+        assertEquals(5, sheet.getLastRowNum());
+        for (int i = 2; i <= 5; i++) {
+            assertEquals(2, sheet.getRow(i).getLastCellNum());
+        }
+        assertEquals("u1", sheet.getRow(2).getCell(1).getStringCellValue());
+        assertEquals("", sheet.getRow(3).getCell(1).getStringCellValue());
+        assertEquals(2, sheet.getRow(4).getCell(0).getNumericCellValue(), 0);
+        assertEquals("u3", sheet.getRow(5).getCell(1).getStringCellValue());
+    }
+
+    @Test
+    public void countsCellsOfEmptyRowsForEveryEngine() throws Exception {
+        List<Map<String, Object>> users = users(3);
+        users.add(1, null);
+        for (ExportEngine engine : ExportEngine.values()) {
+            MeterRegistry registry = new SimpleMeterRegistry();
+            ExportMetrics.setRegistry(registry);
+            try {
+                ExcelUtils.excel(config("engine: " + engine + "\n" + USERS), RowSource.of(users));
+            } finally {
+                ExportMetrics.setRegistry(Metrics.globalRegistry);
+            }
+            // 空行同样按列数计算单元格
+            assertEquals(engine.name(), 8, registry.get(ExportMetrics.CELLS).tag("name", "users").counter().count(), 0);
+        }
+    }
+
+    @Test
+    public void parallelSheetsKeepRequestedOrder() throws Exception {
+        CountDownLatch othersDone = new CountDownLatch(2);
+        // 第一个sheet等其他sheet写完后才写满并创建第二个sheet，创建顺序与传入顺序不同
+        List<Map<String, Object>> users = users(5);
+        RowSource slow = consumer -> {
+            users.subList(0, 3).forEach(consumer);
+            assertTrue(othersDone.await(5, TimeUnit.SECONDS));
+            users.subList(3, 5).forEach(consumer);
+        };
+        List<ExportSheet> sheets = Arrays.asList(
+            ExportSheet.of(config("maxRowsPerSheet: 5\n" + USERS), slow),
+            ExportSheet.of(config(USERS.replace("用户", "班级")), done(othersDone)),
+            ExportSheet.of(config(USERS.replace("用户", "学校")), done(othersDone)));
+        XSSFWorkbook book = read(ExcelUtils.excel("report", sheets));
+
+        assertEquals(Arrays.asList("用户", "用户(2)", "班级", "学校"),
+            IntStream.range(0, book.getNumberOfSheets()).mapToObj(book::getSheetName).collect(Collectors.toList()));
+        assertEquals("u4", book.getSheetAt(1).getRow(2).getCell(1).getStringCellValue());
+        assertEquals("班级", book.getSheetAt(2).getRow(0).getCell(0).getStringCellValue());
+        assertEquals(0, book.getActiveSheetIndex());
+    }
+
+    private static RowSource done(CountDownLatch latch) {
+        return consumer -> {
+            users(1).forEach(consumer);
+            latch.countDown();
+        };
+    }
+
+    private static ExcelConfig config(String yaml) throws Exception {
+        return new ObjectMapper(new YAMLFactory()).readValue(yaml, ExcelConfig.class);
+    }
+
+    private static List<Map<String, Object>> users(int count) {
+        List<Map<String, Object>> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Map<String, Object> user = new HashMap<>();
+            user.put("id", i);
+            user.put("name", "u" + i);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static XSSFWorkbook read(String fileName) throws Exception {
+        ExportStorage storage = ExcelUtils.getStorage();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        storage.transferTo(fileName, 0, storage.length(fileName), out);
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,185 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportCacheTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ExportCache.clear();
+    }
+
+    @Test
+    public void concurrentRequestsShareOneLoad() throws Exception {
+        String key = UUID.randomUUID().toString();
+        // 文件需要存在，second在first加载结束后才查询时命中缓存
+        String fileName = "users_" + key + ".csv";
+        ExcelUtils.getStorage().save(fileName, out -> out.write(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> ExportCache.get(key, config(), () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return new AbstractMap.SimpleImmutableEntry<>(fileName, 1L);
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> ExportCache.get(key, config(), () -> {
+            loads.incrementAndGet();
+            return new AbstractMap.SimpleImmutableEntry<>("users_2.csv", 10L);
+        }));
+        release.countDown();
+        try {
+            assertEquals(fileName, first.get(5, TimeUnit.SECONDS));
+            assertEquals(fileName, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            ExcelUtils.getStorage().delete(fileName);
+        }
+    }
+
+    @Test
+    public void errorWhileLoadingReleasesWaiters() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> ExportCache.get(key, config(), () -> {
+            loading.countDown();
+            await(release);
+            throw new OutOfMemoryError("Java heap space");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch calling = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            calling.countDown();
+            try {
+                ExportCache.get(key, config(), () -> {
+                    loads.incrementAndGet();
+                    return new AbstractMap.SimpleImmutableEntry<>("users_2.csv", 10L);
+                });
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        second.start();
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+        // first仍在加载，second只能阻塞在first的加载结果上
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (second.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.yield();
+        }
+        release.countDown();
+
+        try {
+            first.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof OutOfMemoryError);
+        }
+        second.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(second.isAlive());
+        // 等待中的请求收到同一个失败，不会自己重新生成
+        assertTrue(failure.get() instanceof UtilException);
+        assertEquals("Java heap space", failure.get().getMessage());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void invalidateDuringDownloadKeepsFile() throws Exception {
+        ExportStorage previous = ExcelUtils.getStorage();
+        ExcelUtils.setStorage(new LocalExportStorage(this.folder.getRoot()));
+        try {
+            ExcelConfig config = new ObjectMapper(new YAMLFactory()).readValue("name: users\n"
+                + "fileName: users\n"
+                + "fileType: CSV\n"
+                + "cacheTtl: 10\n"
+                + "cacheTags: [user]\n"
+                + "headers:\n  - [{name: id}, {name: name}]\n"
+                + "fields: [id, name]\n", ExcelConfig.class);
+            Map<String, Object> user = new HashMap<>();
+            user.put("id", 1);
+            user.put("name", "u1");
+            StreamingResponseBody body = ExcelUtils.stream(config, RowSource.of(Collections.singletonList(user)),
+                new MockHttpServletResponse(), new MockHttpServletRequest());
+            ByteArrayOutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    // 传输过程中表数据变更
+                    ExportCache.invalidate("user");
+                    super.write(b, off, len);
+                }
+            };
+            body.writeTo(out);
+            assertEquals("id,name\r\n1,u1\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+            // 失效的文件不再命中，但仍可以断点续传
+            String[] files = this.folder.getRoot().list();
+            assertEquals(1, files.length);
+            assertFalse(ExportCache.contains(files[0]));
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader("Range", "bytes=9-");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            ExcelUtils.download(files[0], "users.csv", response, request);
+            assertEquals(206, response.getStatus());
+            assertEquals("1,u1\r\n", response.getContentAsString());
+
+            // 不再被缓存引用的文件由过期清理删除
+            ExcelUtils.getStorage().deleteExpired(Long.MAX_VALUE, ExportCache::contains);
+            assertEquals(0, this.folder.getRoot().list().length);
+        } finally {
+            ExcelUtils.setStorage(previous);
+        }
+    }
+
+    private static ExcelConfig config() {
+        ExcelConfig config = new ExcelConfig();
+        config.setName("users");
+        config.setCacheTtl(10);
+        config.setCacheTags(Collections.singletonList("user"));
+        return config;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportDownloadTests {
+
+    private static final String FILE = "users_0d9f.csv";
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExportStorage previous;
+
+    @Before
+    public void setUp() throws Exception {
+        this.previous = ExcelUtils.getStorage();
+        ExportStorage storage = new LocalExportStorage(this.folder.getRoot());
+        storage.save(FILE, out -> out.write(CONTENT));
+        ExcelUtils.setStorage(storage);
+    }
+
+    @After
+    public void tearDown() {
+        ExcelUtils.setStorage(this.previous);
+    }
+
+    @Test
+    public void parsesSingleRanges() {
+        assertArrayEquals(new long[]{0, 499}, ExcelUtils.parseRange("bytes=0-499", 1000));
+        assertArrayEquals(new long[]{500, 999}, ExcelUtils.parseRange("bytes=500-", 1000));
+        assertArrayEquals(new long[]{500, 999}, ExcelUtils.parseRange("bytes=-500", 1000));
+        // 超出文件长度的结束位置截断到文件末尾
+        assertArrayEquals(new long[]{900, 999}, ExcelUtils.parseRange("bytes=900-5000", 1000));
+        assertArrayEquals(new long[]{0, 999}, ExcelUtils.parseRange("bytes=-5000", 1000));
+        // 起始位置无效的范围由调用方返回416
+        assertArrayEquals(new long[]{1000, 999}, ExcelUtils.parseRange("bytes=1000-", 1000));
+    }
+
+    @Test
+    public void ignoresUnsupportedRanges() {
+        assertNull(ExcelUtils.parseRange(null, 1000));
+        assertNull(ExcelUtils.parseRange("items=0-1", 1000));
+        assertNull(ExcelUtils.parseRange("bytes=0-1,5-6", 1000));
+        assertNull(ExcelUtils.parseRange("bytes=abc", 1000));
+        assertNull(ExcelUtils.parseRange("bytes=a-b", 1000));
+    }
+
+    @Test
+    public void downloadsWholeFile() throws Exception {
+        MockHttpServletResponse response = download(null);
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(CONTENT.length, response.getContentLengthLong());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void downloadsPartialContent() throws Exception {
+        MockHttpServletResponse response = download("bytes=2-5");
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("2345", response.getContentAsString());
+
+        MockHttpServletResponse suffix = download("bytes=-3");
+        assertEquals(206, suffix.getStatus());
+        assertEquals("bytes 7-9/10", suffix.getHeader("Content-Range"));
+        assertEquals("789", suffix.getContentAsString());
+    }
+
+    @Test
+    public void rejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletResponse response = download("bytes=10-");
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        assertEquals(416, download("bytes=6-2").getStatus());
+    }
+
+    @Test
+    public void recordsTransferUnderExportName() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        String fileName = String.format("transfer_%s.csv", uuid);
+        ExcelUtils.getStorage().save(fileName, out -> out.write(CONTENT));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ExportMetrics.setRegistry(registry);
+        try {
+            ExcelUtils.download(fileName, response, new MockHttpServletRequest());
+        } finally {
+            ExportMetrics.setRegistry(Metrics.globalRegistry);
+        }
+
+        // 下载文件名和统计名称都不包含uuid
+        assertTrue(response.getHeader("Content-Disposition").contains("\"transfer.csv\""));
+        assertEquals(CONTENT.length, registry.get(ExportMetrics.TRANSFERRED_BYTES).tag("name", "transfer").counter().count(), 0);
+        assertEquals(1, registry.get(ExportMetrics.STAGE).tags("name", "transfer", "stage", "TRANSFER").timer().count());
+        assertFalse(registry.getMeters().stream()
+            .anyMatch(meter -> String.valueOf(meter.getId().getTag("name")).contains(uuid)));
+    }
+
+    @Test
+    public void streamWritesGeneratedFileOutsideScheduler() throws Exception {
+        ExcelConfig config = new ObjectMapper(new YAMLFactory()).readValue("fileName: streamed\n"
+            + "fileType: CSV\n"
+            + "headers:\n  - [{name: id}, {name: name}]\n"
+            + "fields: [id, name]\n", ExcelConfig.class);
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", 1);
+        user.put("name", "u1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        StreamingResponseBody body = ExcelUtils.stream(config, RowSource.of(Collections.singletonList(user)),
+            response, new MockHttpServletRequest());
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // 文件在调度器的线程中生成，传输不在调度器中进行
+                assertFalse(Thread.currentThread().getName().startsWith("excel-export-"));
+                super.write(b, off, len);
+            }
+        };
+        body.writeTo(out);
+
+        assertEquals("id,name\r\n1,u1\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(out.size(), response.getContentLengthLong());
+        assertTrue(response.getHeader("Content-Disposition").contains("\"streamed.csv\""));
+        // 生成的文件在写入后删除
+        assertArrayEquals(new String[]{FILE}, this.folder.getRoot().list());
+    }
+
+    @Test
+    public void extractsExportName() {
+        assertEquals("用户_2019", ExcelUtils.exportName("用户_2019_" + UUID.randomUUID() + ".xlsx"));
+        assertEquals("users_0d9f", ExcelUtils.exportName(FILE));
+        assertEquals("users", ExcelUtils.exportName("users"));
+    }
+
+    private MockHttpServletResponse download(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExcelUtils.download(FILE, "users.csv", response, request);
+        return response;
+    }
+}
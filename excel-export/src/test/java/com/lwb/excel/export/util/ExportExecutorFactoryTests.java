@@ -0,0 +1,61 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExecutorType;
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class ExportExecutorFactoryTests {
+
+    @Test
+    public void platformIsUsedWhenRequested() {
+        assertTrue(ExportExecutorFactory.of(ExecutorType.PLATFORM) instanceof PlatformExecutorFactory);
+    }
+
+    @Test
+    public void autoFallsBackToPlatformWithoutVirtualThreads() {
+        assumeFalse(VirtualExecutorFactory.isSupported());
+        assertTrue(ExportExecutorFactory.of(ExecutorType.AUTO) instanceof PlatformExecutorFactory);
+        try {
+            ExportExecutorFactory.of(ExecutorType.VIRTUAL);
+            fail();
+        } catch (UtilException e) {
+            assertTrue(e.getMessage().contains(System.getProperty("java.version")));
+        }
+    }
+
+    @Test
+    public void onlyRequestPoolUsesVirtualThreads() throws Exception {
+        assumeTrue(VirtualExecutorFactory.isSupported());
+        ExportExecutorFactory factory = ExportExecutorFactory.of(ExecutorType.AUTO);
+        assertTrue(factory instanceof VirtualExecutorFactory);
+
+        ExecutorService request = factory.newRequestPool("test-request-", 1);
+        ExecutorService pool = factory.newPool("test-pool-", 1, new LinkedBlockingQueue<>());
+        ExecutorService unbounded = factory.newUnbounded("test-unbounded-");
+        try {
+            assertTrue(isVirtual(request));
+            // 导出生成的线程池中有synchronized和JDBC调用，仍使用平台线程
+            assertFalse(isVirtual(pool));
+            assertFalse(isVirtual(unbounded));
+        } finally {
+            request.shutdown();
+            pool.shutdown();
+            unbounded.shutdown();
+        }
+    }
+
+    private static boolean isVirtual(ExecutorService executor) throws Exception {
+        return executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+            .get(5, TimeUnit.SECONDS);
+    }
+}
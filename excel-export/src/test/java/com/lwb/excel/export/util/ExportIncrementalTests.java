@@ -0,0 +1,202 @@
+package com.lwb.excel.export.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.lwb.excel.export.enums.IncrementalMode;
+import com.lwb.excel.export.exception.ExportRejectedException;
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportIncrementalTests {
+
+    private static final String YML = "fileName: users\n"
+        + "fileType: CSV\n"
+        + "headers:\n  - [{name: id}, {name: name}]\n"
+        + "fields: [id, name]\n"
+        + "watermark: id\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExportStorage previous;
+    private final List<Map<String, Object>> users = new ArrayList<>();
+    private final List<Object> queried = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        this.previous = ExcelUtils.getStorage();
+        ExcelUtils.setStorage(new LocalExportStorage(this.folder.getRoot()));
+        addUsers(1, 3);
+    }
+
+    @After
+    public void tearDown() {
+        ExcelUtils.setStorage(this.previous);
+    }
+
+    @Test
+    public void deltaExportsOnlyNewRows() throws Exception {
+        ExcelConfig config = config(IncrementalMode.DELTA, null);
+        assertEquals("id,name\r\n1,u1\r\n2,u2\r\n3,u3\r\n", download(config, "a"));
+        addUsers(4, 5);
+        assertEquals("id,name\r\n4,u4\r\n5,u5\r\n", download(config, "a"));
+        assertEquals(Arrays.asList(null, 3L), this.queried);
+        // 每个消费方单独记录水位
+        assertEquals(5, lines(download(config, "b")) - 1);
+    }
+
+    @Test
+    public void overlapQueriesAgainWithoutMovingWatermarkBack() throws Exception {
+        ExcelConfig config = config(IncrementalMode.DELTA, 2L);
+        download(config, "a");
+        // 提交较晚、主键较小的数据在回退范围内
+        assertEquals("id,name\r\n2,u2\r\n3,u3\r\n", download(config, "a"));
+        assertEquals("id,name\r\n2,u2\r\n3,u3\r\n", download(config, "a"));
+        assertEquals(Arrays.asList(null, 1L, 1L), this.queried);
+        assertEquals(3L, ExportWatermarks.get(config.getName(), "a").orElse(null));
+    }
+
+    @Test
+    public void appendReturnsWholeFileAndKeepsPreviousBaseFile() throws Exception {
+        ExcelConfig config = config(IncrementalMode.APPEND, null);
+        download(config, "a");
+        String firstBase = ExportWatermarks.getBaseFile(config.getName(), "a").orElse(null);
+        addUsers(4, 4);
+        assertEquals("id,name\r\n1,u1\r\n2,u2\r\n3,u3\r\n4,u4\r\n", download(config, "a"));
+        // 之前的完整文件可能仍在下载，由过期清理删除
+        assertTrue(new File(this.folder.getRoot(), firstBase).isFile());
+    }
+
+    @Test
+    public void appendRejectsOverlap() throws Exception {
+        try {
+            download(config(IncrementalMode.APPEND, 1L), "a");
+            fail();
+        } catch (UtilException e) {
+            assertTrue(e.getMessage().contains("回退"));
+        }
+    }
+
+    @Test
+    public void concurrentExportForSameConsumerIsRejected() throws Exception {
+        ExcelConfig config = config(IncrementalMode.DELTA, null);
+        // 模拟另一个请求正在导出同一个消费方
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        Lock lock = other.submit(() -> ExportWatermarks.tryLock(config.getName(), "a")).get()
+            .orElseThrow(IllegalStateException::new);
+        try {
+            download(config, "a");
+            fail();
+        } catch (ExportRejectedException e) {
+            assertTrue(e.getMessage().contains("正在进行"));
+        } finally {
+            other.submit(lock::unlock).get();
+            other.shutdown();
+        }
+        // 其他消费方不受影响
+        assertEquals(4, lines(download(config, "b")));
+        assertNull(ExportWatermarks.get(config.getName(), "a").orElse(null));
+    }
+
+    @Test
+    public void releasedLockIsRemoved() throws Exception {
+        ExcelConfig config = config(IncrementalMode.DELTA, null);
+        Lock first = ExportWatermarks.tryLock(config.getName(), "a").orElseThrow(IllegalStateException::new);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            assertFalse(other.submit(() -> ExportWatermarks.tryLock(config.getName(), "a")).get().isPresent());
+        } finally {
+            other.shutdown();
+        }
+        first.unlock();
+        // 释放后锁表中不再保留，下次获取的是新的锁
+        Lock second = ExportWatermarks.tryLock(config.getName(), "a").orElseThrow(IllegalStateException::new);
+        second.unlock();
+        assertNotSame(first, second);
+        assertEquals(4, lines(download(config, "a")));
+    }
+
+    @Test
+    public void rewindsWatermarks() {
+        assertEquals(8L, ExportWatermarks.rewind(10L, 2));
+        assertEquals(8, ExportWatermarks.rewind(10, 2));
+        assertEquals(new BigDecimal("8.5"), ExportWatermarks.rewind(new BigDecimal("10.5"), 2));
+        assertEquals(new Date(58_000), ExportWatermarks.rewind(new Date(60_000), 2));
+        assertEquals(new Timestamp(58_000), ExportWatermarks.rewind(new Timestamp(60_000), 2));
+        assertEquals(LocalDateTime.of(2019, 9, 1, 0, 0), ExportWatermarks.rewind(LocalDateTime.of(2019, 9, 1, 0, 1), 60));
+        assertEquals(Instant.ofEpochSecond(8), ExportWatermarks.rewind(Instant.ofEpochSecond(10), 2));
+        assertEquals(10L, ExportWatermarks.rewind(10L, 0));
+        assertNull(ExportWatermarks.rewind(null, 2));
+        try {
+            ExportWatermarks.rewind("10", 2);
+            fail();
+        } catch (UtilException e) {
+            assertTrue(e.getMessage().contains("不支持回退"));
+        }
+    }
+
+    private String download(ExcelConfig config, String consumer) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExcelUtils.downloadIncremental(config, consumer, since -> {
+            this.queried.add(since);
+            List<Map<String, Object>> rows = this.users.stream()
+                .filter(user -> since == null || (Long) user.get("id") > (Long) since)
+                .collect(Collectors.toList());
+            return RowSource.of(rows);
+        }, response, new MockHttpServletRequest());
+        return response.getContentAsString();
+    }
+
+    private void addUsers(long from, long to) {
+        for (long id = from; id <= to; id++) {
+            Map<String, Object> user = new HashMap<>();
+            user.put("id", id);
+            user.put("name", "u" + id);
+            this.users.add(user);
+        }
+    }
+
+    private static ExcelConfig config(IncrementalMode mode, Long overlap) throws Exception {
+        ExcelConfig config = new ObjectMapper(new YAMLFactory()).readValue(YML, ExcelConfig.class);
+        // 每个测试使用单独的导出名称，水位互不影响
+        config.setName("users-" + UUID.randomUUID());
+        config.setIncrementalMode(mode);
+        config.setWatermarkOverlap(overlap);
+        return config;
+    }
+
+    private static int lines(String csv) {
+        return (int) Arrays.stream(csv.split("\r\n")).filter(line -> !Objects.equals(line, "")).count();
+    }
+}
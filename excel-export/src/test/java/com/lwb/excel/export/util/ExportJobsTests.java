@@ -0,0 +1,48 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportStatus;
+import com.lwb.excel.export.enums.FileType;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ExportJobsTests {
+
+    @Test
+    public void finishedJobHasFile() throws Exception {
+        ExportJob job = ExportJobs.submit(config(), progress -> "users_1.xlsx");
+        awaitDone(job);
+        assertEquals(ExportStatus.FINISHED, job.getStatus());
+        assertEquals("users_1.xlsx", job.getFileName());
+    }
+
+    @Test
+    public void errorFailsJob() throws Exception {
+        ExportJob job = ExportJobs.submit(config(), progress -> {
+            throw new OutOfMemoryError("Java heap space");
+        });
+        awaitDone(job);
+        assertEquals(ExportStatus.FAILED, job.getStatus());
+        assertEquals("Java heap space", job.getMessage());
+        // 结束时间用于过期清理
+        assertNotNull(job.getFinishTime());
+    }
+
+    private static ExcelConfig config() {
+        ExcelConfig config = new ExcelConfig();
+        config.setName("users");
+        config.setFileName("users");
+        config.setFileType(FileType.XLSX);
+        return config;
+    }
+
+    private static void awaitDone(ExportJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getFinishTime() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportStage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExportMetricsTests {
+
+    private MeterRegistry registry;
+
+    @Before
+    public void setUp() {
+        this.registry = new SimpleMeterRegistry();
+        ExportMetrics.setRegistry(this.registry);
+    }
+
+    @After
+    public void tearDown() {
+        ExportMetrics.setRegistry(Metrics.globalRegistry);
+    }
+
+    @Test
+    public void recordsExportUnderItsName() {
+        ExportProgress progress = new ExportProgress("users");
+        ExportMetrics.started(progress);
+        assertEquals(1, this.registry.get(ExportMetrics.ACTIVE_EXPORTS).gauge().value(), 0);
+
+        progress.addRow(2);
+        progress.addRow(2);
+        progress.addStageNanos(ExportStage.FETCH, TimeUnit.MILLISECONDS.toNanos(5));
+        ExportMetrics.finished(progress, TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        assertEquals(0, this.registry.get(ExportMetrics.ACTIVE_EXPORTS).gauge().value(), 0);
+        assertEquals(1, this.registry.get(ExportMetrics.RESULTS).tags("name", "users", "result", "success").counter().count(), 0);
+        assertEquals(2, this.registry.get(ExportMetrics.ROWS).tag("name", "users").counter().count(), 0);
+        assertEquals(4, this.registry.get(ExportMetrics.CELLS).tag("name", "users").counter().count(), 0);
+        assertEquals(5, this.registry.get(ExportMetrics.STAGE).tags("name", "users", "stage", "FETCH").timer()
+            .totalTime(TimeUnit.MILLISECONDS), 0);
+        assertEquals(20, this.registry.get(ExportMetrics.STAGE).tags("name", "users", "stage", "GENERATE").timer()
+            .totalTime(TimeUnit.MILLISECONDS), 0);
+    }
+
+    @Test
+    public void countsFailuresAndRejections() {
+        ExportProgress progress = new ExportProgress("users");
+        ExportMetrics.started(progress);
+        ExportMetrics.finished(progress, 1, true);
+        ExportMetrics.rejected("users");
+        ExportMetrics.rejected("users");
+
+        assertEquals(1, this.registry.get(ExportMetrics.RESULTS).tags("name", "users", "result", "failure").counter().count(), 0);
+        assertEquals(2, this.registry.get(ExportMetrics.RESULTS).tags("name", "users", "result", "rejected").counter().count(), 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.annotation.Export;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExportRegistryTests {
+
+    private static final String CONFIG = "headers: [[{name: 编号}]]\nfields: [id]\nfileName: ";
+
+    @After
+    public void tearDown() {
+        ExportRegistry.unbind();
+        ExportRegistry.setReloadEnabled(false);
+    }
+
+    @Test
+    public void boundMethodTakesPrecedenceOverStack() throws Exception {
+        assertEquals("用户列表", users());
+
+        ExportRegistry.bind(ExportRegistryTests.class.getDeclaredMethod("schools"));
+        assertEquals("学校列表", users());
+        // 绑定只对当前线程有效
+        assertEquals("用户列表", CompletableFuture.supplyAsync(ExportRegistryTests::users).get(5, TimeUnit.SECONDS));
+
+        ExportRegistry.unbind();
+        assertEquals("用户列表", users());
+    }
+
+    @Test
+    public void reloadsModifiedConfig() throws Exception {
+        // 配置文件与测试类在同一个文件夹中
+        File directory = new File(ExportRegistryTests.class.getResource("").toURI());
+        File file = new File(directory, "reload-" + UUID.randomUUID() + ".yml");
+        try {
+            Files.write(file.toPath(), (CONFIG + "v1").getBytes(StandardCharsets.UTF_8));
+            ExcelConfig config = ExportRegistry.get(ExportRegistryTests.class, file.getName());
+            assertEquals("v1", config.getFileName());
+
+            Files.write(file.toPath(), (CONFIG + "v2").getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(file.lastModified() + TimeUnit.SECONDS.toMillis(2));
+            // 没有开启重新加载时使用缓存的配置
+            assertSame(config, ExportRegistry.get(ExportRegistryTests.class, file.getName()));
+
+            ExportRegistry.setReloadEnabled(true);
+            ExcelConfig reloaded = ExportRegistry.get(ExportRegistryTests.class, file.getName());
+            assertEquals("v2", reloaded.getFileName());
+            assertSame(reloaded, ExportRegistry.get(ExportRegistryTests.class, file.getName()));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Export("/com/lwb/excel/export/controller/user-list.yml")
+    private static String users() {
+        return ExportRegistry.current().getFileName();
+    }
+
+    @Export("/com/lwb/excel/export/controller/school-list.yml")
+    private static String schools() {
+        return ExportRegistry.current().getFileName();
+    }
+}
@@ -0,0 +1,183 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.enums.ExportPriority;
+import com.lwb.excel.export.exception.ExportRejectedException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportSchedulerTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExportScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        this.release.countDown();
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void queuedJobsDoNotReserveMemory() throws Exception {
+        this.scheduler = new ExportScheduler(1, 3, 0, 1, null, 100, 64);
+        Future<?> running = block("a", ExportPriority.NORMAL, 64);
+        awaitActive(1);
+        List<Future<?>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queued.add(this.scheduler.submit("a", ExportPriority.NORMAL, 64, () -> null));
+        }
+        assertEquals(3, this.scheduler.getQueued());
+        assertEquals(36, this.scheduler.getAvailableMemory());
+
+        // 只有排队数决定是否拒绝
+        try {
+            this.scheduler.submit("a", ExportPriority.NORMAL, 1, () -> null);
+            fail();
+        } catch (ExportRejectedException e) {
+            assertTrue(e.getMessage().contains("排队已满"));
+        }
+
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        for (Future<?> future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, this.scheduler.getQueued());
+        // 任务完成后才释放内存
+        awaitAvailableMemory(100);
+    }
+
+    @Test
+    public void jobsWaitForMemory() throws Exception {
+        this.scheduler = new ExportScheduler(4, 10, 0, 4, null, 100, 64);
+        block("a", ExportPriority.NORMAL, 60);
+        awaitActive(1);
+        Future<String> waiting = this.scheduler.submit("b", ExportPriority.NORMAL, 60, () -> "done");
+        Thread.sleep(100);
+        assertEquals(1, this.scheduler.getActive());
+        assertEquals(1, this.scheduler.getQueued());
+        assertTrue(!waiting.isDone());
+
+        this.release.countDown();
+        assertEquals("done", waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void jobLargerThanBudgetRunsAlone() throws Exception {
+        this.scheduler = new ExportScheduler(2, 10, 0, 2, null, 100, 64);
+        assertEquals("big", this.scheduler.submit("a", ExportPriority.NORMAL, 500, () -> "big").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queuedJobsRunByPriority() throws Exception {
+        this.scheduler = new ExportScheduler(1, 10, 0, 10, null, 1000, 1);
+        Future<?> running = block("a", ExportPriority.NORMAL, 1);
+        awaitActive(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (String name : Arrays.asList("low-1", "normal-1", "high-1", "low-2", "high-2")) {
+            ExportPriority priority = ExportPriority.valueOf(name.substring(0, name.indexOf('-')).toUpperCase());
+            futures.add(this.scheduler.submit("b", priority, 1, () -> order.add(name)));
+        }
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList("high-1", "high-2", "normal-1", "low-1", "low-2"), order);
+    }
+
+    @Test
+    public void typeLimitDoesNotBlockOtherTypes() throws Exception {
+        this.scheduler = new ExportScheduler(2, 10, 0, 1, null, 1000, 1);
+        block("a", ExportPriority.NORMAL, 1);
+        awaitActive(1);
+        Future<String> sameType = this.scheduler.submit("a", ExportPriority.HIGH, 1, () -> "a");
+        Future<String> otherType = this.scheduler.submit("b", ExportPriority.LOW, 1, () -> "b");
+        assertEquals("b", otherType.get(5, TimeUnit.SECONDS));
+        assertTrue(!sameType.isDone());
+        this.release.countDown();
+        assertEquals("a", sameType.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callGivesUpAfterQueueTimeout() {
+        this.scheduler = new ExportScheduler(1, 10, 100, 1, null, 1000, 1);
+        block("a", ExportPriority.NORMAL, 1);
+        awaitActive(1);
+        ExcelConfig config = new ExcelConfig();
+        config.setName("a");
+        long start = System.nanoTime();
+        try {
+            this.scheduler.call(config, () -> "never");
+            fail();
+        } catch (ExportRejectedException e) {
+            assertTrue(e.getMessage().contains("排队超时"));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertEquals(0, this.scheduler.getQueued());
+    }
+
+    @Test
+    public void shutdownFailsQueuedJobs() throws Exception {
+        this.scheduler = new ExportScheduler(1, 10, 0, 1, null, 1000, 1);
+        Future<?> running = block("a", ExportPriority.NORMAL, 1);
+        awaitActive(1);
+        Future<?> queued = this.scheduler.submit("a", ExportPriority.NORMAL, 1, () -> null);
+
+        ExportScheduler old = this.scheduler;
+        ExportScheduler.setDefault(old);
+        ExportScheduler.setDefault(new ExportScheduler(1, 10, 0, 1, null, 1000, 1));
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ExportRejectedException);
+        }
+        try {
+            old.submit("a", ExportPriority.NORMAL, 1, () -> null);
+            fail();
+        } catch (ExportRejectedException e) {
+            assertTrue(e.getMessage().contains("已关闭"));
+        }
+        // 正在执行的任务不受影响
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        // 恢复为按需创建的默认调度器，避免影响其他测试
+        ExportScheduler.setDefault(null);
+    }
+
+    private Future<?> block(String type, ExportPriority priority, int memory) {
+        return this.scheduler.submit(type, priority, memory, () -> this.release.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitActive(int active) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.scheduler.getActive() != active && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(active, this.scheduler.getActive());
+    }
+
+    private void awaitAvailableMemory(int memory) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.scheduler.getAvailableMemory() != memory && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(memory, this.scheduler.getAvailableMemory());
+    }
+}
@@ -0,0 +1,71 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportWorkbookTests {
+
+    private static final String VALUE = StringUtils.repeat('x', 1024);
+
+    @Test
+    public void countsTempBytes() throws Exception {
+        ExportProgress progress = new ExportProgress("temp");
+        ExportWorkbook book = ExportWorkbook.of(config(0), progress);
+        try {
+            write(book.createSheet(), 100);
+            // 行窗口之外的行写入临时文件
+            assertTrue(progress.getTempBytes() >= 64 * VALUE.length());
+        } finally {
+            book.dispose();
+        }
+    }
+
+    @Test
+    public void quotaExceededAbortsExport() throws Exception {
+        ExportProgress progress = new ExportProgress("quota");
+        ExportWorkbook book = ExportWorkbook.of(config(1), progress);
+        try {
+            write(book.createSheet(), 2048);
+            fail();
+        } catch (UtilException e) {
+            assertEquals("导出临时文件超过磁盘配额1MB", e.getMessage());
+        }
+        // 超过配额后仍可以释放临时文件
+        assertTrue(book.dispose());
+    }
+
+    @Test
+    public void multiSheetQuotaIsSumOfConfigs() throws Exception {
+        ExportProgress progress = new ExportProgress("quota");
+        // 1MB + 1MB，写入约1.5MB不超过配额
+        ExportWorkbook book = ExportWorkbook.of(Arrays.asList(config(1), config(1)), progress);
+        try {
+            write(book.createSheet(), 1536);
+            assertTrue(progress.getTempBytes() > 1024 * 1024);
+        } finally {
+            book.dispose();
+        }
+    }
+
+    private static ExcelConfig config(int tempQuota) {
+        ExcelConfig config = new ExcelConfig();
+        config.setWindowSize(10);
+        config.setCompressTempFiles(false);
+        config.setTempQuota(tempQuota);
+        return config;
+    }
+
+    private static void write(SXSSFSheet sheet, int rows) {
+        for (int i = 0; i < rows; i++) {
+            sheet.createRow(i).createCell(0).setCellValue(VALUE);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.entity.School;
+import com.lwb.excel.export.exception.UtilException;
+import com.lwb.excel.export.vo.ClassVO;
+import com.lwb.excel.export.vo.UserVO;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class FieldAccessorTests {
+
+    private static final List<String> FIELDS = Arrays.asList("id", "classVO.name", "classVO.school.name");
+
+    @Test
+    public void readsNestedFields() {
+        UserVO user = new UserVO();
+        user.setId(1L);
+        user.setClassVO(new ClassVO());
+        user.getClassVO().setName("一班");
+        user.getClassVO().setSchool(new School().setName("实验小学"));
+
+        FieldAccessor[] accessors = FieldAccessor.of(UserVO.class, FIELDS);
+        assertEquals(1L, accessors[0].get(user));
+        assertEquals("一班", accessors[1].get(user));
+        assertEquals("实验小学", accessors[2].get(user));
+        assertEquals("classVO.school.name", accessors[2].getFieldName());
+    }
+
+    @Test
+    public void nullInPathReturnsNull() {
+        UserVO user = new UserVO();
+        user.setClassVO(new ClassVO());
+
+        FieldAccessor[] accessors = FieldAccessor.of(UserVO.class, FIELDS);
+        // school为null
+        assertNull(accessors[2].get(user));
+        // classVO为null
+        user.setClassVO(null);
+        assertNull(accessors[1].get(user));
+        assertNull(accessors[2].get(user));
+    }
+
+    @Test
+    public void reusesCompiledAccessors() {
+        FieldAccessor[] accessors = FieldAccessor.of(UserVO.class, FIELDS);
+        // 内容相同的字段列表命中同一个缓存
+        assertSame(accessors, FieldAccessor.of(UserVO.class, Arrays.asList("id", "classVO.name", "classVO.school.name")));
+    }
+
+    @Test
+    public void readsMapValuesInPath() {
+        Holder holder = new Holder();
+        holder.extra = new HashMap<>();
+        holder.extra.put("key", "v");
+        holder.extra.put("a.b", "ab");
+
+        FieldAccessor[] accessors = FieldAccessor.of(Holder.class, Arrays.asList("extra.key", "extra.a.b", "extra.none"));
+        assertEquals("v", accessors[0].get(holder));
+        // 剩余的路径作为map的key
+        assertEquals("ab", accessors[1].get(holder));
+        assertNull(accessors[2].get(holder));
+    }
+
+    @Test
+    public void readsFieldsOfActualType() {
+        Holder holder = new Holder();
+        holder.base = new Sub();
+        ((Sub) holder.base).code = "c";
+        ((Sub) holder.base).school = new School().setName("实验小学");
+
+        // code和school只在子类中声明
+        FieldAccessor[] accessors = FieldAccessor.of(Holder.class, Arrays.asList("base.code", "base.school.name"));
+        assertEquals("c", accessors[0].get(holder));
+        assertEquals("实验小学", accessors[1].get(holder));
+        holder.base = null;
+        assertNull(accessors[0].get(holder));
+    }
+
+    @Test
+    public void rejectsUnknownField() {
+        try {
+            FieldAccessor.of(UserVO.class, Collections.singletonList("teacher"));
+            fail();
+        } catch (UtilException e) {
+            assertEquals(UserVO.class.getName() + "中没有找到字段teacher", e.getMessage());
+        }
+        // 嵌套字段按实际类型查找，取值时才能确定字段是否存在
+        FieldAccessor accessor = FieldAccessor.of(UserVO.class, Collections.singletonList("classVO.teacher"))[0];
+        UserVO user = new UserVO();
+        user.setClassVO(new ClassVO());
+        try {
+            accessor.get(user);
+            fail();
+        } catch (UtilException e) {
+            assertEquals(ClassVO.class.getName() + "中没有找到字段teacher", e.getMessage());
+        }
+    }
+
+    private static class Holder {
+        Map<String, Object> extra;
+        Base base;
+    }
+
+    private static class Base {
+    }
+
+    private static class Sub extends Base {
+        String code;
+        School school;
+    }
+}
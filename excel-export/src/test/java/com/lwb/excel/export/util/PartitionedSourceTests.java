@@ -0,0 +1,100 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PartitionedSourceTests {
+
+    @Test
+    public void splitsKeyRanges() throws Exception {
+        List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+        List<Object> rows = collect(PartitionedSource.byKeyRange(1L, 25L, 10, (from, to) -> {
+            ranges.add(from + "-" + to);
+            return LongStream.range(from, to).boxed().collect(Collectors.toList());
+        }, 2));
+        assertEquals(Arrays.asList("1-11", "11-21", "21-26"), sorted(ranges));
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().collect(Collectors.toList()), rows);
+    }
+
+    @Test
+    public void splitsPages() throws Exception {
+        List<Object> rows = collect(PartitionedSource.byPage(25, 10, (offset, limit) ->
+            Collections.singletonList(offset + ":" + limit), 3));
+        assertEquals(Arrays.asList("0:10", "10:10", "20:10"), rows);
+        assertTrue(collect(PartitionedSource.byPage(0, 10, (offset, limit) -> Collections.singletonList(offset), 3)).isEmpty());
+    }
+
+    @Test
+    public void generatesSparseRangesLazily() {
+        // 雪花id：上亿个分片，只查询前几个
+        AtomicInteger fetched = new AtomicInteger();
+        RowSource source = PartitionedSource.byKeyRange(0L, 1_000_000_000_000L, 10_000, (from, to) -> {
+            if (fetched.incrementAndGet() > 5) {
+                throw new UtilException("stop");
+            }
+            return Collections.singletonList(from);
+        }, 2);
+        try {
+            source.forEach(row -> { });
+            fail();
+        } catch (Exception e) {
+            assertEquals("stop", e.getMessage());
+        }
+    }
+
+    @Test
+    public void lastRangeNearLongMaxDoesNotOverflow() throws Exception {
+        long max = Long.MAX_VALUE - 1;
+        List<Object> ranges = collect(PartitionedSource.byKeyRange(max - 15, max, 10, (from, to) ->
+            Collections.singletonList(Arrays.asList(from, to)), 1));
+        assertEquals(Arrays.asList(Arrays.asList(max - 15, max - 5), Arrays.asList(max - 5, Long.MAX_VALUE)), ranges);
+    }
+
+    @Test
+    public void boundsPartitionsInMemory() throws Exception {
+        int parallelism = 3;
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        RowSource source = PartitionedSource.byPage(100, 1, (offset, limit) -> {
+            peak.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+            return Collections.singletonList(offset);
+        }, parallelism);
+        // 写完一行（一个分片）后才释放
+        source.forEach(row -> outstanding.decrementAndGet());
+        assertTrue(peak.get() <= parallelism);
+    }
+
+    @Test
+    public void rejectsInvalidStep() {
+        try {
+            PartitionedSource.byKeyRange(1L, 10L, 0, (from, to) -> Collections.emptyList(), 1);
+            fail();
+        } catch (UtilException e) {
+            assertTrue(e.getMessage().contains("跨度"));
+        }
+    }
+
+    private static List<Object> collect(RowSource source) throws Exception {
+        List<Object> rows = new ArrayList<>();
+        source.forEach(rows::add);
+        return rows;
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,413 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class S3ExportStorageTests {
+
+    /**
+     * AWS Signature Version 4测试套件中的凭证
+     */
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    private static final String AMZ_DATE = "20150830T123600Z";
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private HttpServer server;
+    private S3ExportStorage storage;
+
+    /**
+     * key -> 对象内容
+     */
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastModified = new ConcurrentHashMap<>();
+    /**
+     * key或uploadId -> 生成对象的节点
+     */
+    private final Map<String, String> nodes = new ConcurrentHashMap<>();
+    /**
+     * uploadId -> 已上传的分片
+     */
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final List<String> aborted = new CopyOnWriteArrayList<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile boolean ignoreRange;
+    private volatile int pageSize = 1000;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/exports", this::handle);
+        this.server.start();
+        this.storage = storage("app/", "node-1");
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void rejectsEmptyPrefix() {
+        for (String prefix : Arrays.asList(null, "")) {
+            try {
+                storage(prefix, "node-1");
+                fail();
+            } catch (UtilException e) {
+                assertTrue(e.getMessage().contains("前缀"));
+            }
+        }
+    }
+
+    @Test
+    public void signsGetVanilla() {
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("host", "example.amazonaws.com");
+        headers.put("x-amz-date", AMZ_DATE);
+        String canonicalRequest = S3ExportStorage.canonicalRequest("GET", "/", "", headers, EMPTY_SHA256);
+        assertEquals("GET\n/\n\nhost:example.amazonaws.com\nx-amz-date:20150830T123600Z\n\nhost;x-amz-date\n"
+            + EMPTY_SHA256, canonicalRequest);
+        assertEquals("5fa00fa31553b73ebf1942676e86291e8372ff2a2260956d9b8aae1d763fbf31",
+            S3ExportStorage.signature(SECRET_KEY, AMZ_DATE, S3ExportStorage.scope(AMZ_DATE, "us-east-1", "service"),
+                canonicalRequest));
+    }
+
+    @Test
+    public void signsIamListUsers() {
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("content-type", "application/x-www-form-urlencoded; charset=utf-8");
+        headers.put("host", "iam.amazonaws.com");
+        headers.put("x-amz-date", AMZ_DATE);
+        String canonicalRequest = S3ExportStorage.canonicalRequest("GET", "/", "Action=ListUsers&Version=2010-05-08",
+            headers, EMPTY_SHA256);
+        assertEquals("5d672d79c15b13162d9279b0855cfba6789a8edb4c82c400e06b5924a6f2b5d7",
+            S3ExportStorage.signature(SECRET_KEY, AMZ_DATE, S3ExportStorage.scope(AMZ_DATE, "us-east-1", "iam"),
+                canonicalRequest));
+    }
+
+    @Test
+    public void encodesKeys() {
+        assertEquals("a-b_c.d~e", S3ExportStorage.encode("a-b_c.d~e", false));
+        assertEquals("app/%E7%94%A8%E6%88%B7%20list.xlsx", S3ExportStorage.encode("app/用户 list.xlsx", true));
+        assertEquals("app%2Fa%2Bb%3D", S3ExportStorage.encode("app/a+b=", false));
+    }
+
+    @Test
+    public void uploadsSmallFileInOneRequest() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        this.storage.save("users.csv", out -> out.write(content));
+
+        assertArrayEquals(content, this.objects.get("app/users.csv"));
+        assertEquals(Collections.singletonList("PUT /exports/app/users.csv"), this.requests);
+        assertEquals(content.length, this.storage.length("users.csv"));
+    }
+
+    @Test
+    public void uploadsLargeFileInParts() throws Exception {
+        byte[] content = new byte[S3ExportStorage.MIN_PART_SIZE + 100];
+        Arrays.fill(content, S3ExportStorage.MIN_PART_SIZE, content.length, (byte) 1);
+        this.storage.save("users.xlsx", out -> {
+            out.write(content, 0, 10);
+            out.write(content, 10, content.length - 10);
+        });
+
+        assertArrayEquals(content, this.objects.get("app/users.xlsx"));
+        assertEquals(Arrays.asList(
+            "POST /exports/app/users.xlsx?uploads=",
+            "PUT /exports/app/users.xlsx?partNumber=1&uploadId=u1",
+            "PUT /exports/app/users.xlsx?partNumber=2&uploadId=u1",
+            "POST /exports/app/users.xlsx?uploadId=u1"), this.requests);
+        assertTrue(this.uploads.isEmpty());
+    }
+
+    @Test
+    public void abortsUploadOnFailure() throws Exception {
+        try {
+            this.storage.save("users.xlsx", out -> {
+                out.write(new byte[S3ExportStorage.MIN_PART_SIZE + 1]);
+                throw new IllegalStateException("write failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("write failed", e.getMessage());
+        }
+        assertEquals(Collections.singletonList("u1"), this.aborted);
+        assertTrue(this.uploads.isEmpty());
+        assertFalse(this.objects.containsKey("app/users.xlsx"));
+
+        // 小于一个分片的文件失败时不发送请求
+        this.requests.clear();
+        try {
+            this.storage.save("users.csv", out -> {
+                out.write(1);
+                throw new IllegalStateException("write failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(this.requests.isEmpty());
+        }
+    }
+
+    @Test
+    public void readsRanges() throws Exception {
+        this.storage.save("users.csv", out -> out.write("0123456789".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("2345", transfer(2, 4));
+
+        // 服务不支持Range时返回整个对象
+        this.ignoreRange = true;
+        assertEquals("2345", transfer(2, 4));
+        assertEquals("0123456789", transfer(0, 10));
+
+        try {
+            this.storage.transferTo("missing.csv", 0, 1, new ByteArrayOutputStream());
+            fail();
+        } catch (FileNotFoundException e) {
+            assertEquals("missing.csv", e.getMessage());
+        }
+    }
+
+    @Test
+    public void deletesExpiredObjectsAcrossPages() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            names.add(fileName("users"));
+            this.storage.save(names.get(i), out -> out.write(1));
+        }
+        this.lastModified.put("app/" + names.get(3), System.currentTimeMillis() + 60 * 1000);
+        this.pageSize = 2;
+
+        this.storage.deleteExpired(System.currentTimeMillis() + 1000, names.get(1)::equals);
+        // 保留的和未过期的对象不删除
+        assertEquals(new HashSet<>(Arrays.asList("app/" + names.get(1), "app/" + names.get(3))), this.objects.keySet());
+    }
+
+    @Test
+    public void deletesOnlyOwnExportFiles() throws Exception {
+        String own = fileName("users");
+        String other = fileName("users");
+        this.storage.save(own, out -> out.write(1));
+        // 另一个节点缓存的结果，当前节点不知道它是否保留
+        storage("app/", "node-2").save(other, out -> out.write(new byte[S3ExportStorage.MIN_PART_SIZE + 1]));
+        // 不是导出生成的对象
+        List<String> unrelated = Arrays.asList("app/readme.txt", "app/users.csv", "other/" + fileName("users"));
+        unrelated.forEach(key -> store(key, new byte[1]));
+
+        this.storage.deleteExpired(System.currentTimeMillis() + 1000, fileName -> false);
+        assertEquals("node-2", this.nodes.get("app/" + other));
+        List<String> remaining = new ArrayList<>(unrelated);
+        remaining.add("app/" + other);
+        assertEquals(new HashSet<>(remaining), this.objects.keySet());
+    }
+
+    private S3ExportStorage storage(String prefix, String node) {
+        return new S3ExportStorage("http://127.0.0.1:" + this.server.getAddress().getPort() + "/",
+            "us-east-1", "exports", "AKIDEXAMPLE", SECRET_KEY, prefix, node, S3ExportStorage.MIN_PART_SIZE);
+    }
+
+    private static String fileName(String name) {
+        return String.format("%s_%s.csv", name, UUID.randomUUID());
+    }
+
+    private String transfer(long position, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.storage.transferTo("users.csv", position, count, out);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 模拟S3的路径风格接口
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        Map<String, String> query = new TreeMap<>();
+        if (rawQuery != null) {
+            for (String param : rawQuery.split("&")) {
+                String[] pair = param.split("=", 2);
+                query.put(URLDecoder.decode(pair[0], "UTF-8"), pair.length > 1 ? URLDecoder.decode(pair[1], "UTF-8") : "");
+            }
+        }
+        byte[] body = read(exchange.getRequestBody());
+        String authorization = String.valueOf(exchange.getRequestHeaders().getFirst("Authorization"));
+        // 签名中的请求内容摘要需要与实际发送的内容一致
+        String node = exchange.getRequestHeaders().getFirst(S3ExportStorage.NODE_HEADER);
+        // 签名中的请求内容摘要需要与实际发送的内容一致，元数据请求头需要参与签名
+        if (!authorization.startsWith("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/")
+            || !sha256(body).equals(exchange.getRequestHeaders().getFirst("x-amz-content-sha256"))
+            || (node != null && !authorization.contains(";" + S3ExportStorage.NODE_HEADER))) {
+            send(exchange, 403, "<Error><Code>SignatureDoesNotMatch</Code></Error>".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String key = URLDecoder.decode(path.substring("/exports/".length()), "UTF-8");
+        if (key.isEmpty()) {
+            list(exchange, query);
+            return;
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            this.requests.add(method + " " + path + (rawQuery == null ? "" : "?" + rawQuery));
+        }
+        switch (method) {
+            case "PUT":
+                if (query.containsKey("uploadId")) {
+                    this.uploads.get(query.get("uploadId")).put(Integer.valueOf(query.get("partNumber")), body);
+                    exchange.getResponseHeaders().set("ETag", "\"" + query.get("partNumber") + "\"");
+                } else {
+                    store(key, body);
+                    mark(key, node);
+                }
+                send(exchange, 200, new byte[0]);
+                return;
+            case "POST":
+                if (query.containsKey("uploads")) {
+                    String uploadId = "u" + (this.uploads.size() + this.aborted.size() + 1);
+                    this.uploads.put(uploadId, new TreeMap<>());
+                    mark(uploadId, node);
+                    send(exchange, 200, ("<InitiateMultipartUploadResult><UploadId>" + uploadId
+                        + "</UploadId></InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                Map<Integer, byte[]> parts = this.uploads.remove(query.get("uploadId"));
+                if (new String(body, StandardCharsets.UTF_8).split("<Part>").length - 1 != parts.size()) {
+                    send(exchange, 400, "<Error><Code>InvalidPart</Code></Error>".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (byte[] part : parts.values()) {
+                    content.write(part);
+                }
+                store(key, content.toByteArray());
+                mark(key, this.nodes.remove(query.get("uploadId")));
+                send(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+                return;
+            case "DELETE":
+                if (query.containsKey("uploadId")) {
+                    this.uploads.remove(query.get("uploadId"));
+                    this.aborted.add(query.get("uploadId"));
+                } else {
+                    this.objects.remove(key);
+                }
+                send(exchange, 204, null);
+                return;
+            default:
+                byte[] object = this.objects.get(key);
+                if (object == null) {
+                    send(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    if (this.nodes.containsKey(key)) {
+                        exchange.getResponseHeaders().set(S3ExportStorage.NODE_HEADER, this.nodes.get(key));
+                    }
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                Matcher range = RANGE.matcher(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+                if (this.ignoreRange || !range.matches()) {
+                    send(exchange, 200, object);
+                    return;
+                }
+                int start = Integer.parseInt(range.group(1));
+                int end = Math.min(Integer.parseInt(range.group(2)), object.length - 1);
+                send(exchange, 206, Arrays.copyOfRange(object, start, end + 1));
+        }
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        List<String> keys = new ArrayList<>(new TreeMap<>(this.objects).keySet());
+        keys.removeIf(key -> !key.startsWith(query.get("prefix")));
+        // 与S3一样，继续的位置由对象名决定，不受上一页中删除的对象影响
+        String token = query.get("continuation-token");
+        keys.removeIf(key -> token != null && key.compareTo(token) < 0);
+        int to = Math.min(keys.size(), this.pageSize);
+        StringBuilder xml = new StringBuilder("<ListBucketResult><IsTruncated>").append(to < keys.size()).append("</IsTruncated>");
+        if (to < keys.size()) {
+            xml.append("<NextContinuationToken>").append(keys.get(to)).append("</NextContinuationToken>");
+        }
+        for (String key : keys.subList(0, to)) {
+            xml.append("<Contents><Key>").append(key).append("</Key><LastModified>")
+                .append(Instant.ofEpochMilli(this.lastModified.get(key))).append("</LastModified></Contents>");
+        }
+        send(exchange, 200, xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void store(String key, byte[] content) {
+        this.objects.put(key, content);
+        this.lastModified.put(key, System.currentTimeMillis());
+    }
+
+    private void mark(String key, String node) {
+        if (node != null) {
+            this.nodes.put(key, node);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null || body.length == 0 ? -1 : body.length);
+        if (body != null && body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int len;
+        while ((len = in.read(buffer)) > 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) throws IOException {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StylePoolTests {
+
+    @Test
+    public void sameSpecReturnsSameStyle() throws Exception {
+        try (XSSFWorkbook book = new XSSFWorkbook()) {
+            StylePool pool = new StylePool(book);
+            int styles = book.getNumCellStyles();
+            CellStyle date = pool.get(StyleSpec.of("yyyy-MM-dd", null));
+            assertSame(date, pool.get(StyleSpec.of("yyyy-MM-dd", null)));
+            assertEquals("yyyy-MM-dd", date.getDataFormatString());
+            assertEquals(styles + 1, book.getNumCellStyles());
+
+            CellStyle right = pool.get(StyleSpec.of("yyyy-MM-dd", HorizontalAlignment.RIGHT));
+            assertNotSame(date, right);
+            assertEquals(HorizontalAlignment.RIGHT, right.getAlignment());
+            assertSame(right, pool.get(StyleSpec.of("yyyy-MM-dd", HorizontalAlignment.RIGHT)));
+            assertEquals(styles + 2, book.getNumCellStyles());
+        }
+    }
+
+    @Test
+    public void specsAreInterned() {
+        assertSame(StyleSpec.of("#,##0.00", HorizontalAlignment.RIGHT), StyleSpec.of("#,##0.00", HorizontalAlignment.RIGHT));
+        assertSame(StyleSpec.of(null, HorizontalAlignment.CENTER), StyleSpec.of(null, HorizontalAlignment.CENTER));
+        // 没有格式和对齐方式时使用默认样式
+        assertNull(StyleSpec.of(null, null));
+    }
+
+    @Test
+    public void headerStyleIsScopedToWorkbook() throws Exception {
+        try (XSSFWorkbook book = new XSSFWorkbook()) {
+            int fonts = book.getNumberOfFonts();
+            CellStyle header = new StylePool(book).get(StyleSpec.HEADER);
+            assertTrue(book.getFontAt(header.getFontIndexAsInt()).getBold());
+            // 其他工作簿的样式池单独创建
+            try (XSSFWorkbook other = new XSSFWorkbook()) {
+                assertNotSame(header, new StylePool(other).get(StyleSpec.HEADER));
+            }
+            assertEquals(fonts + 1, book.getNumberOfFonts());
+        }
+    }
+}
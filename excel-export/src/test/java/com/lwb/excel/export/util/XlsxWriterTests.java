@@ -0,0 +1,141 @@
+package com.lwb.excel.export.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.PaneInformation;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class XlsxWriterTests {
+
+    @Test
+    public void writesHeadersMergesAndPane() throws Exception {
+        XSSFWorkbook book = write(writer -> {
+            writer.startSheet("users", new int[]{0, 2, 0, 2},
+                Arrays.asList(new CellRangeAddress(0, 0, 0, 1), new CellRangeAddress(0, 1, 2, 2)), new int[]{10, 0, 20});
+            writer.startRow();
+            writer.writeHeader("student");
+            writer.writeHeader(null);
+            writer.writeHeader("class");
+            writer.endRow();
+            writer.startRow();
+            writer.writeHeader("name");
+            writer.writeHeader("age");
+            writer.writeHeader(null);
+            writer.endRow();
+            writer.endSheet();
+        });
+        XSSFSheet sheet = book.getSheet("users");
+        assertEquals(2, sheet.getNumMergedRegions());
+        assertEquals("A1:B1", sheet.getMergedRegion(0).formatAsString());
+        assertEquals("C1:C2", sheet.getMergedRegion(1).formatAsString());
+        assertEquals("student", sheet.getRow(0).getCell(0).getStringCellValue());
+        assertEquals("age", sheet.getRow(1).getCell(1).getStringCellValue());
+        assertTrue(sheet.getRow(0).getCell(0).getCellStyle().getFont().getBold());
+        assertEquals(10 * 256, sheet.getColumnWidth(0));
+        assertEquals(20 * 256, sheet.getColumnWidth(2));
+
+        PaneInformation pane = sheet.getPaneInformation();
+        assertTrue(pane.isFreezePane());
+        assertEquals(2, pane.getHorizontalSplitPosition());
+        assertEquals(0, pane.getVerticalSplitPosition());
+    }
+
+    @Test
+    public void writesTypedValues() throws Exception {
+        Date date = Date.from(LocalDateTime.of(2019, 9, 1, 12, 0).atZone(ZoneId.systemDefault()).toInstant());
+        Date old = Date.from(LocalDateTime.of(1899, 12, 31, 8, 30).atZone(ZoneId.systemDefault()).toInstant());
+        XSSFWorkbook book = write(writer -> {
+            writer.startSheet(null, new int[]{0, 0, 0, 0}, Collections.emptyList(), new int[7]);
+            writer.startRow();
+            writer.write(42, null, null);
+            writer.write(1234.5, "#,##0.00", HorizontalAlignment.RIGHT);
+            writer.write(true, null, null);
+            writer.write("<a & \"b\">", null, null);
+            writer.write(LocalDate.of(2019, 9, 1), null, null);
+            writer.write(date, null, null);
+            writer.write(old, null, null);
+            writer.endRow();
+            writer.startRow();
+            writer.write(Long.MAX_VALUE, null, null);
+            writer.write(new BigDecimal("0.1234567890123456789"), null, null);
+            writer.write(null, null, null);
+            writer.write(LocalDate.of(1850, 6, 1), null, null);
+            writer.endRow();
+            writer.endSheet();
+        });
+        XSSFSheet sheet = book.getSheetAt(0);
+        Row row = sheet.getRow(0);
+        assertEquals(42, row.getCell(0).getNumericCellValue(), 0);
+        assertEquals(1234.5, row.getCell(1).getNumericCellValue(), 0);
+        assertEquals("#,##0.00", row.getCell(1).getCellStyle().getDataFormatString());
+        assertEquals(HorizontalAlignment.RIGHT, row.getCell(1).getCellStyle().getAlignment());
+        assertEquals(CellType.BOOLEAN, row.getCell(2).getCellType());
+        assertTrue(row.getCell(2).getBooleanCellValue());
+        assertEquals("<a & \"b\">", row.getCell(3).getStringCellValue());
+
+        Cell localDate = row.getCell(4);
+        assertTrue(DateUtil.isCellDateFormatted(localDate));
+        assertEquals(43709, localDate.getNumericCellValue(), 0);
+        assertEquals(43709.5, row.getCell(5).getNumericCellValue(), 1e-9);
+        // 1900年之前的日期写成字符串
+        assertEquals(CellType.STRING, row.getCell(6).getCellType());
+        assertEquals("1899-12-31T08:30", row.getCell(6).getStringCellValue());
+
+        Row second = sheet.getRow(1);
+        assertEquals(String.valueOf(Long.MAX_VALUE), second.getCell(0).getStringCellValue());
+        assertEquals("0.1234567890123456789", second.getCell(1).getStringCellValue());
+        assertNull(second.getCell(2));
+        assertEquals(CellType.STRING, second.getCell(3).getCellType());
+    }
+
+    @Test
+    public void writesSeveralSheets() throws Exception {
+        XSSFWorkbook book = write(writer -> {
+            for (String name : Arrays.asList("a", "b")) {
+                writer.startSheet(name, new int[]{0, 0, 0, 0}, Collections.emptyList(), new int[1]);
+                for (int i = 0; i < 3; i++) {
+                    writer.startRow();
+                    writer.write(name + i, null, null);
+                    writer.endRow();
+                }
+                assertEquals(3, writer.getRowCount());
+                writer.endSheet();
+            }
+        });
+        assertEquals(2, book.getNumberOfSheets());
+        assertEquals("b2", book.getSheet("b").getRow(2).getCell(0).getStringCellValue());
+        assertNull(book.getSheet("a").getPaneInformation());
+    }
+
+    private static XSSFWorkbook write(SheetContent content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxWriter writer = new XlsxWriter(out);
+        content.write(writer);
+        writer.finish();
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private interface SheetContent {
+        void write(XlsxWriter writer) throws Exception;
+    }
+}
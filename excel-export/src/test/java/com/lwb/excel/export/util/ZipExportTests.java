@@ -0,0 +1,209 @@
+package com.lwb.excel.export.util;
+
+import com.lwb.excel.export.exception.UtilException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZipExportTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void renamesDuplicateFiles() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipExport zip = new ZipExport(out);
+        for (String name : Arrays.asList("a.csv", "a.csv", "a.csv", "b")) {
+            ZipExport.Part part = zip.add(name, true);
+            part.write(name.getBytes());
+            part.finish();
+        }
+        zip.write();
+        assertEquals(Arrays.asList("a.csv", "a(2).csv", "a(3).csv", "b"), new ArrayList<>(read(out).keySet()));
+    }
+
+    @Test
+    public void writesFinishedFilesFirst() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipExport zip = new ZipExport(out);
+        ZipExport.Part slow = zip.add("slow.csv", true);
+        ZipExport.Part fast = zip.add("fast.xlsx", false);
+        slow.write(new byte[]{1});
+        fast.write(new byte[]{2, 2});
+        fast.finish();
+        Future<?> writing = this.executor.submit(() -> {
+            zip.write();
+            return null;
+        });
+        // fast已生成完，先写入zip；slow获得zip后直接写入
+        Thread.sleep(100);
+        slow.write(new byte[]{3});
+        slow.finish();
+        writing.get(5, TimeUnit.SECONDS);
+
+        Map<String, byte[]> entries = read(out);
+        assertEquals(Arrays.asList("fast.xlsx", "slow.csv"), new ArrayList<>(entries.keySet()));
+        assertArrayEquals(new byte[]{2, 2}, entries.get("fast.xlsx"));
+        assertArrayEquals(new byte[]{1, 3}, entries.get("slow.csv"));
+    }
+
+    @Test
+    public void generatesInParallelWithBoundedBuffers() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipExport zip = new ZipExport(out);
+        int size = ZipExport.BUFFER_LIMIT * 2 + 123;
+        List<Future<?>> generators = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ZipExport.Part part = zip.add("part.csv", true);
+            byte value = (byte) i;
+            generators.add(this.executor.submit(() -> {
+                byte[] chunk = new byte[8192];
+                Arrays.fill(chunk, value);
+                // 缓冲区满时暂停生成，直到获得zip
+                for (int written = 0; written < size; written += chunk.length) {
+                    part.write(chunk, 0, Math.min(chunk.length, size - written));
+                }
+                part.finish();
+                return null;
+            }));
+        }
+        zip.write();
+        for (Future<?> generator : generators) {
+            generator.get(5, TimeUnit.SECONDS);
+        }
+
+        Map<String, byte[]> entries = read(out);
+        List<String> names = Arrays.asList("part.csv", "part(2).csv", "part(3).csv");
+        assertEquals(3, entries.size());
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            byte[] content = entry.getValue();
+            assertEquals(size, content.length);
+            byte expected = (byte) names.indexOf(entry.getKey());
+            for (byte b : content) {
+                assertEquals(expected, b);
+            }
+        }
+    }
+
+    @Test
+    public void generationFailureStopsOtherFiles() throws Exception {
+        ZipExport zip = new ZipExport(new ByteArrayOutputStream());
+        ZipExport.Part first = zip.add("first.csv", true);
+        ZipExport.Part second = zip.add("second.csv", true);
+        Future<?> blocked = this.executor.submit(() -> {
+            // second等待first写完，缓冲区满后阻塞
+            byte[] chunk = new byte[ZipExport.BUFFER_LIMIT];
+            second.write(chunk);
+            second.write(chunk);
+            return null;
+        });
+        first.write(new byte[]{1});
+        Future<?> writing = this.executor.submit(() -> {
+            zip.write();
+            return null;
+        });
+        IllegalStateException failure = new IllegalStateException("查询失败");
+        zip.fail(failure);
+
+        try {
+            writing.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        try {
+            blocked.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        try {
+            first.write(new byte[]{2});
+            fail();
+        } catch (IOException e) {
+            assertEquals("导出已终止", e.getMessage());
+        }
+    }
+
+    @Test
+    public void errorIsReportedAsException() throws Exception {
+        ZipExport zip = new ZipExport(new ByteArrayOutputStream());
+        zip.add("a.csv", true);
+        zip.fail(new OutOfMemoryError("内存不足"));
+        try {
+            zip.write();
+            fail();
+        } catch (UtilException e) {
+            assertEquals("内存不足", e.getMessage());
+        }
+    }
+
+    @Test
+    public void outputFailureStopsGeneration() throws Exception {
+        IOException broken = new IOException("连接已断开");
+        ZipExport zip = new ZipExport(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw broken;
+            }
+        });
+        ZipExport.Part first = zip.add("first.csv", true);
+        ZipExport.Part second = zip.add("second.csv", true);
+        first.write(new byte[]{1});
+        first.finish();
+        try {
+            zip.write();
+            fail();
+        } catch (IOException e) {
+            assertSame(broken, e);
+        }
+        try {
+            second.write(new byte[]{1});
+            fail();
+        } catch (IOException e) {
+            assertEquals("导出已终止", e.getMessage());
+        }
+    }
+
+    private static Map<String, byte[]> read(ByteArrayOutputStream out) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    content.write(buffer, 0, n);
+                }
+                entries.put(entry.getName(), content.toByteArray());
+            }
+        }
+        return entries;
+    }
+}